@@ -0,0 +1,135 @@
+package com.agentflow.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs benchmarks with allocation profiling and a JSON result file, and
+ * optionally compares the result with an earlier one:
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.agentflow.benchmark.BenchmarkRunner \
+ *     [--baseline previous.json] [--threshold 10] [JMH options] [benchmark regexps]
+ * </pre>
+ *
+ * Results go to {@code jmh-result.json} unless {@code -rff} says otherwise.
+ * With a baseline, every benchmark and parameter combination present in both
+ * runs is compared on its score and on {@code gc.alloc.rate.norm}; the exit
+ * status is 1 if any got worse by more than the threshold percentage.
+ */
+public final class BenchmarkRunner {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    /** Below this many bytes per operation, allocation differences are noise. */
+    private static final double MIN_ALLOCATION_BYTES = 16;
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseline = null;
+        double threshold = 10;
+        List<String> jmhArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--baseline" -> baseline = args[++i];
+                case "--threshold" -> threshold = Double.parseDouble(args[++i]);
+                default -> jmhArgs.add(args[i]);
+            }
+        }
+
+        CommandLineOptions commandLine = new CommandLineOptions(jmhArgs.toArray(String[]::new));
+        String resultFile = commandLine.getResult().orElse("jmh-result.json");
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build();
+        new Runner(options).run();
+
+        if (baseline != null) {
+            int regressions = compare(new File(baseline), new File(resultFile), threshold);
+            System.exit(regressions > 0 ? 1 : 0);
+        }
+    }
+
+    /**
+     * Prints the change of every common benchmark; returns how many regressed.
+     */
+    static int compare(File baselineFile, File currentFile, double thresholdPercent) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, JsonNode> baseline = byKey(mapper.readTree(baselineFile));
+        Map<String, JsonNode> current = byKey(mapper.readTree(currentFile));
+
+        int regressions = 0;
+        System.out.printf("%nCompared with %s (threshold %.1f%%):%n", baselineFile, thresholdPercent);
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            JsonNode after = entry.getValue();
+            boolean higherIsBetter = "thrpt".equals(after.path("mode").asText());
+            double scoreChange = worsening(score(before.path("primaryMetric")), score(after.path("primaryMetric")), higherIsBetter);
+            double allocationBefore = score(before.path("secondaryMetrics").path(ALLOCATION));
+            double allocationAfter = score(after.path("secondaryMetrics").path(ALLOCATION));
+            double allocationChange = Math.max(allocationBefore, allocationAfter) < MIN_ALLOCATION_BYTES
+                    ? 0 : worsening(allocationBefore, allocationAfter, false);
+
+            boolean regressed = scoreChange > thresholdPercent || allocationChange > thresholdPercent;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%-10s %-70s time %+7.1f%%  alloc %+7.1f%%%n",
+                    regressed ? "REGRESSED" : "ok", entry.getKey(), scoreChange, allocationChange);
+        }
+        System.out.printf("%d regression(s)%n", regressions);
+        return regressions;
+    }
+
+    /**
+     * How much worse {@code after} is than {@code before}, in percent; negative is better.
+     */
+    private static double worsening(double before, double after, boolean higherIsBetter) {
+        if (Double.isNaN(before) || Double.isNaN(after) || before == 0) {
+            return 0;
+        }
+        double change = (after - before) / before * 100;
+        return higherIsBetter ? -change : change;
+    }
+
+    private static double score(JsonNode metric) {
+        return metric.has("score") ? metric.get("score").asDouble() : Double.NaN;
+    }
+
+    private static Map<String, JsonNode> byKey(JsonNode results) {
+        Map<String, JsonNode> byKey = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            Map<String, String> params = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = result.path("params").fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> param = fields.next();
+                params.put(param.getKey(), param.getValue().asText());
+            }
+            String benchmark = result.path("benchmark").asText().replace("com.agentflow.benchmark.", "");
+            byKey.put(params.isEmpty() ? benchmark : benchmark + " " + params, result);
+        }
+        return byKey;
+    }
+}
@@ -0,0 +1,50 @@
+package com.agentflow.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@code --name value} command-line options of the load-test tools.
+ */
+final class CliOptions {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    CliOptions(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --name value, got: " + args[i]);
+            }
+            values.put(args[i].substring(2), args[++i]);
+        }
+    }
+
+    String string(String name, String defaultValue) {
+        String value = values.remove(name);
+        return value != null ? value : defaultValue;
+    }
+
+    int integer(String name, int defaultValue) {
+        String value = values.remove(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    long number(String name, long defaultValue) {
+        String value = values.remove(name);
+        return value != null ? Long.parseLong(value) : defaultValue;
+    }
+
+    double decimal(String name, double defaultValue) {
+        String value = values.remove(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    /**
+     * Fails on options that were given but never read.
+     */
+    void requireAllUsed() {
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + values.keySet());
+        }
+    }
+}
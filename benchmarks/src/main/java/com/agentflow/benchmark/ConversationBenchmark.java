@@ -0,0 +1,65 @@
+package com.agentflow.benchmark;
+
+import com.agentflow.dto.Message;
+import com.agentflow.memory.Conversation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Conversation#addMessage} and {@link Conversation#getMessages} with
+ * one writer and three readers on the same conversation, as when a turn
+ * appends while streams and status requests read the history. Both copy the
+ * whole history, so the cost grows with {@code historySize}.
+ *
+ * The writer trims the history back to {@code historySize} whenever it has
+ * doubled, so the size stays within one factor of two during a run.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    int historySize;
+
+    private Conversation conversation;
+    private Message message;
+    private int appended;
+
+    @Setup(Level.Iteration)
+    public void createConversation() {
+        conversation = new Conversation("benchmark", "You are a helpful assistant.");
+        message = new Message("user", "What was the revenue for Q3, and how did operating costs develop?");
+        refill();
+    }
+
+    private void refill() {
+        conversation.clear();
+        for (int i = 0; i < historySize; i++) {
+            conversation.addMessage(message);
+        }
+        appended = 0;
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void append() {
+        conversation.addMessage(message);
+        if (++appended == historySize) {
+            refill();
+        }
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public List<Message> read() {
+        return conversation.getMessages();
+    }
+}
@@ -0,0 +1,74 @@
+package com.agentflow.benchmark;
+
+import com.agentflow.services.ConversationSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of serialized chat turns under contention: eight threads run
+ * short turns on randomly chosen conversations. One global lock (the simplest
+ * way to stop turns from interleaving) against {@link ConversationSerializer},
+ * which only orders turns of the same conversation. {@code unordered} is the
+ * ceiling with no ordering at all.
+ *
+ * With one conversation every approach is serial; with many, only the global
+ * lock still is.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class ConversationSerializerBenchmark {
+
+    /** Stand-in for the in-process part of a turn (history update, prompt assembly). */
+    private static final long TURN_WORK = 500;
+
+    @Param({"1", "64", "4096"})
+    int conversations;
+
+    private final Object globalLock = new Object();
+    private ConversationSerializer serializer;
+    private String[] conversationIds;
+
+    @Setup
+    public void setUp() {
+        serializer = new ConversationSerializer(new SimpleMeterRegistry());
+        conversationIds = new String[conversations];
+        for (int i = 0; i < conversations; i++) {
+            conversationIds[i] = "conversation-" + i;
+        }
+    }
+
+    private String pickConversation() {
+        return conversationIds[ThreadLocalRandom.current().nextInt(conversations)];
+    }
+
+    @Benchmark
+    public void globalLock() {
+        pickConversation();
+        synchronized (globalLock) {
+            Blackhole.consumeCPU(TURN_WORK);
+        }
+    }
+
+    @Benchmark
+    public Object perConversation() {
+        return serializer.call(pickConversation(), () -> {
+            Blackhole.consumeCPU(TURN_WORK);
+            return null;
+        });
+    }
+
+    @Benchmark
+    public void unordered() {
+        pickConversation();
+        Blackhole.consumeCPU(TURN_WORK);
+    }
+}
@@ -0,0 +1,109 @@
+package com.agentflow.benchmark;
+
+import com.agentflow.dto.Message;
+import com.agentflow.memory.FileConversationMemory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Disk cost of {@link FileConversationMemory}: {@code append} adds one message,
+ * which rewrites the conversation's whole file, and {@code load} starts a
+ * memory over a directory of ten conversations, as on startup.
+ *
+ * {@code append} is measured in batches of 20 on a history reset each
+ * iteration, so every append sees close to {@code historySize} messages;
+ * its score is the time for the batch.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class FileConversationMemoryBenchmark {
+
+    private static final int APPENDS_PER_ITERATION = 20;
+    private static final int STORED_CONVERSATIONS = 10;
+
+    @Param({"10", "100", "1000"})
+    int historySize;
+
+    private Path appendDir;
+    private Path loadDir;
+    private FileConversationMemory memory;
+    private String conversationId;
+    private Message message;
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    @Setup(Level.Trial)
+    public void createStore() throws IOException {
+        message = new Message("assistant", "Revenue for Q3 was $512,000 against a plan of $480,000; "
+                + "operating costs rose in line with headcount while marketing spend stayed flat.");
+        appendDir = Files.createTempDirectory("agentflow-bench-append");
+        loadDir = Files.createTempDirectory("agentflow-bench-load");
+        Path conversations = Files.createDirectories(loadDir.resolve("conversations"));
+        for (int c = 0; c < STORED_CONVERSATIONS; c++) {
+            writeConversation(conversations, "stored-" + c);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createConversation() throws IOException {
+        conversationId = "benchmark";
+        writeConversation(Files.createDirectories(appendDir.resolve("conversations")), conversationId);
+        memory = new FileConversationMemory(appendDir.toString());
+    }
+
+    /**
+     * Writes the file directly, in the format the memory saves, rather than
+     * appending one message (and one file write) at a time.
+     */
+    private void writeConversation(Path dir, String id) throws IOException {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("id", id);
+        data.put("systemPrompt", "You are a financial analyst agent.");
+        data.put("createdAt", Instant.now().toString());
+        data.put("updatedAt", Instant.now().toString());
+        data.put("messages", Collections.nCopies(historySize, Map.of("role", message.role(), "content", message.content())));
+        objectMapper.writeValue(dir.resolve(id + ".json").toFile(), data);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteStore() throws IOException {
+        deleteRecursively(appendDir);
+        deleteRecursively(loadDir);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 5, batchSize = APPENDS_PER_ITERATION)
+    @Measurement(iterations = 20, batchSize = APPENDS_PER_ITERATION)
+    public void append() {
+        memory.addMessage(conversationId, message);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public FileConversationMemory load() {
+        return new FileConversationMemory(loadDir.toString());
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.agentflow.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A stand-in for llama-server with deterministic replies and timing, for load
+ * tests without a model:
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.agentflow.benchmark.LlamaStubServer \
+ *     [--port 8081] [--slots 4] [--prefill-ms 200] [--prefill-ms-per-kb 0] \
+ *     [--tokens 64] [--tokens-per-second 50] [--error-rate 0] [--timeout-rate 0] \
+ *     [--hang-ms 120000] [--seed 42]
+ * </pre>
+ *
+ * Serves {@code /v1/chat/completions} and {@code /completion}, streaming or
+ * not, plus {@code /tokenize}, {@code /health} and {@code /slots}. A request
+ * waits for one of {@code slots} slots, as llama-server queues requests, then
+ * spends the prefill time (base plus per KB of request body) before the first
+ * token and emits {@code tokens} tokens (fewer if the request asks for
+ * fewer) at {@code tokens-per-second}.
+ *
+ * With {@code error-rate} a request fails with a 500, and with
+ * {@code timeout-rate} it holds its slot for {@code hang-ms} without answering.
+ * Which requests fail, and the reply text, depend only on the seed and the
+ * request's sequence number, so runs are repeatable.
+ */
+public final class LlamaStubServer {
+
+    private static final String[] WORDS = {
+            "the", "revenue", "for", "quarter", "rose", "while", "costs", "stayed", "flat", "and",
+            "margin", "improved", "as", "expected", "given", "headcount", "plan", "report", "shows", "growth"};
+
+    private final Settings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Semaphore slots;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong busy = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public LlamaStubServer(Settings settings) {
+        this.settings = settings;
+        this.slots = new Semaphore(settings.slots(), true);
+    }
+
+    public static void main(String[] args) throws IOException {
+        LlamaStubServer stub = new LlamaStubServer(Settings.parse(args));
+        stub.start();
+        System.out.printf("llama stub listening on port %d with %s%n", stub.port(), stub.settings);
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(settings.port()), 1024);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "llama-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/v1/chat/completions", exchange -> generate(exchange, true));
+        server.createContext("/completion", exchange -> generate(exchange, false));
+        server.createContext("/tokenize", this::tokenize);
+        server.createContext("/health", exchange -> respond(exchange, 200, "{\"status\":\"ok\"}"));
+        server.createContext("/slots", this::slots);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void generate(HttpExchange exchange, boolean chat) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        JsonNode request = objectMapper.readTree(body);
+        boolean stream = request.path("stream").asBoolean(false);
+        long requestNumber = sequence.incrementAndGet();
+        SplittableRandom random = new SplittableRandom(settings.seed() ^ requestNumber * 0x9E3779B97F4A7C15L);
+        boolean fail = random.nextDouble() < settings.errorRate();
+        boolean hang = !fail && random.nextDouble() < settings.timeoutRate();
+
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+            return;
+        }
+        busy.incrementAndGet();
+        try {
+            if (hang) {
+                sleep(settings.hangMs());
+                exchange.close();
+                return;
+            }
+            sleep(settings.prefillMs() + settings.prefillMsPerKb() * body.length / 1024);
+            if (fail) {
+                respond(exchange, 500, "{\"error\":{\"code\":500,\"message\":\"injected failure\"}}");
+                return;
+            }
+
+            int limit = request.path(chat ? "max_tokens" : "n_predict").asInt(0);
+            int tokens = limit > 0 ? Math.min(limit, settings.tokens()) : settings.tokens();
+            long tokenNanos = (long) (1_000_000_000L / settings.tokensPerSecond());
+            if (stream) {
+                streamTokens(exchange, chat, random, tokens, tokenNanos);
+            } else {
+                StringBuilder content = new StringBuilder();
+                for (int i = 0; i < tokens; i++) {
+                    content.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                sleep(tokens * tokenNanos / 1_000_000);
+                respond(exchange, 200, objectMapper.writeValueAsString(
+                        chat ? chatResponse(content.toString(), tokens) : completion(content.toString(), true, tokens)));
+            }
+        } finally {
+            busy.decrementAndGet();
+            slots.release();
+        }
+    }
+
+    private void streamTokens(HttpExchange exchange, boolean chat, SplittableRandom random, int tokens, long tokenNanos)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            long next = System.nanoTime();
+            for (int i = 0; i < tokens; i++) {
+                next += tokenNanos;
+                sleep((next - System.nanoTime()) / 1_000_000);
+                String token = (i == 0 ? "" : " ") + WORDS[random.nextInt(WORDS.length)];
+                ObjectNode event = chat ? chatChunk(token, null) : completion(token, false, i + 1);
+                writeEvent(out, objectMapper.writeValueAsString(event));
+            }
+            if (chat) {
+                writeEvent(out, objectMapper.writeValueAsString(chatChunk(null, "stop")));
+                writeEvent(out, "[DONE]");
+            } else {
+                writeEvent(out, objectMapper.writeValueAsString(completion("", true, tokens)));
+            }
+        } catch (IOException e) {
+            // client went away; the slot is released by the caller
+        }
+    }
+
+    private static void writeEvent(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private ObjectNode chatResponse(String content, int tokens) {
+        ObjectNode response = objectMapper.createObjectNode();
+        response.put("id", "chatcmpl-stub").put("object", "chat.completion")
+                .put("created", System.currentTimeMillis() / 1000).put("model", "stub");
+        ObjectNode choice = response.putArray("choices").addObject();
+        choice.putObject("message").put("role", "assistant").put("content", content);
+        choice.put("finish_reason", "stop").put("index", 0);
+        response.putObject("usage").put("prompt_tokens", 0).put("completion_tokens", tokens).put("total_tokens", tokens);
+        return response;
+    }
+
+    private ObjectNode chatChunk(String content, String finishReason) {
+        ObjectNode chunk = objectMapper.createObjectNode();
+        chunk.put("id", "chatcmpl-stub").put("object", "chat.completion.chunk")
+                .put("created", System.currentTimeMillis() / 1000).put("model", "stub");
+        ObjectNode choice = chunk.putArray("choices").addObject();
+        ObjectNode delta = choice.putObject("delta");
+        if (content != null) {
+            delta.put("content", content);
+        }
+        choice.put("finish_reason", finishReason).put("index", 0);
+        return chunk;
+    }
+
+    private ObjectNode completion(String content, boolean stop, int predicted) {
+        return objectMapper.createObjectNode()
+                .put("content", content).put("stop", stop)
+                .put("tokens_cached", 0).put("tokens_evaluated", 0).put("tokens_predicted", predicted);
+    }
+
+    /**
+     * One token per whitespace-separated word, which is all the client needs to size {@code n_keep}.
+     */
+    private void tokenize(HttpExchange exchange) throws IOException {
+        JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+        String content = request.path("content").asText("").strip();
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode tokens = response.putArray("tokens");
+        if (!content.isEmpty()) {
+            String[] words = content.split("\\s+");
+            for (int i = 0; i < words.length; i++) {
+                tokens.add(i);
+            }
+        }
+        respond(exchange, 200, objectMapper.writeValueAsString(response));
+    }
+
+    private void slots(HttpExchange exchange) throws IOException {
+        ArrayNode slotArray = objectMapper.createArrayNode();
+        long processing = busy.get();
+        for (int i = 0; i < settings.slots(); i++) {
+            slotArray.addObject().put("id", i).put("is_processing", i < processing);
+        }
+        respond(exchange, 200, objectMapper.writeValueAsString(slotArray));
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public record Settings(int port, int slots, long prefillMs, long prefillMsPerKb, int tokens,
+                           double tokensPerSecond, double errorRate, double timeoutRate, long hangMs, long seed) {
+
+        public static Settings defaults() {
+            return new Settings(8081, 4, 200, 0, 64, 50, 0, 0, 120_000, 42);
+        }
+
+        static Settings parse(String[] args) {
+            CliOptions options = new CliOptions(args);
+            Settings d = defaults();
+            Settings settings = new Settings(
+                    options.integer("port", d.port()),
+                    options.integer("slots", d.slots()),
+                    options.number("prefill-ms", d.prefillMs()),
+                    options.number("prefill-ms-per-kb", d.prefillMsPerKb()),
+                    options.integer("tokens", d.tokens()),
+                    options.decimal("tokens-per-second", d.tokensPerSecond()),
+                    options.decimal("error-rate", d.errorRate()),
+                    options.decimal("timeout-rate", d.timeoutRate()),
+                    options.number("hang-ms", d.hangMs()),
+                    options.number("seed", d.seed()));
+            options.requireAllUsed();
+            return settings;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.agentflow.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Open-loop load against a running AgentFlow:
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.agentflow.benchmark.LoadGenerator \
+ *     [--target http://localhost:8080] [--rps 10] [--duration-s 30] [--conversations 50] \
+ *     [--stream-ratio 0.5] [--timeout-s 120] [--api-key KEY] [--out report.json]
+ * </pre>
+ *
+ * Creates {@code conversations} conversations, then starts {@code rps}
+ * requests per second for {@code duration-s} seconds whether or not earlier
+ * ones have finished, so a slow server shows up as latency rather than as a
+ * lower request rate. Requests go round-robin over the conversations, a
+ * {@code stream-ratio} share of them to {@code /chat/stream} and the rest to
+ * {@code /chat}.
+ *
+ * Reports throughput, latency percentiles per endpoint, time to first SSE
+ * event for streams, errors by cause, and the server's CPU, heap and thread
+ * count sampled from {@code /actuator/metrics} once a second. Point
+ * {@code llama.base-url} at a {@link LlamaStubServer} for repeatable runs.
+ */
+public final class LoadGenerator {
+
+    private final String target;
+    private final double rps;
+    private final int durationSeconds;
+    private final int conversationCount;
+    private final double streamRatio;
+    private final Duration timeout;
+    private final String apiKey;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Queue<Long> chatLatencies = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> streamLatencies = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> firstEventLatencies = new ConcurrentLinkedQueue<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder streamEvents = new LongAdder();
+    private final AtomicLong started = new AtomicLong();
+    private final ServerSampler sampler = new ServerSampler();
+
+    LoadGenerator(CliOptions options) {
+        this.target = options.string("target", "http://localhost:8080").replaceAll("/$", "");
+        this.rps = options.decimal("rps", 10);
+        this.durationSeconds = options.integer("duration-s", 30);
+        this.conversationCount = options.integer("conversations", 50);
+        this.streamRatio = options.decimal("stream-ratio", 0.5);
+        this.timeout = Duration.ofSeconds(options.integer("timeout-s", 120));
+        this.apiKey = options.string("api-key", null);
+        this.client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        CliOptions options = new CliOptions(args);
+        String out = options.string("out", null);
+        LoadGenerator generator = new LoadGenerator(options);
+        options.requireAllUsed();
+
+        Map<String, Object> report = generator.run();
+        String json = generator.objectMapper.writeValueAsString(report);
+        System.out.println(json);
+        if (out != null) {
+            generator.objectMapper.writeValue(new File(out), report);
+        }
+    }
+
+    Map<String, Object> run() throws Exception {
+        List<String> conversations = createConversations();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+        Queue<CompletableFuture<?>> requests = new ConcurrentLinkedQueue<>();
+
+        scheduler.scheduleAtFixedRate(sampler, 0, 1, TimeUnit.SECONDS);
+        long periodNanos = (long) (1_000_000_000L / rps);
+        long total = (long) (rps * durationSeconds);
+        long begin = System.nanoTime();
+        scheduler.scheduleAtFixedRate(() -> {
+            long n = started.getAndIncrement();
+            if (n >= total) {
+                return;
+            }
+            String conversationId = conversations.get((int) (n % conversations.size()));
+            // streams are spread evenly: request n streams when it brings the share up to the ratio
+            boolean stream = Math.floor((n + 1) * streamRatio) > Math.floor(n * streamRatio);
+            requests.add(stream ? stream(conversationId, n) : chat(conversationId, n));
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+        while (requests.size() < total) {
+            Thread.sleep(50);
+        }
+        CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new))
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> null)
+                .join();
+        double elapsedSeconds = (System.nanoTime() - begin) / 1e9;
+        scheduler.shutdownNow();
+        sampler.run();
+
+        return report(total, elapsedSeconds);
+    }
+
+    private List<String> createConversations() throws IOException, InterruptedException {
+        List<String> ids = new ArrayList<>(conversationCount);
+        for (int i = 0; i < conversationCount; i++) {
+            HttpResponse<String> response = client.send(
+                    request("/api/conversations").POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"systemPrompt\":\"You are a concise financial analyst.\"}")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Could not create a conversation: HTTP " + response.statusCode()
+                        + " " + response.body());
+            }
+            ids.add(objectMapper.readTree(response.body()).get("conversationId").asText());
+        }
+        return ids;
+    }
+
+    private CompletableFuture<?> chat(String conversationId, long n) {
+        long start = System.nanoTime();
+        return client.sendAsync(
+                        request("/api/conversations/" + conversationId + "/chat").POST(body(n)).build(),
+                        HttpResponse.BodyHandlers.ofString())
+                .handle((response, failure) -> {
+                    if (succeeded(response, failure)) {
+                        chatLatencies.add(System.nanoTime() - start);
+                    }
+                    return null;
+                });
+    }
+
+    private CompletableFuture<?> stream(String conversationId, long n) {
+        long start = System.nanoTime();
+        EventTimer timer = new EventTimer(start);
+        return client.sendAsync(
+                        request("/api/conversations/" + conversationId + "/chat/stream")
+                                .header("Accept", "text/event-stream").POST(body(n)).build(),
+                        HttpResponse.BodyHandlers.fromLineSubscriber(timer))
+                .handle((response, failure) -> {
+                    if (succeeded(response, failure)) {
+                        streamLatencies.add(System.nanoTime() - start);
+                        if (timer.firstEventNanos > 0) {
+                            firstEventLatencies.add(timer.firstEventNanos);
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    private boolean succeeded(HttpResponse<?> response, Throwable failure) {
+        String cause = failure != null
+                ? (failure.getCause() != null ? failure.getCause() : failure).getClass().getSimpleName()
+                : response.statusCode() != 200 ? "HTTP " + response.statusCode() : null;
+        if (cause != null) {
+            errors.computeIfAbsent(cause, c -> new LongAdder()).increment();
+            return false;
+        }
+        return true;
+    }
+
+    private HttpRequest.BodyPublisher body(long n) {
+        return HttpRequest.BodyPublishers.ofString("{\"message\":\"Request " + n
+                + ": summarize the revenue and cost trend for the last quarter in two sentences.\"}");
+    }
+
+    private HttpRequest.Builder request(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(target + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json");
+        if (apiKey != null) {
+            builder.header("X-API-Key", apiKey);
+        }
+        return builder;
+    }
+
+    private Map<String, Object> report(long requests, double elapsedSeconds) {
+        long completed = chatLatencies.size() + streamLatencies.size();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("targetRps", rps);
+        report.put("durationSeconds", Math.round(elapsedSeconds * 10) / 10.0);
+        report.put("requests", requests);
+        report.put("completed", completed);
+        report.put("throughputRps", Math.round(completed / elapsedSeconds * 100) / 100.0);
+        report.put("chatLatencyMs", percentiles(chatLatencies));
+        report.put("streamLatencyMs", percentiles(streamLatencies));
+        report.put("timeToFirstEventMs", percentiles(firstEventLatencies));
+        report.put("streamEventsPerSecond", Math.round(streamEvents.sum() / elapsedSeconds * 10) / 10.0);
+        Map<String, Long> errorCounts = new LinkedHashMap<>();
+        errors.forEach((cause, count) -> errorCounts.put(cause, count.sum()));
+        report.put("errors", errorCounts);
+        report.put("server", sampler.summary());
+        return report;
+    }
+
+    private static Map<String, Object> percentiles(Queue<Long> nanos) {
+        long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", sorted.length);
+        if (sorted.length > 0) {
+            summary.put("p50", millis(sorted, 0.50));
+            summary.put("p90", millis(sorted, 0.90));
+            summary.put("p99", millis(sorted, 0.99));
+            summary.put("max", millis(sorted, 1.0));
+            summary.put("mean", Math.round(Arrays.stream(sorted).average().orElse(0) / 1e5) / 10.0);
+        }
+        return summary;
+    }
+
+    /** Nearest-rank percentile, in milliseconds with one decimal. */
+    private static double millis(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return Math.round(sorted[Math.max(0, rank - 1)] / 1e5) / 10.0;
+    }
+
+    /**
+     * Counts SSE data lines and notes when the first arrived.
+     */
+    private final class EventTimer implements Flow.Subscriber<String> {
+
+        private final long start;
+        private volatile long firstEventNanos;
+
+        EventTimer(long start) {
+            this.start = start;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.startsWith("data:")) {
+                if (firstEventNanos == 0) {
+                    firstEventNanos = System.nanoTime() - start;
+                }
+                streamEvents.increment();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    /**
+     * Samples the server's actuator metrics; failures are ignored, as the
+     * metrics endpoint may not be exposed.
+     */
+    private final class ServerSampler implements Runnable {
+
+        private final List<Double> cpu = new ArrayList<>();
+        private double maxHeapBytes;
+        private double maxThreads;
+
+        @Override
+        public synchronized void run() {
+            double usage = metric("process.cpu.usage", null);
+            if (!Double.isNaN(usage)) {
+                cpu.add(usage);
+            }
+            double heap = metric("jvm.memory.used", "area:heap");
+            if (!Double.isNaN(heap)) {
+                maxHeapBytes = Math.max(maxHeapBytes, heap);
+            }
+            double threads = metric("jvm.threads.live", null);
+            if (!Double.isNaN(threads)) {
+                maxThreads = Math.max(maxThreads, threads);
+            }
+        }
+
+        private double metric(String name, String tag) {
+            try {
+                HttpRequest.Builder builder = request("/actuator/metrics/" + name + (tag != null ? "?tag=" + tag : ""));
+                HttpResponse<String> response = client.send(builder.GET().build(), HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    return Double.NaN;
+                }
+                JsonNode measurements = objectMapper.readTree(response.body()).path("measurements");
+                return measurements.isEmpty() ? Double.NaN : measurements.get(0).path("value").asDouble();
+            } catch (IOException e) {
+                return Double.NaN;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Double.NaN;
+            }
+        }
+
+        synchronized Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("samples", cpu.size());
+            if (!cpu.isEmpty()) {
+                summary.put("cpuUsageMean", Math.round(cpu.stream().mapToDouble(Double::doubleValue).average().orElse(0) * 1000) / 1000.0);
+                summary.put("cpuUsageMax", Math.round(cpu.stream().mapToDouble(Double::doubleValue).max().orElse(0) * 1000) / 1000.0);
+            }
+            summary.put("heapUsedMaxMb", Math.round(maxHeapBytes / (1024 * 1024)));
+            summary.put("threadsMax", (long) maxThreads);
+            return summary;
+        }
+    }
+}
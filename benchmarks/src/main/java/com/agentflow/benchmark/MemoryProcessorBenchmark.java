@@ -0,0 +1,84 @@
+package com.agentflow.benchmark;
+
+import com.agentflow.dto.Message;
+import com.agentflow.interfaces.LlmClient;
+import com.agentflow.memory.SlidingWindowMemory;
+import com.agentflow.memory.SummarizingMemory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process cost of fitting a history into the window before each request,
+ * with the default window (20 messages) and summarize threshold (30). The LLM
+ * is a stub that answers at once, so {@code summarizing} measures formatting
+ * the older messages and building the result, not the model.
+ *
+ * At 10 messages both return the history as is; at 25 both trim; at 200
+ * {@link SummarizingMemory} also renders the 180 older messages into a prompt.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryProcessorBenchmark {
+
+    @Param({"10", "25", "200"})
+    int historySize;
+
+    private final SlidingWindowMemory slidingWindow = new SlidingWindowMemory(20);
+    private final SummarizingMemory summarizing = new SummarizingMemory(new StubLlmClient(), 20, 30, new SimpleMeterRegistry());
+    private List<Message> history;
+
+    @Setup
+    public void createHistory() {
+        history = new ArrayList<>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            String role = i % 2 == 0 ? "user" : "assistant";
+            history.add(new Message(role, "Message " + i + ": revenue for Q" + (i % 4 + 1)
+                    + " was $" + (500_000 + i) + ", and operating costs rose in line with headcount."));
+        }
+    }
+
+    @Benchmark
+    public List<Message> slidingWindow() {
+        return slidingWindow.trim(history);
+    }
+
+    @Benchmark
+    public List<Message> summarizing() {
+        return summarizing.process(history);
+    }
+
+    private static final class StubLlmClient implements LlmClient {
+
+        private static final String SUMMARY = "The user asked about quarterly revenue and costs; "
+                + "revenue grew each quarter while costs followed headcount.";
+
+        @Override
+        public String generate(String prompt) {
+            return SUMMARY;
+        }
+
+        @Override
+        public String generate(String systemPrompt, List<Message> history) {
+            return SUMMARY;
+        }
+
+        @Override
+        public String generateRaw(String prompt) {
+            return SUMMARY;
+        }
+
+        @Override
+        public Flux<String> generateStream(String systemPrompt, List<Message> history) {
+            return Flux.just(SUMMARY);
+        }
+    }
+}
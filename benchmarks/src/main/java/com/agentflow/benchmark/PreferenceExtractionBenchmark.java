@@ -0,0 +1,120 @@
+package com.agentflow.benchmark;
+
+import com.agentflow.services.PreferenceMatcher;
+import com.agentflow.services.UserPreferenceService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Cost of scanning one user message for preferences: the previous five
+ * {@code (?i)... (.*)} regexes run one after another, against the single-pass
+ * {@link PreferenceMatcher}.
+ *
+ * {@code short} is a typical chat message, {@code prose100k} a 100 KB paste
+ * with a few preference sentences, and {@code adversarial100k} a 100 KB line
+ * repeating a trigger whose separator never comes, on which the
+ * {@code My favorite (.*) is (.*)} regex backtracks over the rest of the line
+ * for every occurrence.
+ *
+ * {@code userPreferenceService} is the full per-message path: matching plus
+ * recording the preferences for the tenant. Saving is left to the background
+ * writer, so no disk write is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreferenceExtractionBenchmark {
+
+    private static final Pattern[] PREFERENCE_PATTERNS = {
+            Pattern.compile("(?i)I like (.*)"),
+            Pattern.compile("(?i)I prefer (.*)"),
+            Pattern.compile("(?i)I love (.*)"),
+            Pattern.compile("(?i)My favorite (.*) is (.*)"),
+            Pattern.compile("(?i)Remind me that (.*)")
+    };
+
+    private static final int LARGE = 100 * 1024;
+
+    @Param({"short", "prose100k", "adversarial100k"})
+    String input;
+
+    private final PreferenceMatcher matcher = PreferenceMatcher.defaults();
+    private String text;
+    private Path dataDir;
+    private UserPreferenceService preferences;
+
+    @Setup
+    public void createInput() throws IOException {
+        dataDir = Files.createTempDirectory("agentflow-bench-preferences");
+        preferences = new UserPreferenceService(dataDir.toString(), 60_000, 50, 0, 10000, matcher);
+        text = switch (input) {
+            case "short" -> "Thanks! By the way, I prefer short answers and my favorite language is Java.";
+            case "prose100k" -> prose();
+            case "adversarial100k" -> "my favorite thing ".repeat(LARGE / 18);
+            default -> throw new IllegalArgumentException(input);
+        };
+    }
+
+    @TearDown
+    public void deleteData() throws IOException {
+        preferences.shutdown();
+        try (Stream<Path> paths = Files.walk(dataDir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static String prose() {
+        StringBuilder out = new StringBuilder(LARGE + 200);
+        for (int i = 0; out.length() < LARGE; i++) {
+            out.append("Paragraph ").append(i)
+                    .append(": revenue for the quarter was tracked against the plan, and operating costs rose ")
+                    .append("in line with headcount while marketing spend stayed flat.\n");
+            if (i % 100 == 50) {
+                out.append("I like concise summaries. My favorite format is a table.\n");
+            }
+        }
+        return out.toString();
+    }
+
+    @Benchmark
+    public List<String> sequentialRegex() {
+        List<String> found = new ArrayList<>();
+        for (Pattern pattern : PREFERENCE_PATTERNS) {
+            Matcher m = pattern.matcher(text);
+            while (m.find()) {
+                String match = m.groupCount() == 2 ? m.group(1) + " is " + m.group(2) : m.group(1);
+                match = match.replaceAll("[.!?]$", "").trim();
+                if (!match.isEmpty()) {
+                    found.add(match);
+                }
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public List<String> singlePassMatcher() {
+        return matcher.extract(text);
+    }
+
+    @Benchmark
+    public UserPreferenceService userPreferenceService() {
+        preferences.extractPreferences(text);
+        return preferences;
+    }
+}
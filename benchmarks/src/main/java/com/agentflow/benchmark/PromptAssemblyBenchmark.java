@@ -0,0 +1,82 @@
+package com.agentflow.benchmark;
+
+import com.agentflow.dto.LlamaCompletionRequest;
+import com.agentflow.dto.Message;
+import com.agentflow.dto.OpenAiChatRequest;
+import com.agentflow.services.ChatTemplate;
+import com.agentflow.services.CompletionPromptCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the client-side cost of building one turn's request body in
+ * chat mode (OpenAI messages serialized by Jackson) and in native
+ * /completion mode (client-side template, with and without the prefix cache).
+ *
+ * The cached case primes the cache with the history minus the latest
+ * user/assistant pair, which is what a real follow-up turn sees.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptAssemblyBenchmark {
+
+    private static final String SYSTEM_PROMPT = "You are a financial analyst agent. Answer concisely.";
+    private static final String CONVERSATION_ID = "bench";
+    private static final List<String> STOP = List.of("###", "\nUser:", "\nAssistant:", "<|eot_id|>");
+
+    @Param({"10", "100", "1000"})
+    int historySize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Message> history;
+    private List<Message> previousTurn;
+    private CompletionPromptCache cache;
+
+    @Setup(Level.Trial)
+    public void createHistory() {
+        history = new ArrayList<>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            String role = i % 2 == 0 ? "user" : "assistant";
+            history.add(new Message(role, "Message " + i + ": the revenue for Q" + (i % 4 + 1)
+                    + " was $" + (500_000 + i) + " and expenses were tracked separately."));
+        }
+        previousTurn = history.subList(0, Math.max(0, historySize - 2));
+    }
+
+    @Setup(Level.Invocation)
+    public void primeCache() {
+        cache = new CompletionPromptCache(ChatTemplate.LLAMA3, 16);
+        cache.render(CONVERSATION_ID, SYSTEM_PROMPT, previousTurn);
+    }
+
+    @Benchmark
+    public byte[] chatCompletions() throws Exception {
+        List<Message> messages = new ArrayList<>();
+        messages.add(new Message("system", SYSTEM_PROMPT));
+        messages.addAll(history);
+        return objectMapper.writeValueAsBytes(
+                new OpenAiChatRequest("default", messages, 0.7, 512, STOP, false));
+    }
+
+    @Benchmark
+    public byte[] completionUncached() throws Exception {
+        String prompt = cache.render(null, SYSTEM_PROMPT, history);
+        return objectMapper.writeValueAsBytes(
+                new LlamaCompletionRequest(prompt, 512, 0.7, STOP, 0, true, false));
+    }
+
+    @Benchmark
+    public byte[] completionCachedPrefix() throws Exception {
+        String prompt = cache.render(CONVERSATION_ID, SYSTEM_PROMPT, history);
+        return objectMapper.writeValueAsBytes(
+                new LlamaCompletionRequest(prompt, 512, 0.7, STOP, 0, true, false));
+    }
+}
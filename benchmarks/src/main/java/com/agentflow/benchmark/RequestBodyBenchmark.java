@@ -0,0 +1,72 @@
+package com.agentflow.benchmark;
+
+import com.agentflow.dto.Message;
+import com.agentflow.dto.OpenAiChatRequest;
+import com.agentflow.services.ChatRequestBodyWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of producing a chat-completions body: the previous path
+ * (copy history into a new list, Jackson-serialize an {@link OpenAiChatRequest})
+ * against splicing cached message bytes with {@link ChatRequestBodyWriter}.
+ *
+ * Run with {@code -prof gc} to see allocation per request ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBodyBenchmark {
+
+    private static final List<String> STOP = List.of("###", "\nUser:", "\nAssistant:");
+
+    @Param({"10", "100", "1000"})
+    int historySize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ChatRequestBodyWriter writer = new ChatRequestBodyWriter("default", 0.7, 512, STOP);
+    private Message system;
+    private List<Message> history;
+
+    @Setup
+    public void createHistory() {
+        system = new Message("system", "You are a financial analyst agent.\n\nThe user has shared the following preferences:\n- dark mode");
+        history = new ArrayList<>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            String role = i % 2 == 0 ? "user" : "assistant";
+            history.add(new Message(role, "Message " + i + ": the revenue for Q" + (i % 4 + 1)
+                    + " was $" + (500_000 + i) + " and \"expenses\" were tracked separately. "
+                    + "Operating costs rose in line with headcount, while marketing spend was flat "
+                    + "quarter over quarter. Please keep the answer short and format it as JSON "
+                    + "with the fields revenue, expenses and netProfit, rounded to whole dollars."));
+        }
+        // messages are encoded once when first sent; later turns reuse the bytes
+        writer.write(system, history, false);
+    }
+
+    @Benchmark
+    public byte[] jacksonRequest() throws Exception {
+        List<Message> messages = new ArrayList<>();
+        messages.add(system);
+        messages.addAll(history);
+        return objectMapper.writeValueAsBytes(
+                new OpenAiChatRequest("default", messages, 0.7, 512, STOP, false));
+    }
+
+    @Benchmark
+    public int splicedBody() {
+        DataBuffer buffer = writer.write(system, history, false).toDataBuffer();
+        int length = buffer.readableByteCount();
+        DataBufferUtils.release(buffer);
+        return length;
+    }
+}
@@ -0,0 +1,107 @@
+package com.agentflow.benchmark;
+
+import com.agentflow.dto.OpenAiStreamChunk;
+import com.agentflow.services.SseContentParser;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpInputMessage;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.codec.ServerSentEventHttpMessageReader;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a 500-token chat-completions stream: the previous path
+ * ({@code ServerSentEvent<OpenAiStreamChunk>} via Spring's SSE reader and Jackson)
+ * against {@link SseContentParser}. The body arrives in network-sized chunks
+ * that do not line up with events.
+ *
+ * Run with {@code -prof gc} to compare allocation per stream.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SseDecodingBenchmark {
+
+    private static final int TOKENS = 500;
+    private static final ResolvableType EVENT_TYPE =
+            ResolvableType.forClassWithGenerics(ServerSentEvent.class, OpenAiStreamChunk.class);
+
+    @Param({"64", "1460"})
+    int chunkSize;
+
+    private final ServerSentEventHttpMessageReader reader = new ServerSentEventHttpMessageReader(new Jackson2JsonDecoder());
+    private final List<byte[]> chunks = new ArrayList<>();
+
+    @Setup
+    public void createStream() {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < TOKENS; i++) {
+            body.append("data: {\"choices\":[{\"finish_reason\":null,\"index\":0,\"delta\":{\"content\":\" token")
+                    .append(i).append("\"}}],\"created\":1718000000,\"id\":\"chatcmpl-abc123\",")
+                    .append("\"model\":\"default\",\"object\":\"chat.completion.chunk\"}\n\n");
+        }
+        // no [DONE] marker: the Jackson path tries to decode it as a chunk and fails
+
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            byte[] chunk = new byte[Math.min(chunkSize, bytes.length - i)];
+            System.arraycopy(bytes, i, chunk, 0, chunk.length);
+            chunks.add(chunk);
+        }
+    }
+
+    @Benchmark
+    public Long springSseJackson() {
+        return reader.read(EVENT_TYPE, input(), Collections.emptyMap())
+                .mapNotNull(event -> {
+                    OpenAiStreamChunk chunk = (OpenAiStreamChunk) ((ServerSentEvent<?>) event).data();
+                    if (chunk != null && chunk.choices() != null && !chunk.choices().isEmpty()) {
+                        OpenAiStreamChunk.Delta delta = chunk.choices().get(0).delta();
+                        if (delta != null) {
+                            return delta.content();
+                        }
+                    }
+                    return null;
+                })
+                .count()
+                .block();
+    }
+
+    @Benchmark
+    public Long byteParser() {
+        return SseContentParser.decode(input().getBody(), true)
+                .count()
+                .block();
+    }
+
+    private ReactiveHttpInputMessage input() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.TEXT_EVENT_STREAM);
+        Flux<DataBuffer> body = Flux.fromIterable(chunks).map(DefaultDataBufferFactory.sharedInstance::wrap);
+        return new ReactiveHttpInputMessage() {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return body;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        };
+    }
+}
@@ -0,0 +1,205 @@
+package com.agentflow.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time from launching AgentFlow to its first successful {@code GET /api/conversations},
+ * for the default build against the {@code fast-startup} one:
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.agentflow.benchmark.StartupBenchmark \
+ *     [--baseline "java -jar target/agent-flow-0.0.1-SNAPSHOT-exec.jar"] \
+ *     [--optimized "java -XX:SharedArchiveFile=target/app.jsa -Dspring.aot.enabled=true -jar target/agent-flow-0.0.1-SNAPSHOT.jar"] \
+ *     [--runs 5] [--port 18100] [--conversations 200] [--messages 20] [--timeout-s 120] [--out startup.json]
+ * </pre>
+ *
+ * Both commands are split on whitespace and get the port and a file-backed
+ * conversation store appended, pre-filled with {@code conversations}
+ * conversations of {@code messages} messages, so loading them is part of the
+ * measured startup. Runs alternate between the two commands so that drift on
+ * the machine affects both alike. See the README for building the optimized jar
+ * and its class data sharing archive.
+ */
+public final class StartupBenchmark {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+
+    private final Map<String, List<String>> commands = new LinkedHashMap<>();
+    private final int runs;
+    private final int port;
+    private final int conversations;
+    private final int messages;
+    private final Duration timeout;
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    StartupBenchmark(CliOptions options) {
+        commands.put("baseline", split(options.string("baseline",
+                "java -jar target/agent-flow-0.0.1-SNAPSHOT-exec.jar")));
+        commands.put("optimized", split(options.string("optimized",
+                "java -XX:SharedArchiveFile=target/app.jsa -Dspring.aot.enabled=true -jar target/agent-flow-0.0.1-SNAPSHOT.jar")));
+        this.runs = options.integer("runs", 5);
+        this.port = options.integer("port", 18100);
+        this.conversations = options.integer("conversations", 200);
+        this.messages = options.integer("messages", 20);
+        this.timeout = Duration.ofSeconds(options.integer("timeout-s", 120));
+    }
+
+    public static void main(String[] args) throws Exception {
+        CliOptions options = new CliOptions(args);
+        String out = options.string("out", null);
+        StartupBenchmark benchmark = new StartupBenchmark(options);
+        options.requireAllUsed();
+
+        Map<String, Object> report = benchmark.run();
+        System.out.println(benchmark.objectMapper.writeValueAsString(report));
+        if (out != null) {
+            benchmark.objectMapper.writeValue(new File(out), report);
+        }
+    }
+
+    Map<String, Object> run() throws Exception {
+        Path dataDir = Files.createTempDirectory("agentflow-startup");
+        try {
+            writeConversations(dataDir.resolve("conversations"));
+            Map<String, List<Long>> startups = new LinkedHashMap<>();
+            commands.keySet().forEach(name -> startups.put(name, new ArrayList<>()));
+            for (int run = 0; run < runs; run++) {
+                for (Map.Entry<String, List<String>> command : commands.entrySet()) {
+                    long nanos = startOnce(command.getValue(), dataDir);
+                    startups.get(command.getKey()).add(nanos);
+                    System.err.printf("%s run %d: %.0f ms%n", command.getKey(), run + 1, nanos / 1e6);
+                }
+            }
+            return report(startups);
+        } finally {
+            deleteRecursively(dataDir);
+        }
+    }
+
+    /**
+     * Launches the command and waits for the first successful response; returns the time that took.
+     */
+    private long startOnce(List<String> command, Path dataDir) throws IOException, InterruptedException {
+        List<String> args = new ArrayList<>(command);
+        args.add("--server.port=" + port);
+        args.add("--memory.type=file");
+        args.add("--memory.data-dir=" + dataDir);
+        Path log = Files.createTempFile("agentflow-startup", ".log");
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/conversations"))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(args).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            long deadline = start + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Exited with status " + process.exitValue() + ", see " + log);
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        long elapsed = System.nanoTime() - start;
+                        Files.delete(log);
+                        return elapsed;
+                    }
+                } catch (IOException notListeningYet) {
+                    // keep polling
+                }
+                Thread.sleep(POLL_INTERVAL.toMillis());
+            }
+            throw new IllegalStateException("No successful response within " + timeout + ", see " + log);
+        } finally {
+            stop(process);
+        }
+    }
+
+    private static void stop(Process process) throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    /**
+     * Conversation files in the format {@code FileConversationMemory} reads.
+     */
+    private void writeConversations(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        List<Map<String, String>> history = new ArrayList<>();
+        for (int i = 0; i < messages; i++) {
+            history.add(Map.of("role", i % 2 == 0 ? "user" : "assistant",
+                    "content", "Message " + i + " about the quarterly revenue report and the margin outlook."));
+        }
+        for (int i = 0; i < conversations; i++) {
+            String id = "startup-" + i;
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("id", id);
+            data.put("systemPrompt", "You are a financial analyst agent.");
+            data.put("createdAt", Instant.now().toString());
+            data.put("updatedAt", Instant.now().toString());
+            data.put("messages", Collections.unmodifiableList(history));
+            objectMapper.writeValue(dir.resolve(id + ".json").toFile(), data);
+        }
+    }
+
+    private Map<String, Object> report(Map<String, List<Long>> startups) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("runs", runs);
+        report.put("conversations", conversations);
+        report.put("messagesPerConversation", messages);
+        Map<String, Double> medians = new LinkedHashMap<>();
+        startups.forEach((name, nanos) -> {
+            long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("command", String.join(" ", commands.get(name)));
+            summary.put("p50", millis(sorted[(sorted.length - 1) / 2]));
+            summary.put("min", millis(sorted[0]));
+            summary.put("max", millis(sorted[sorted.length - 1]));
+            summary.put("mean", millis((long) Arrays.stream(sorted).average().orElse(0)));
+            report.put(name + "StartupMs", summary);
+            medians.put(name, millis(sorted[(sorted.length - 1) / 2]));
+        });
+        report.put("speedup", Math.round(medians.get("baseline") / medians.get("optimized") * 100) / 100.0);
+        return report;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1e5) / 10.0;
+    }
+
+    private static List<String> split(String command) {
+        return List.of(command.trim().split("\\s+"));
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
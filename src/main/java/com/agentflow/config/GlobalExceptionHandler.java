@@ -1,5 +1,7 @@
 package com.agentflow.config;
 
+import com.agentflow.services.LlmRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -24,6 +26,18 @@ public class GlobalExceptionHandler {
                 ));
     }
 
+    @ExceptionHandler(LlmRejectedException.class)
+    public ResponseEntity<Map<String, Object>> handleLlmRejected(LlmRejectedException e) {
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                .body(Map.of(
+                        "timestamp", LocalDateTime.now().toString(),
+                        "error", e.getStatus().toString(),
+                        "message", e.getMessage(),
+                        "retryAfterSeconds", e.getRetryAfter().toSeconds()
+                ));
+    }
+
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity<Map<String, Object>> handleResponseStatusException(ResponseStatusException e) {
         return ResponseEntity.status(e.getStatusCode())
@@ -1,8 +1,11 @@
 package com.agentflow.config;
 
+import com.agentflow.memory.Conversation;
 import com.agentflow.memory.ConversationMemory;
 import com.agentflow.memory.FileConversationMemory;
 import com.agentflow.memory.InMemoryConversationMemory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -17,6 +20,9 @@ import org.springframework.context.annotation.Primary;
  * Supported values:
  *   - "in-memory" (default): Volatile, fast, good for development.
  *   - "file":                Persistent, JSON-based, survives restarts.
+ *
+ * Either way, {@code agentflow.memory.conversations} and
+ * {@code agentflow.memory.messages} gauge how much the memory retains.
  */
 @Configuration
 public class MemoryConfig {
@@ -27,17 +33,39 @@ public class MemoryConfig {
     @Primary
     public ConversationMemory conversationMemory(
             @Value("${memory.type:in-memory}") String memoryType,
-            @Value("${memory.data-dir:./data}") String dataDir) {
+            @Value("${memory.data-dir:./data}") String dataDir,
+            MeterRegistry meterRegistry) {
 
-        return switch (memoryType.toLowerCase()) {
+        ConversationMemory memory = switch (memoryType.toLowerCase()) {
             case "file" -> {
                 logger.info("Using file-based ConversationMemory (data-dir={})", dataDir);
-                yield new FileConversationMemory(dataDir);
+                yield new FileConversationMemory(dataDir, meterRegistry);
             }
             default -> {
                 logger.info("Using in-memory ConversationMemory");
                 yield new InMemoryConversationMemory();
             }
         };
+        String store = memory instanceof FileConversationMemory ? "file" : "in-memory";
+        Gauge.builder("agentflow.memory.conversations", memory, m -> m.listConversations().size())
+                .description("Conversations held by the conversation memory")
+                .tag("store", store)
+                .register(meterRegistry);
+        Gauge.builder("agentflow.memory.messages", memory, MemoryConfig::retainedMessages)
+                .description("Messages retained across all conversations")
+                .tag("store", store)
+                .register(meterRegistry);
+        return memory;
+    }
+
+    /**
+     * Computed when the gauge is read, not on the chat path.
+     */
+    private static double retainedMessages(ConversationMemory memory) {
+        long messages = 0;
+        for (String id : memory.listConversations()) {
+            messages += memory.getConversation(id).map(Conversation::messageCount).orElse(0);
+        }
+        return messages;
     }
 }
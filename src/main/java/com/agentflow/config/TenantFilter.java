@@ -0,0 +1,62 @@
+package com.agentflow.config;
+
+import com.agentflow.services.TenantContext;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Identifies the tenant of each request. An {@code X-API-Key} header is mapped
+ * through {@code tenants.api-keys}; an unknown key is rejected. Without a key,
+ * {@code X-Tenant-Id} is used if trusted, otherwise the default tenant.
+ */
+@Component
+public class TenantFilter extends OncePerRequestFilter {
+
+    public static final String API_KEY_HEADER = "X-API-Key";
+    public static final String TENANT_HEADER = "X-Tenant-Id";
+
+    private static final Pattern TENANT_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private final TenantProperties tenantProperties;
+
+    public TenantFilter(TenantProperties tenantProperties) {
+        this.tenantProperties = tenantProperties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String tenant = TenantContext.DEFAULT_TENANT;
+
+        String apiKey = request.getHeader(API_KEY_HEADER);
+        String tenantHeader = request.getHeader(TENANT_HEADER);
+        if (apiKey != null) {
+            tenant = tenantProperties.apiKeys().get(apiKey);
+            if (tenant == null) {
+                response.sendError(HttpStatus.UNAUTHORIZED.value(), "Unknown API key");
+                return;
+            }
+        } else if (tenantHeader != null && tenantProperties.trustTenantHeader()) {
+            if (!TENANT_ID.matcher(tenantHeader).matches()) {
+                response.sendError(HttpStatus.BAD_REQUEST.value(), "Invalid " + TENANT_HEADER);
+                return;
+            }
+            tenant = tenantHeader;
+        }
+
+        TenantContext.set(tenant);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            TenantContext.clear();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.agentflow.config;
+
+import com.agentflow.services.TenantContext;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/**
+ * Tenant identification and per-tenant scheduling limits.
+ *
+ * <pre>
+ * tenants.api-keys.&lt;key&gt;=&lt;tenant&gt;
+ * tenants.defaults.weight=1
+ * tenants.overrides.&lt;tenant&gt;.max-concurrent=2
+ * tenants.overrides.&lt;tenant&gt;.tokens-per-minute=20000
+ * </pre>
+ *
+ * @param trustTenantHeader Whether X-Tenant-Id is accepted when no API key is sent.
+ *                          Off by default: only enable it behind a trusted proxy that
+ *                          sets the header and strips it from client requests
+ * @param apiKeys           API key to tenant id
+ * @param defaults          Limits for tenants without an override
+ * @param overrides         Per-tenant limits
+ */
+@ConfigurationProperties(prefix = "tenants")
+public record TenantProperties(
+        @DefaultValue("false") boolean trustTenantHeader,
+        @DefaultValue Map<String, String> apiKeys,
+        @DefaultValue Limits defaults,
+        @DefaultValue Map<String, Limits> overrides) {
+
+    /**
+     * @param weight          Share of LLM capacity relative to other tenants
+     * @param maxConcurrent   Upstream calls the tenant may have in flight (0 = no per-tenant cap)
+     * @param tokensPerMinute Prompt plus completion tokens per minute (0 = unlimited)
+     */
+    public record Limits(
+            @DefaultValue("1") double weight,
+            @DefaultValue("0") int maxConcurrent,
+            @DefaultValue("0") long tokensPerMinute) {
+    }
+
+    public Limits limitsFor(String tenant) {
+        return overrides.getOrDefault(tenant, defaults);
+    }
+
+    /**
+     * Whether the tenant is the default one or named in the configuration (an
+     * API key's tenant or an override), as opposed to an id a client sent.
+     */
+    public boolean isConfigured(String tenant) {
+        return TenantContext.DEFAULT_TENANT.equals(tenant) || overrides.containsKey(tenant)
+                || apiKeys.containsValue(tenant);
+    }
+}
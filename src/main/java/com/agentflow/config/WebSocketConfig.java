@@ -0,0 +1,101 @@
+package com.agentflow.config;
+
+import com.agentflow.rest.ChatSocketHandler;
+import com.agentflow.services.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Map;
+
+/**
+ * Registers the multiplexed chat WebSocket at {@code /api/ws}. The handshake
+ * passes through {@link TenantFilter}; its tenant is kept for the connection.
+ * Browsers cannot set headers on a WebSocket, so the API key can also be
+ * passed as {@code ?api_key=}. Handshakes from pages on other origins are
+ * refused unless listed in {@code chat.ws.allowed-origins}.
+ * Skipped when running without a web server (command-line transfers).
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    static final String API_KEY_PARAMETER = "api_key";
+
+    private final ChatSocketHandler chatSocketHandler;
+    private final TenantProperties tenantProperties;
+    private final String[] allowedOrigins;
+
+    public WebSocketConfig(
+            ChatSocketHandler chatSocketHandler,
+            TenantProperties tenantProperties,
+            @Value("${chat.ws.allowed-origins:}") String[] allowedOrigins) {
+        this.chatSocketHandler = chatSocketHandler;
+        this.tenantProperties = tenantProperties;
+        this.allowedOrigins = allowedOrigins;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        // no origins listed: same-origin pages and non-browser clients only
+        registry.addHandler(chatSocketHandler, "/api/ws")
+                .addInterceptors(new TenantHandshakeInterceptor(tenantProperties))
+                .setAllowedOrigins(allowedOrigins);
+    }
+
+    @Bean
+    public ServletServerContainerFactoryBean webSocketContainer(
+            @Value("${chat.ws.max-message-bytes:65536}") int maxMessageBytes) {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(maxMessageBytes);
+        return container;
+    }
+
+    private static final class TenantHandshakeInterceptor implements HandshakeInterceptor {
+
+        private final TenantProperties tenantProperties;
+
+        TenantHandshakeInterceptor(TenantProperties tenantProperties) {
+            this.tenantProperties = tenantProperties;
+        }
+
+        /**
+         * Takes the tenant {@link TenantFilter} found, unless the request has no
+         * {@code X-API-Key} header and an {@code api_key} query parameter
+         * instead; an unknown key is refused like the header.
+         */
+        @Override
+        public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                       WebSocketHandler wsHandler, Map<String, Object> attributes) {
+            String tenant = TenantContext.current();
+            String apiKey = UriComponentsBuilder.fromUri(request.getURI()).build()
+                    .getQueryParams().getFirst(API_KEY_PARAMETER);
+            if (apiKey != null && !request.getHeaders().containsKey(TenantFilter.API_KEY_HEADER)) {
+                tenant = tenantProperties.apiKeys().get(apiKey);
+                if (tenant == null) {
+                    response.setStatusCode(HttpStatus.UNAUTHORIZED);
+                    return false;
+                }
+            }
+            attributes.put(ChatSocketHandler.TENANT_ATTRIBUTE, tenant);
+            return true;
+        }
+
+        @Override
+        public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Exception exception) {
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.agentflow.dto;
+
+/**
+ * One turn of a batch chat request.
+ */
+public record BatchChatItem(String conversationId, String message) {
+}
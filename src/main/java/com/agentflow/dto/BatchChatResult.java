@@ -0,0 +1,18 @@
+package com.agentflow.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one batch item, streamed back as soon as it completes.
+ *
+ * @param index Position of the item in the request, starting at 0
+ * @param error Why the item failed; null on success, in which case {@code response} is set
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchChatResult(
+        long index,
+        String conversationId,
+        String response,
+        String error,
+        long durationMs) {
+}
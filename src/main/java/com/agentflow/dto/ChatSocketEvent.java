@@ -0,0 +1,36 @@
+package com.agentflow.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A server frame on the chat WebSocket.
+ *
+ * @param type   {@code delta}, {@code done}, {@code cancelled} or {@code error}
+ * @param id     Event id of a delta, usable as {@code lastEventId} to resume
+ * @param status HTTP-equivalent status of an error
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ChatSocketEvent(
+        String type,
+        String stream,
+        String id,
+        String data,
+        String error,
+        Integer status) {
+
+    public static ChatSocketEvent delta(String stream, StreamEvent event) {
+        return new ChatSocketEvent("delta", stream, event.id(), event.data(), null, null);
+    }
+
+    public static ChatSocketEvent done(String stream) {
+        return new ChatSocketEvent("done", stream, null, null, null, null);
+    }
+
+    public static ChatSocketEvent cancelled(String stream) {
+        return new ChatSocketEvent("cancelled", stream, null, null, null, null);
+    }
+
+    public static ChatSocketEvent error(String stream, int status, String error) {
+        return new ChatSocketEvent("error", stream, null, null, error, status);
+    }
+}
@@ -0,0 +1,20 @@
+package com.agentflow.dto;
+
+/**
+ * A client frame on the chat WebSocket.
+ *
+ * @param type    {@code send} (new turn), {@code stream} (attach to a running or
+ *                recent reply), {@code ack} (grant more frames) or {@code cancel}
+ * @param stream  Client-chosen id of the stream the frame is about
+ * @param credits Frames the client can take: the initial window for
+ *                send/stream, the increment for ack
+ */
+public record ChatSocketRequest(
+        String type,
+        String stream,
+        String conversationId,
+        String message,
+        String lastEventId,
+        Boolean coalesce,
+        Integer credits) {
+}
@@ -0,0 +1,15 @@
+package com.agentflow.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One conversation as a line of an NDJSON export.
+ */
+public record ConversationRecord(
+        String id,
+        String systemPrompt,
+        Instant createdAt,
+        Instant updatedAt,
+        List<Message> messages) {
+}
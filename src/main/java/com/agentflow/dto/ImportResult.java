@@ -0,0 +1,17 @@
+package com.agentflow.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one imported line, streamed back in input order.
+ *
+ * @param line  Line number in the input, starting at 1; every line up to it has been handled
+ * @param id    ID of the imported conversation; null if the line could not be imported
+ * @param error Why the line was not imported; null on success
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ImportResult(
+        long line,
+        String id,
+        String error) {
+}
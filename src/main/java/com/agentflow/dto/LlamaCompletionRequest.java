@@ -1,8 +1,17 @@
 package com.agentflow.dto;
 
+import java.util.List;
+
+/**
+ * Request body for the native llama.cpp /completion endpoint.
+ * The prompt is already rendered with the model's chat template.
+ */
 public record LlamaCompletionRequest(
         String prompt,
         int n_predict,
         double temperature,
-        String[] stop
+        List<String> stop,
+        int n_keep,
+        boolean cache_prompt,
+        boolean stream
 ) {}
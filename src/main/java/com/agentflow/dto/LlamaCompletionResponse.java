@@ -1,5 +1,12 @@
 package com.agentflow.dto;
 
+/**
+ * Response body (or streamed chunk) of the native llama.cpp /completion endpoint.
+ */
 public record LlamaCompletionResponse(
-        String content
+        String content,
+        Boolean stop,
+        Integer tokens_cached,
+        Integer tokens_evaluated,
+        Integer tokens_predicted
 ) {}
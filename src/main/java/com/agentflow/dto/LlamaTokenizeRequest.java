@@ -0,0 +1,7 @@
+package com.agentflow.dto;
+
+/**
+ * Request body for the llama.cpp /tokenize endpoint.
+ */
+public record LlamaTokenizeRequest(String content) {
+}
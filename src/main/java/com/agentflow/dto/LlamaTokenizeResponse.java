@@ -0,0 +1,9 @@
+package com.agentflow.dto;
+
+import java.util.List;
+
+/**
+ * Response body for the llama.cpp /tokenize endpoint.
+ */
+public record LlamaTokenizeResponse(List<Integer> tokens) {
+}
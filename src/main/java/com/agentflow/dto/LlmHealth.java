@@ -0,0 +1,29 @@
+package com.agentflow.dto;
+
+import java.time.Instant;
+
+/**
+ * Last known state of the LLM backend, as seen by the background prober.
+ *
+ * @param status     UP, LOADING (model still loading), DOWN or UNKNOWN (not probed yet)
+ * @param slotsIdle  Idle slots, or -1 if the server does not expose /slots
+ * @param slotsTotal Total slots, or -1 if unknown
+ * @param checkedAt  When the probe ran (null before the first probe)
+ * @param error      Probe failure, if any
+ */
+public record LlmHealth(
+        String status,
+        int slotsIdle,
+        int slotsTotal,
+        Instant checkedAt,
+        String error) {
+
+    public static final String UP = "UP";
+    public static final String LOADING = "LOADING";
+    public static final String DOWN = "DOWN";
+    public static final String UNKNOWN = "UNKNOWN";
+
+    public boolean isUp() {
+        return UP.equals(status);
+    }
+}
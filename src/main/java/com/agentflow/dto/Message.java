@@ -1,4 +1,111 @@
 package com.agentflow.dto;
 
-public record Message(String role, String content) {
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+/**
+ * A single chat message.
+ *
+ * Behaves like a record (value equality, {@code role()}/{@code content()} accessors),
+ * but is a class so it can keep its JSON encoding: messages are sent to the LLM
+ * on every turn of their conversation, and encoding them once avoids
+ * re-serializing the whole history each time.
+ *
+ * A reply cut short by a client disconnect is marked {@code truncated}. The
+ * mark is stored with the conversation and returned by the API, but is not part
+ * of {@link #toJson()}, so the model never sees it.
+ */
+public final class Message {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final String role;
+    private final String content;
+    private final boolean truncated;
+    private volatile byte[] json;
+
+    public Message(String role, String content) {
+        this(role, content, false);
+    }
+
+    @JsonCreator
+    public Message(@JsonProperty("role") String role, @JsonProperty("content") String content,
+                   @JsonProperty("truncated") boolean truncated) {
+        this.role = role;
+        this.content = content;
+        this.truncated = truncated;
+    }
+
+    @JsonProperty("role")
+    public String role() {
+        return role;
+    }
+
+    @JsonProperty("content")
+    public String content() {
+        return content;
+    }
+
+    @JsonProperty("truncated")
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean truncated() {
+        return truncated;
+    }
+
+    /**
+     * Returns the UTF-8 JSON encoding {@code {"role":...,"content":...}}.
+     * Computed on first use and cached; callers must not modify the returned array.
+     */
+    public byte[] toJson() {
+        byte[] bytes = json;
+        if (bytes == null) {
+            bytes = encode();
+            json = bytes;
+        }
+        return bytes;
+    }
+
+    private byte[] encode() {
+        int estimate = 32 + (content != null ? content.length() : 0);
+        try (ByteArrayBuilder out = new ByteArrayBuilder(estimate);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("role", role);
+            generator.writeStringField("content", content);
+            generator.writeEndObject();
+            generator.flush();
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not encode message", e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Message other
+                && Objects.equals(role, other.role)
+                && Objects.equals(content, other.content)
+                && truncated == other.truncated;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(role, content, truncated);
+    }
+
+    @Override
+    public String toString() {
+        return "Message[role=" + role + ", content=" + content + (truncated ? ", truncated" : "") + "]";
+    }
 }
@@ -10,11 +10,18 @@ public record OpenAiChatResponse(
     String object,
     Long created,
     String model,
-    List<Choice> choices
+    List<Choice> choices,
+    Usage usage
 ) {
     public record Choice(
         Message message,
         String finish_reason,
         Integer index
     ) {}
+
+    public record Usage(
+        int prompt_tokens,
+        int completion_tokens,
+        int total_tokens
+    ) {}
 }
@@ -0,0 +1,25 @@
+package com.agentflow.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A chat turn that took longer than the slow-turn threshold.
+ *
+ * @param outcome      success, error or cancelled
+ * @param historySize  Messages in the history sent to the model
+ * @param historyChars Characters of message content in that history
+ * @param stageMillis  Time per stage, in the order the stages ran
+ */
+public record SlowTurn(
+        String conversationId,
+        String tenant,
+        boolean streaming,
+        Instant startedAt,
+        String outcome,
+        double totalMillis,
+        int historySize,
+        long historyChars,
+        long replyChars,
+        Map<String, Double> stageMillis) {
+}
@@ -0,0 +1,14 @@
+package com.agentflow.dto;
+
+/**
+ * One chunk of a streamed reply.
+ *
+ * @param id       SSE event id ({@code <generationId>-<sequence>}), usable as {@code Last-Event-ID}
+ * @param sequence Position of the chunk in its generation, starting at 1
+ * @param data     The text chunk
+ */
+public record StreamEvent(
+        String id,
+        long sequence,
+        String data) {
+}
@@ -0,0 +1,14 @@
+package com.agentflow.dto;
+
+/**
+ * Token usage of a tenant since startup.
+ *
+ * @param tokensAvailable Tokens left in the current rate window, or -1 if unlimited
+ */
+public record TenantUsage(
+        String tenant,
+        long requests,
+        long promptTokens,
+        long completionTokens,
+        long tokensAvailable) {
+}
@@ -13,6 +13,14 @@ public interface LlmClient {
      */
     String generate(String systemPrompt, List<Message> history);
 
+    /**
+     * Same as {@link #generate(String, List)}, but identifies the conversation
+     * so implementations can reuse per-conversation state such as a rendered prompt prefix.
+     */
+    default String generate(String conversationId, String systemPrompt, List<Message> history) {
+        return generate(systemPrompt, history);
+    }
+
     /**
      * Raw generate without injecting user preferences.
      * Used for internal operations (e.g. summarization).
@@ -23,4 +31,19 @@ public interface LlmClient {
      * Stream a response token-by-token using SSE.
      */
     Flux<String> generateStream(String systemPrompt, List<Message> history);
+
+    /**
+     * Conversation-aware variant of {@link #generateStream(String, List)}.
+     */
+    default Flux<String> generateStream(String conversationId, String systemPrompt, List<Message> history) {
+        return generateStream(systemPrompt, history);
+    }
+
+    /**
+     * Throws right away if a streaming call made now would be rejected (quota,
+     * full queue, open circuit), so callers can fail before they start
+     * responding. Accepts everything by default.
+     */
+    default void checkAvailable() {
+    }
 }
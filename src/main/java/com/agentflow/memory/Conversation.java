@@ -23,6 +23,17 @@ public class Conversation {
         this.updatedAt = this.createdAt;
     }
 
+    /**
+     * Restores a saved conversation with its messages and timestamps.
+     */
+    public Conversation(String id, String systemPrompt, List<Message> messages, Instant createdAt, Instant updatedAt) {
+        this.id = id;
+        this.systemPrompt = systemPrompt;
+        this.messages = new CopyOnWriteArrayList<>(messages);
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
     public String getId() {
         return id;
     }
@@ -35,6 +46,10 @@ public class Conversation {
         return Collections.unmodifiableList(new ArrayList<>(messages));
     }
 
+    public int messageCount() {
+        return messages.size();
+    }
+
     public synchronized void addMessage(Message message) {
         messages.add(message);
         updatedAt = Instant.now();
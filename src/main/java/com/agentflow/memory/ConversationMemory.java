@@ -55,6 +55,14 @@ public interface ConversationMemory {
      */
     void deleteConversation(String conversationId);
 
+    /**
+     * Stores a conversation as given, keeping its ID, messages and timestamps.
+     * Replaces any conversation with the same ID.
+     * 
+     * @param conversation The conversation to store
+     */
+    void importConversation(Conversation conversation);
+
     /**
      * Lists all conversation IDs.
      * 
@@ -4,6 +4,9 @@ import com.agentflow.dto.Message;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,14 +15,18 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 /**
  * A file-backed implementation of ConversationMemory.
  * Each conversation is stored as a JSON file in the configured data directory.
  * Conversations persist across server restarts.
+ * The time taken by each file write is recorded as {@code agentflow.memory.persist}.
  */
 public class FileConversationMemory implements ConversationMemory {
 
@@ -28,9 +35,18 @@ public class FileConversationMemory implements ConversationMemory {
     private final ConcurrentHashMap<String, Conversation> conversations = new ConcurrentHashMap<>();
     private final Path dataDir;
     private final ObjectMapper objectMapper;
+    private final Timer writes;
 
     public FileConversationMemory(String dataDirPath) {
+        this(dataDirPath, new SimpleMeterRegistry());
+    }
+
+    public FileConversationMemory(String dataDirPath, MeterRegistry meterRegistry) {
         this.dataDir = Paths.get(dataDirPath, "conversations");
+        this.writes = Timer.builder("agentflow.memory.persist")
+                .description("Time to write a conversation to disk")
+                .tag("store", "file")
+                .register(meterRegistry);
         this.objectMapper = new ObjectMapper();
         this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
         initializeDataDir();
@@ -62,22 +78,34 @@ public class FileConversationMemory implements ConversationMemory {
             Map<String, Object> data = objectMapper.readValue(file.toFile(), new TypeReference<>() {});
             String id = (String) data.get("id");
             String systemPrompt = (String) data.get("systemPrompt");
-            List<Map<String, String>> rawMessages = (List<Map<String, String>>) data.get("messages");
+            List<Map<String, Object>> rawMessages = (List<Map<String, Object>>) data.get("messages");
 
-            Conversation conversation = new Conversation(id, systemPrompt);
+            List<Message> messages = new ArrayList<>();
             if (rawMessages != null) {
-                for (Map<String, String> msg : rawMessages) {
-                    conversation.addMessage(new Message(msg.get("role"), msg.get("content")));
+                for (Map<String, Object> msg : rawMessages) {
+                    messages.add(new Message((String) msg.get("role"), (String) msg.get("content"),
+                            Boolean.TRUE.equals(msg.get("truncated"))));
                 }
             }
-            conversations.put(id, conversation);
+            Instant createdAt = parseInstant(data.get("createdAt"), Instant.now());
+            Instant updatedAt = parseInstant(data.get("updatedAt"), createdAt);
+            conversations.put(id, new Conversation(id, systemPrompt, messages, createdAt, updatedAt));
         } catch (IOException e) {
             logger.warn("Failed to load conversation from {}: {}", file, e.getMessage());
         }
     }
 
+    private static Instant parseInstant(Object value, Instant fallback) {
+        try {
+            return value instanceof String text ? Instant.parse(text) : fallback;
+        } catch (DateTimeParseException e) {
+            return fallback;
+        }
+    }
+
     private void saveConversation(Conversation conversation) {
         Path file = dataDir.resolve(conversation.getId() + ".json");
+        long start = System.nanoTime();
         try {
             Map<String, Object> data = new LinkedHashMap<>();
             data.put("id", conversation.getId());
@@ -85,15 +113,19 @@ public class FileConversationMemory implements ConversationMemory {
             data.put("createdAt", conversation.getCreatedAt().toString());
             data.put("updatedAt", conversation.getUpdatedAt().toString());
 
-            List<Map<String, String>> messages = new ArrayList<>();
+            List<Map<String, Object>> messages = new ArrayList<>();
             for (Message msg : conversation.getMessages()) {
-                messages.add(Map.of("role", msg.role(), "content", msg.content()));
+                messages.add(msg.truncated()
+                        ? Map.of("role", msg.role(), "content", msg.content(), "truncated", true)
+                        : Map.of("role", msg.role(), "content", msg.content()));
             }
             data.put("messages", messages);
 
             objectMapper.writeValue(file.toFile(), data);
         } catch (IOException e) {
             logger.error("Failed to save conversation {}: {}", conversation.getId(), e.getMessage());
+        } finally {
+            writes.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
 
@@ -156,6 +188,13 @@ public class FileConversationMemory implements ConversationMemory {
         }
     }
 
+    @Override
+    public void importConversation(Conversation conversation) {
+        conversations.put(conversation.getId(), conversation);
+        saveConversation(conversation);
+        logger.debug("Imported conversation {}", conversation.getId());
+    }
+
     @Override
     public List<String> listConversations() {
         return new ArrayList<>(conversations.keySet());
@@ -71,6 +71,12 @@ public class InMemoryConversationMemory implements ConversationMemory {
         }
     }
 
+    @Override
+    public void importConversation(Conversation conversation) {
+        conversations.put(conversation.getId(), conversation);
+        logger.debug("Imported conversation {}", conversation.getId());
+    }
+
     @Override
     public List<String> listConversations() {
         return new ArrayList<>(conversations.keySet());
@@ -2,6 +2,9 @@ package com.agentflow.memory;
 
 import com.agentflow.dto.Message;
 import com.agentflow.interfaces.LlmClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -19,6 +22,10 @@ import java.util.stream.Collectors;
  *
  * This preserves important context while staying within the model's
  * context window limits.
+ *
+ * Processing time is recorded as {@code agentflow.memory.process}, and each
+ * summarization attempt in {@code agentflow.memory.summarizations}, tagged
+ * {@code outcome=summarized} or {@code fallback} when the history was only trimmed.
  */
 @Component
 public class SummarizingMemory implements MemoryProcessor {
@@ -28,6 +35,9 @@ public class SummarizingMemory implements MemoryProcessor {
     private final int maxMessages;
     private final int summarizeThreshold;
     private final LlmClient llmClient;
+    private final Timer processing;
+    private final Counter summarized;
+    private final Counter summaryFallbacks;
 
     private static final String SUMMARIZE_PROMPT =
             "Summarize the following conversation in 2-3 concise sentences. " +
@@ -37,10 +47,17 @@ public class SummarizingMemory implements MemoryProcessor {
     public SummarizingMemory(
             LlmClient llmClient,
             @Value("${memory.max-messages:20}") int maxMessages,
-            @Value("${memory.summarize-threshold:30}") int summarizeThreshold) {
+            @Value("${memory.summarize-threshold:30}") int summarizeThreshold,
+            MeterRegistry meterRegistry) {
         this.llmClient = llmClient;
         this.maxMessages = maxMessages;
         this.summarizeThreshold = summarizeThreshold;
+        this.processing = Timer.builder("agentflow.memory.process")
+                .description("Time to fit a conversation history into the context window")
+                .tag("processor", "summarizing")
+                .register(meterRegistry);
+        this.summarized = summarizations(meterRegistry, "summarized");
+        this.summaryFallbacks = summarizations(meterRegistry, "fallback");
         logger.info("SummarizingMemory initialized (max-messages={}, summarize-threshold={})",
                 maxMessages, summarizeThreshold);
     }
@@ -53,6 +70,10 @@ public class SummarizingMemory implements MemoryProcessor {
      * @return Processed history with optional summary prepended
      */
     public List<Message> process(List<Message> history) {
+        return processing.record(() -> fit(history));
+    }
+
+    private List<Message> fit(List<Message> history) {
         if (history.size() <= maxMessages) {
             return history;
         }
@@ -85,6 +106,7 @@ public class SummarizingMemory implements MemoryProcessor {
                 logger.info("Generated conversation summary ({} chars) from {} older messages",
                         summary.length(), olderMessages.size());
 
+                summarized.increment();
                 List<Message> result = new ArrayList<>();
                 result.add(new Message("system",
                         "Summary of earlier conversation: " + summary));
@@ -97,6 +119,14 @@ public class SummarizingMemory implements MemoryProcessor {
         }
 
         // Fallback: simple trim
+        summaryFallbacks.increment();
         return new ArrayList<>(recentMessages);
     }
+
+    private static Counter summarizations(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("agentflow.memory.summarizations")
+                .description("Histories that crossed the summarize threshold")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 }
@@ -4,15 +4,32 @@ import com.agentflow.dto.*;
 import com.agentflow.interfaces.LlmClient;
 import com.agentflow.memory.Conversation;
 import com.agentflow.memory.ConversationMemory;
+import com.agentflow.services.BatchChatService;
 import com.agentflow.services.ChatService;
+import com.agentflow.services.CircuitBreaker;
+import com.agentflow.services.ConversationTransfer;
+import com.agentflow.services.LlmHealthProber;
+import com.agentflow.services.ResponseCache;
+import com.agentflow.services.TenantContext;
+import com.agentflow.services.TenantQuotas;
 import com.agentflow.services.UserPreferenceService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -24,23 +41,49 @@ public class AgentController {
     private final ConversationMemory conversationMemory;
     private final UserPreferenceService userPreferenceService;
     private final ChatService chatService;
+    private final ResponseCache responseCache;
+    private final TenantQuotas tenantQuotas;
+    private final LlmHealthProber healthProber;
+    private final CircuitBreaker circuitBreaker;
+    private final BatchChatService batchChatService;
+    private final ConversationTransfer conversationTransfer;
+    private final ObjectReader batchItemReader;
 
     public AgentController(LlmClient llmClient,
                            ConversationMemory conversationMemory,
                            UserPreferenceService userPreferenceService,
-                           ChatService chatService) {
+                           ChatService chatService,
+                           ResponseCache responseCache,
+                           TenantQuotas tenantQuotas,
+                           LlmHealthProber healthProber,
+                           CircuitBreaker circuitBreaker,
+                           BatchChatService batchChatService,
+                           ConversationTransfer conversationTransfer,
+                           ObjectMapper objectMapper) {
         this.llmClient = llmClient;
         this.conversationMemory = conversationMemory;
         this.userPreferenceService = userPreferenceService;
         this.chatService = chatService;
+        this.responseCache = responseCache;
+        this.tenantQuotas = tenantQuotas;
+        this.healthProber = healthProber;
+        this.circuitBreaker = circuitBreaker;
+        this.batchChatService = batchChatService;
+        this.conversationTransfer = conversationTransfer;
+        this.batchItemReader = objectMapper.readerFor(BatchChatItem.class);
     }
 
     // ==================== Backward Compatible Endpoint ====================
 
+    /**
+     * Stateless generation. Replies are served from the response cache when
+     * sampling is deterministic or the request sets {@code "cache": "true"}.
+     */
     @PostMapping("/generate")
     public Map<String, String> generate(@RequestBody Map<String, String> request) {
         String prompt = request.get("prompt");
-        String response = llmClient.generate(prompt);
+        boolean cacheOptIn = Boolean.parseBoolean(request.get("cache"));
+        String response = responseCache.getOrGenerate(prompt, cacheOptIn, () -> llmClient.generate(prompt));
         return Map.of("response", response);
     }
 
@@ -59,6 +102,33 @@ public class AgentController {
         return conversationMemory.listConversations();
     }
 
+    /**
+     * Streams every conversation as NDJSON, ordered by ID. An interrupted export
+     * is resumed by passing the last ID received as {@code after}.
+     */
+    @GetMapping(value = "/conversations/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<String> exportConversations(@RequestParam(value = "after", required = false) String after) {
+        // strings are written as they are, so each line carries its own break
+        return conversationTransfer.export(after).map(line -> line.json() + "\n");
+    }
+
+    /**
+     * Imports conversations from an NDJSON export, read as it is uploaded, and
+     * streams back one result per line in input order. An interrupted import is
+     * resumed by resending the file with the last line number received as {@code skip}.
+     */
+    @PostMapping(value = "/conversations/import",
+            consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<ImportResult> importConversations(HttpServletRequest request,
+                                                  @RequestParam(value = "skip", defaultValue = "0") long skip) {
+        Flux<String> lines = Mono.fromCallable(() -> new BufferedReader(
+                        new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)))
+                .flatMapMany(ConversationTransfer::lines)
+                .subscribeOn(Schedulers.boundedElastic());
+        return conversationTransfer.importLines(lines, skip);
+    }
+
     @GetMapping("/conversations/{id}")
     public Map<String, Object> getConversation(@PathVariable("id") String conversationId) {
         Conversation conversation = conversationMemory.getConversation(conversationId)
@@ -77,11 +147,67 @@ public class AgentController {
         return chatService.chat(conversationId, request.message());
     }
 
+    /**
+     * Runs many chat turns in one call. The body is a JSON array of
+     * {@code {"conversationId", "message"}} items or the same items as NDJSON,
+     * read as it is uploaded. Results are streamed back as NDJSON in completion
+     * order; turns of one conversation run in request order.
+     */
+    @PostMapping(value = "/chat/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchChatResult> batchChat(HttpServletRequest request) {
+        Flux<BatchChatItem> items = Mono.fromCallable(
+                        () -> batchItemReader.<BatchChatItem>readValues(request.getInputStream()))
+                .flatMapMany(iterator -> Flux.fromIterable(() -> iterator))
+                .subscribeOn(Schedulers.boundedElastic());
+        return batchChatService.chat(items);
+    }
+
     // ==================== Streaming Chat Endpoint ====================
 
+    /**
+     * Streams the reply as SSE events with resumable ids. A client that lost the
+     * connection can resend the request with {@code Last-Event-ID} to pick up where
+     * it left off; the message is only generated again if that stream has expired
+     * or the events it missed are no longer buffered.
+     */
     @PostMapping(value = "/conversations/{id}/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<String> chatStream(@PathVariable("id") String conversationId, @RequestBody ChatRequest request) {
-        return chatService.chatStream(conversationId, request.message());
+    public Flux<ServerSentEvent<String>> chatStream(@PathVariable("id") String conversationId,
+                                                    @RequestBody ChatRequest request,
+                                                    @RequestParam(value = "coalesce", required = false) Boolean coalesce,
+                                                    @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        Flux<StreamEvent> events = null;
+        if (lastEventId != null) {
+            events = chatService.resumeStream(conversationId, lastEventId).orElse(null);
+        }
+        if (events == null) {
+            events = chatService.chatStreamEvents(conversationId, request.message(), coalesce);
+        }
+        return events.map(AgentController::toServerSentEvent);
+    }
+
+    /**
+     * Attaches to the conversation's current or most recent stream (EventSource reconnects).
+     */
+    @GetMapping(value = "/conversations/{id}/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> resumeChatStream(@PathVariable("id") String conversationId,
+                                                          @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return chatService.resumeStream(conversationId, lastEventId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No stream to resume"))
+                .map(AgentController::toServerSentEvent);
+    }
+
+    private static ServerSentEvent<String> toServerSentEvent(StreamEvent event) {
+        return ServerSentEvent.builder(event.data()).id(event.id()).build();
+    }
+
+    /**
+     * Token usage of the calling tenant.
+     */
+    @GetMapping("/usage")
+    public TenantUsage usage() {
+        return tenantQuotas.usage(TenantContext.current());
     }
 
     @DeleteMapping("/conversations/{id}")
@@ -92,14 +218,31 @@ public class AgentController {
 
     // ==================== Health Check ====================
 
+    /**
+     * Reports the LLM status cached by the background prober; never calls the backend.
+     */
     @GetMapping("/health")
-    public Map<String, String> health() {
-        try {
-            // fast connectivity check
-            llmClient.generateRaw("ping"); 
-            return Map.of("status", "UP", "llm", "CONNECTED");
-        } catch (Exception e) {
-            return Map.of("status", "DOWN", "llm", "DISCONNECTED", "error", e.getMessage());
+    public Map<String, Object> health() {
+        LlmHealth llm = healthProber.current();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", llm.isUp() ? "UP" : "DOWN");
+        body.put("llm", switch (llm.status()) {
+            case LlmHealth.UP -> "CONNECTED";
+            case LlmHealth.LOADING -> "LOADING";
+            case LlmHealth.UNKNOWN -> "UNKNOWN";
+            default -> "DISCONNECTED";
+        });
+        body.put("circuit", circuitBreaker.state().name());
+        if (llm.slotsTotal() >= 0) {
+            body.put("slotsIdle", llm.slotsIdle());
+            body.put("slotsTotal", llm.slotsTotal());
+        }
+        if (llm.checkedAt() != null) {
+            body.put("checkedAt", llm.checkedAt().toString());
+        }
+        if (llm.error() != null) {
+            body.put("error", llm.error());
         }
+        return body;
     }
 }
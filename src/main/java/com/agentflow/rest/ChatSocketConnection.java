@@ -0,0 +1,181 @@
+package com.agentflow.rest;
+
+import com.agentflow.dto.ChatSocketEvent;
+import com.agentflow.dto.ChatSocketRequest;
+import com.agentflow.dto.StreamEvent;
+import com.agentflow.services.ChatService;
+import com.agentflow.services.LlmRejectedException;
+import com.agentflow.services.TenantContext;
+import org.reactivestreams.Subscription;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The conversation streams multiplexed over one WebSocket connection.
+ *
+ * Each stream is a subscription to {@link ChatService#chatStreamEvents} (or to
+ * a resumed reply) with credit-based flow control: a stream requests only as
+ * many deltas as the client has granted, and {@code ack} frames grant more.
+ * Unread deltas wait in the reply's resume buffer rather than in the socket.
+ * Cancelling a stream, or closing the connection, detaches like a dropped SSE
+ * client: the reply can still be resumed until the resume grace period ends.
+ */
+class ChatSocketConnection {
+
+    private final ChatService chatService;
+    private final String tenant;
+    private final int defaultCredits;
+    private final int maxStreams;
+    private final Consumer<ChatSocketEvent> sender;
+    private final Map<String, ChatStream> streams = new ConcurrentHashMap<>();
+
+    /**
+     * @param sender Writes a frame to the client; called from any thread
+     */
+    ChatSocketConnection(ChatService chatService, String tenant, int defaultCredits, int maxStreams,
+                         Consumer<ChatSocketEvent> sender) {
+        this.chatService = chatService;
+        this.tenant = tenant;
+        this.defaultCredits = defaultCredits;
+        this.maxStreams = maxStreams;
+        this.sender = sender;
+    }
+
+    /**
+     * Handles one client frame. Frames of a connection are delivered one at a time.
+     */
+    void handle(ChatSocketRequest request) {
+        if (request.type() == null || request.stream() == null) {
+            reject(request.stream(), HttpStatus.BAD_REQUEST, "type and stream are required");
+            return;
+        }
+        switch (request.type()) {
+            case "send" -> {
+                if (request.conversationId() == null || request.message() == null) {
+                    reject(request.stream(), HttpStatus.BAD_REQUEST, "conversationId and message are required");
+                    return;
+                }
+                open(request, () -> chatService.chatStreamEvents(
+                        request.conversationId(), request.message(), request.coalesce()));
+            }
+            case "stream" -> {
+                if (request.conversationId() == null) {
+                    reject(request.stream(), HttpStatus.BAD_REQUEST, "conversationId is required");
+                    return;
+                }
+                open(request, () -> chatService.resumeStream(request.conversationId(), request.lastEventId())
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No stream to resume")));
+            }
+            case "ack" -> {
+                ChatStream stream = streams.get(request.stream());
+                if (stream != null && request.credits() != null && request.credits() > 0) {
+                    stream.request(request.credits());
+                }
+            }
+            case "cancel" -> {
+                ChatStream stream = streams.remove(request.stream());
+                if (stream != null) {
+                    stream.dispose();
+                    sender.accept(ChatSocketEvent.cancelled(request.stream()));
+                }
+            }
+            default -> reject(request.stream(), HttpStatus.BAD_REQUEST, "Unknown type: " + request.type());
+        }
+    }
+
+    /**
+     * Detaches every open stream.
+     */
+    void close() {
+        streams.values().forEach(ChatStream::dispose);
+        streams.clear();
+    }
+
+    int openStreams() {
+        return streams.size();
+    }
+
+    private void open(ChatSocketRequest request, Supplier<Flux<StreamEvent>> source) {
+        String streamId = request.stream();
+        if (streams.containsKey(streamId)) {
+            reject(streamId, HttpStatus.CONFLICT, "Stream already open: " + streamId);
+            return;
+        }
+        if (streams.size() >= maxStreams) {
+            reject(streamId, HttpStatus.TOO_MANY_REQUESTS, "Too many open streams");
+            return;
+        }
+
+        Flux<StreamEvent> events;
+        TenantContext.set(tenant);
+        try {
+            events = source.get();
+        } catch (RuntimeException e) {
+            sender.accept(error(streamId, e));
+            return;
+        } finally {
+            TenantContext.clear();
+        }
+
+        int credits = request.credits() != null && request.credits() > 0 ? request.credits() : defaultCredits;
+        ChatStream stream = new ChatStream(streamId, credits);
+        streams.put(streamId, stream);
+        events.subscribe(stream);
+    }
+
+    void reject(String streamId, HttpStatus status, String reason) {
+        sender.accept(ChatSocketEvent.error(streamId, status.value(), reason));
+    }
+
+    private static ChatSocketEvent error(String streamId, Throwable e) {
+        if (e instanceof LlmRejectedException rejected) {
+            return ChatSocketEvent.error(streamId, rejected.getStatus().value(), rejected.getMessage());
+        }
+        if (e instanceof ResponseStatusException status) {
+            return ChatSocketEvent.error(streamId, status.getStatusCode().value(), status.getReason());
+        }
+        return ChatSocketEvent.error(streamId, HttpStatus.INTERNAL_SERVER_ERROR.value(), e.getMessage());
+    }
+
+    private final class ChatStream extends BaseSubscriber<StreamEvent> {
+
+        private final String id;
+        private final int initialCredits;
+
+        ChatStream(String id, int initialCredits) {
+            this.id = id;
+            this.initialCredits = initialCredits;
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            request(initialCredits);
+        }
+
+        @Override
+        protected void hookOnNext(StreamEvent event) {
+            sender.accept(ChatSocketEvent.delta(id, event));
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            if (streams.remove(id, this)) {
+                sender.accept(ChatSocketEvent.done(id));
+            }
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            if (streams.remove(id, this)) {
+                sender.accept(error(id, throwable));
+            }
+        }
+    }
+}
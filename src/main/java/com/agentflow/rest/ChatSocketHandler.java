@@ -0,0 +1,115 @@
+package com.agentflow.rest;
+
+import com.agentflow.dto.ChatSocketEvent;
+import com.agentflow.dto.ChatSocketRequest;
+import com.agentflow.services.ChatService;
+import com.agentflow.services.TenantContext;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.io.IOException;
+
+/**
+ * WebSocket endpoint carrying many conversation streams over one connection.
+ *
+ * Frames are JSON ({@link ChatSocketRequest} in, {@link ChatSocketEvent} out)
+ * and every frame names the client-chosen stream it belongs to. Sends go
+ * through a {@link ConcurrentWebSocketSessionDecorator} because deltas of
+ * different streams arrive on different threads; a client that stops reading
+ * until the send buffer or time limit is exceeded is disconnected.
+ */
+@Component
+public class ChatSocketHandler extends TextWebSocketHandler {
+
+    /** Session attribute holding the tenant resolved during the handshake. */
+    public static final String TENANT_ATTRIBUTE = "agentflow.tenant";
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatSocketHandler.class);
+    private static final String CONNECTION_ATTRIBUTE = "agentflow.connection";
+
+    private final ChatService chatService;
+    private final ObjectMapper objectMapper;
+    private final int defaultCredits;
+    private final int maxStreams;
+    private final int sendTimeLimitMs;
+    private final int sendBufferBytes;
+
+    public ChatSocketHandler(ChatService chatService,
+                             ObjectMapper objectMapper,
+                             @Value("${chat.ws.initial-credits:32}") int defaultCredits,
+                             @Value("${chat.ws.max-streams:64}") int maxStreams,
+                             @Value("${chat.ws.send-time-limit-ms:10000}") int sendTimeLimitMs,
+                             @Value("${chat.ws.send-buffer-bytes:524288}") int sendBufferBytes) {
+        this.chatService = chatService;
+        this.objectMapper = objectMapper;
+        this.defaultCredits = defaultCredits;
+        this.maxStreams = maxStreams;
+        this.sendTimeLimitMs = sendTimeLimitMs;
+        this.sendBufferBytes = sendBufferBytes;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        WebSocketSession concurrent = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferBytes);
+        Object tenant = session.getAttributes().getOrDefault(TENANT_ATTRIBUTE, TenantContext.DEFAULT_TENANT);
+        ChatSocketConnection connection = new ChatSocketConnection(chatService, (String) tenant,
+                defaultCredits, maxStreams, event -> send(concurrent, event));
+        session.getAttributes().put(CONNECTION_ATTRIBUTE, connection);
+        logger.debug("WebSocket {} connected (tenant {})", session.getId(), tenant);
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        ChatSocketConnection connection = (ChatSocketConnection) session.getAttributes().get(CONNECTION_ATTRIBUTE);
+        ChatSocketRequest request;
+        try {
+            request = objectMapper.readValue(message.getPayload(), ChatSocketRequest.class);
+        } catch (JsonProcessingException e) {
+            connection.reject(null, HttpStatus.BAD_REQUEST, "Malformed frame: " + e.getOriginalMessage());
+            return;
+        }
+        connection.handle(request);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        logger.debug("WebSocket {} transport error: {}", session.getId(), exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        ChatSocketConnection connection = (ChatSocketConnection) session.getAttributes().remove(CONNECTION_ATTRIBUTE);
+        if (connection != null) {
+            logger.debug("WebSocket {} closed ({}), detaching {} streams",
+                    session.getId(), status, connection.openStreams());
+            connection.close();
+        }
+    }
+
+    private void send(WebSocketSession session, ChatSocketEvent event) {
+        if (!session.isOpen()) {
+            return;
+        }
+        try {
+            session.sendMessage(new TextMessage(objectMapper.writeValueAsString(event)));
+        } catch (IOException | RuntimeException e) {
+            // the decorator closes the session when its limits are exceeded
+            logger.warn("Dropping WebSocket {}: {}", session.getId(), e.getMessage());
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException ignored) {
+                // already closing
+            }
+        }
+    }
+}
@@ -0,0 +1,504 @@
+package com.agentflow.services;
+
+import com.agentflow.config.TenantProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limits concurrent upstream LLM calls with an adaptive (AIMD) limit and
+ * shares the capacity fairly between tenants.
+ *
+ * The limit grows by roughly one per limit's worth of fast successful calls
+ * and shrinks multiplicatively when a call is slower than the latency
+ * threshold, times out, or the server reports overload. Calls beyond the limit
+ * wait in a bounded queue; interactive calls are always admitted before
+ * background ones (summarization). Within a priority, waiting tenants are
+ * served by start-time fair queueing: each call is tagged with its tenant's
+ * virtual start time, advanced by 1/weight per call, and the lowest tag goes
+ * first, so a burst from one tenant only delays that tenant. Tenants at their
+ * {@code max-concurrent} cap are skipped. When the queue is full, the tenant
+ * with the most queued calls loses its newest (preferably background) waiter
+ * before anyone else is turned away. Rejections are fast and carry a
+ * Retry-After estimate: 429 when the queue is full, 503 when a call waited
+ * longer than the queue timeout.
+ */
+@Component
+public class AdmissionController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionController.class);
+
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final Duration queueTimeout;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private final TenantProperties tenantProperties;
+
+    // guarded by this
+    private double limit;
+    private int inFlight;
+    private int queued;
+    private double virtualTime;
+    private double latencyEwmaNanos;
+    private final Map<String, TenantQueue> tenants = new HashMap<>();
+
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedQueueTimeout;
+
+    public AdmissionController(
+            @Value("${llm.admission.enabled:true}") boolean enabled,
+            @Value("${llm.admission.initial-limit:4}") int initialLimit,
+            @Value("${llm.admission.min-limit:1}") int minLimit,
+            @Value("${llm.admission.max-limit:64}") int maxLimit,
+            @Value("${llm.admission.max-queue:100}") int maxQueue,
+            @Value("${llm.admission.queue-timeout-ms:30000}") long queueTimeoutMs,
+            @Value("${llm.admission.latency-threshold-ms:20000}") long latencyThresholdMs,
+            @Value("${llm.admission.backoff-ratio:0.75}") double backoffRatio,
+            TenantProperties tenantProperties,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueue = maxQueue;
+        this.queueTimeout = Duration.ofMillis(queueTimeoutMs);
+        this.latencyThresholdNanos = Duration.ofMillis(latencyThresholdMs).toNanos();
+        this.backoffRatio = backoffRatio;
+        this.tenantProperties = tenantProperties;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+
+        this.rejectedQueueFull = rejectedCounter(meterRegistry, "queue-full");
+        this.rejectedQueueTimeout = rejectedCounter(meterRegistry, "queue-timeout");
+        Gauge.builder("agentflow.llm.admission.limit", this, AdmissionController::limit)
+                .register(meterRegistry);
+        Gauge.builder("agentflow.llm.admission.in-flight", this, AdmissionController::inFlight)
+                .register(meterRegistry);
+        Gauge.builder("agentflow.llm.admission.queued", this, AdmissionController::queued)
+                .register(meterRegistry);
+
+        logger.info("AdmissionController {} (limit={} in [{}, {}], max-queue={}, queue-timeout={}ms, latency-threshold={}ms)",
+                enabled ? "enabled" : "disabled", this.limit, minLimit, maxLimit, maxQueue, queueTimeoutMs, latencyThresholdMs);
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("agentflow.llm.admission.rejected")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a unary call once a slot is free. The call's latency and outcome feed the limit.
+     */
+    public <T> Mono<T> admit(Priority priority, String tenant, Mono<T> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Mono.usingWhen(acquire(priority, tenant),
+                permit -> call,
+                permit -> permit.releasing(Outcome.SUCCESS, null),
+                (permit, error) -> permit.releasing(Outcome.ERROR, error),
+                permit -> permit.releasing(Outcome.CANCEL, null));
+    }
+
+    /**
+     * Runs a streaming call once a slot is free. The slot is held until the
+     * stream terminates; time to first element is used as the latency sample.
+     */
+    public <T> Flux<T> admitStream(Priority priority, String tenant, Flux<T> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Flux.usingWhen(acquire(priority, tenant),
+                permit -> call.doOnNext(element -> permit.sampleLatency()),
+                permit -> permit.releasing(Outcome.SUCCESS, null),
+                (permit, error) -> permit.releasing(Outcome.ERROR, error),
+                permit -> permit.releasing(Outcome.CANCEL, null));
+    }
+
+    /**
+     * Throws the 429 that {@link #admitStream} would give if the call were
+     * queued now, without queueing it, so streaming endpoints can reject before
+     * the response is committed. The call can still be shed later.
+     */
+    public void checkCapacity(Priority priority, String tenant) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            if (inFlight < (int) limit || queued < maxQueue || sheddable(tenants.get(tenant), priority) != null) {
+                return;
+            }
+        }
+        rejectedQueueFull.increment();
+        throw queueFull();
+    }
+
+    /**
+     * Whether a call arriving now would have to wait for a slot.
+     */
+    public synchronized boolean isSaturated() {
+        return enabled && (queued > 0 || inFlight >= (int) limit);
+    }
+
+    public synchronized double limit() {
+        return limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return queued;
+    }
+
+    public synchronized int inFlight(String tenant) {
+        TenantQueue queue = tenants.get(tenant);
+        return queue != null ? queue.inFlight : 0;
+    }
+
+    private Mono<Permit> acquire(Priority priority, String tenant) {
+        return Mono.<Permit>create(sink -> {
+                    Waiter waiter = new Waiter(sink, priority);
+                    Permit granted = null;
+                    Waiter shed = null;
+                    synchronized (this) {
+                        TenantQueue queue = tenants.computeIfAbsent(tenant, TenantQueue::new);
+                        // free slots are handed out as soon as they open up, so anyone
+                        // still queued while a slot is free is held back by a tenant cap
+                        if (inFlight < (int) limit && queue.queued() == 0 && queue.hasCapacity()) {
+                            virtualTime = Math.max(virtualTime, nextStartTag(queue));
+                            granted = grant(queue);
+                        } else if (queued < maxQueue) {
+                            enqueue(queue, waiter);
+                        } else if ((shed = shedFor(queue, priority)) != null) {
+                            enqueue(queue, waiter);
+                        } else {
+                            waiter = null;
+                            release(queue);
+                        }
+                    }
+
+                    if (granted != null) {
+                        sink.success(granted);
+                        return;
+                    }
+                    if (shed != null) {
+                        rejectedQueueFull.increment();
+                        shed.sink.error(queueFull());
+                    }
+                    if (waiter == null) {
+                        rejectedQueueFull.increment();
+                        sink.error(queueFull());
+                        return;
+                    }
+                    Waiter pending = waiter;
+                    sink.onCancel(() -> onWaiterCancelled(pending));
+                })
+                .timeout(queueTimeout, Mono.defer(() -> {
+                    rejectedQueueTimeout.increment();
+                    return Mono.error(new LlmRejectedException(HttpStatus.SERVICE_UNAVAILABLE, retryAfter(),
+                            "LLM is overloaded: no capacity within " + queueTimeout.toMillis() + " ms"));
+                }));
+    }
+
+    // guarded by this
+    private Permit grant(TenantQueue queue) {
+        inFlight++;
+        queue.inFlight++;
+        return new Permit(queue);
+    }
+
+    /**
+     * Assigns the tenant's next virtual start time: one 1/weight step after its
+     * previous call, but never before the current virtual time.
+     */
+    // guarded by this
+    private double nextStartTag(TenantQueue queue) {
+        queue.lastStartTag = Math.max(virtualTime, queue.lastStartTag + 1.0 / queue.weight);
+        return queue.lastStartTag;
+    }
+
+    // guarded by this
+    private void enqueue(TenantQueue queue, Waiter waiter) {
+        waiter.startTag = nextStartTag(queue);
+        queue.queueFor(waiter.priority).addLast(waiter);
+        queued++;
+    }
+
+    /**
+     * Picks a queued waiter to reject so that an arriving call can take its place:
+     * the newest waiter of the tenant with the most queued calls, provided that
+     * tenant queues more than the arriving one (or only has background calls
+     * queued while the arriving call is interactive).
+     */
+    // guarded by this
+    private Waiter shedFor(TenantQueue arriving, Priority priority) {
+        TenantQueue heaviest = sheddable(arriving, priority);
+        if (heaviest == null) {
+            return null;
+        }
+        Waiter shed = heaviest.background.pollLast();
+        if (shed == null) {
+            shed = heaviest.interactive.pollLast();
+        }
+        queued--;
+        release(heaviest);
+        return shed;
+    }
+
+    /**
+     * The tenant {@link #shedFor} would take a waiter from, if any.
+     *
+     * @param arriving The arriving call's tenant queue; null if it has none yet
+     */
+    // guarded by this
+    private TenantQueue sheddable(TenantQueue arriving, Priority priority) {
+        TenantQueue heaviest = null;
+        for (TenantQueue queue : tenants.values()) {
+            if (heaviest == null || queue.queued() > heaviest.queued()) {
+                heaviest = queue;
+            }
+        }
+        if (heaviest == null || heaviest.queued() == 0) {
+            return null;
+        }
+        int arrivingQueued = arriving != null ? arriving.queued() : 0;
+        boolean heavier = heaviest != arriving && heaviest.queued() > arrivingQueued + 1;
+        boolean preempt = priority == Priority.INTERACTIVE && !heaviest.background.isEmpty();
+        return heavier || preempt ? heaviest : null;
+    }
+
+    /**
+     * Next waiter to admit: interactive before background, lowest start tag
+     * first, skipping tenants at their concurrency cap.
+     */
+    // guarded by this
+    private Waiter nextWaiter() {
+        for (Priority priority : Priority.values()) {
+            TenantQueue best = null;
+            for (TenantQueue queue : tenants.values()) {
+                Waiter head = queue.queueFor(priority).peekFirst();
+                if (head != null && queue.hasCapacity()
+                        && (best == null || head.startTag < best.queueFor(priority).peekFirst().startTag)) {
+                    best = queue;
+                }
+            }
+            if (best != null) {
+                Waiter next = best.queueFor(priority).pollFirst();
+                queued--;
+                virtualTime = Math.max(virtualTime, next.startTag);
+                next.tenant = best;
+                return next;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Forgets a tenant that has nothing queued or in flight and whose last
+     * queued call has been fully accounted for in virtual time.
+     */
+    // guarded by this
+    private void release(TenantQueue queue) {
+        if (queue.inFlight == 0 && queue.queued() == 0 && queue.lastStartTag + 1.0 / queue.weight <= virtualTime) {
+            tenants.remove(queue.tenant, queue);
+        }
+    }
+
+    private LlmRejectedException queueFull() {
+        return new LlmRejectedException(HttpStatus.TOO_MANY_REQUESTS, retryAfter(),
+                "LLM is overloaded: request queue is full");
+    }
+
+    /**
+     * Rough time for the current backlog to drain at the current limit.
+     */
+    private synchronized Duration retryAfter() {
+        double rounds = (queued() + 1) / Math.max(1.0, limit);
+        long nanos = (long) (rounds * latencyEwmaNanos);
+        return Duration.ofSeconds(Math.max(1, Duration.ofNanos(nanos).toSeconds()));
+    }
+
+    private void onWaiterCancelled(Waiter waiter) {
+        Permit leaked;
+        synchronized (this) {
+            if (waiter.permit == null) {
+                for (TenantQueue queue : tenants.values()) {
+                    if (queue.queueFor(waiter.priority).remove(waiter)) {
+                        queued--;
+                        release(queue);
+                        break;
+                    }
+                }
+                return;
+            }
+            leaked = waiter.permit;
+        }
+        // granted concurrently with the cancellation: hand the slot back
+        leaked.release(Outcome.CANCEL, null);
+    }
+
+    private void onReleased(TenantQueue tenant, Outcome outcome, Throwable error, long latencyNanos) {
+        int grants = 0;
+        Waiter[] granted;
+        synchronized (this) {
+            inFlight--;
+            tenant.inFlight--;
+            adjustLimit(outcome, error, latencyNanos);
+
+            granted = new Waiter[Math.max(0, (int) limit - inFlight)];
+            while (inFlight < (int) limit) {
+                Waiter next = nextWaiter();
+                if (next == null) {
+                    break;
+                }
+                next.permit = grant(next.tenant);
+                granted[grants++] = next;
+            }
+            release(tenant);
+        }
+        for (int i = 0; i < grants; i++) {
+            granted[i].sink.success(granted[i].permit);
+        }
+    }
+
+    // guarded by this
+    private void adjustLimit(Outcome outcome, Throwable error, long latencyNanos) {
+        if (latencyNanos > 0) {
+            latencyEwmaNanos = latencyEwmaNanos == 0 ? latencyNanos : latencyEwmaNanos * 0.9 + latencyNanos * 0.1;
+        }
+
+        boolean overloaded = (latencyNanos > latencyThresholdNanos) || (outcome == Outcome.ERROR && isOverload(error));
+        double previous = limit;
+        if (overloaded) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (outcome == Outcome.SUCCESS) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        if ((int) previous != (int) limit) {
+            logger.info("LLM concurrency limit {} -> {}", (int) previous, (int) limit);
+        }
+    }
+
+    private static boolean isOverload(Throwable error) {
+        if (error instanceof TimeoutException) {
+            return true;
+        }
+        if (error instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status == 429 || status == 503;
+        }
+        return false;
+    }
+
+    private enum Outcome {
+        SUCCESS,
+        ERROR,
+        CANCEL
+    }
+
+    private final class TenantQueue {
+
+        private final String tenant;
+        private final double weight;
+        private final int maxConcurrent;
+        private final Deque<Waiter> interactive = new ArrayDeque<>();
+        private final Deque<Waiter> background = new ArrayDeque<>();
+        private int inFlight;
+        private double lastStartTag;
+
+        TenantQueue(String tenant) {
+            TenantProperties.Limits limits = tenantProperties.limitsFor(tenant);
+            this.tenant = tenant;
+            this.weight = limits.weight() > 0 ? limits.weight() : 1.0;
+            this.maxConcurrent = limits.maxConcurrent();
+            this.lastStartTag = virtualTime - 1.0 / weight;
+        }
+
+        boolean hasCapacity() {
+            return maxConcurrent <= 0 || inFlight < maxConcurrent;
+        }
+
+        int queued() {
+            return interactive.size() + background.size();
+        }
+
+        Deque<Waiter> queueFor(Priority priority) {
+            return priority == Priority.INTERACTIVE ? interactive : background;
+        }
+    }
+
+    // fields guarded by the controller
+    private static final class Waiter {
+
+        private final MonoSink<Permit> sink;
+        private final Priority priority;
+        private double startTag;
+        private TenantQueue tenant;
+        private Permit permit;
+
+        Waiter(MonoSink<Permit> sink, Priority priority) {
+            this.sink = sink;
+            this.priority = priority;
+        }
+    }
+
+    private final class Permit {
+
+        private final TenantQueue tenant;
+
+        private final long startedAt = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long latencyNanos;
+
+        Permit(TenantQueue tenant) {
+            this.tenant = tenant;
+        }
+
+        void sampleLatency() {
+            if (latencyNanos == 0) {
+                latencyNanos = System.nanoTime() - startedAt;
+            }
+        }
+
+        Mono<Void> releasing(Outcome outcome, Throwable error) {
+            return Mono.fromRunnable(() -> release(outcome, error));
+        }
+
+        void release(Outcome outcome, Throwable error) {
+            if (released.compareAndSet(false, true)) {
+                long latency = latencyNanos;
+                if (latency == 0 && outcome == Outcome.SUCCESS) {
+                    latency = System.nanoTime() - startedAt;
+                }
+                onReleased(tenant, outcome, error, latency);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.BatchChatItem;
+import com.agentflow.dto.BatchChatResult;
+import com.agentflow.dto.ChatResponse;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Runs many chat turns from one request.
+ *
+ * Turns of the same conversation run strictly one after another, in request
+ * order, since each one sees the replies to the previous ones. Turns of
+ * different conversations run in parallel, at most {@code chat.batch.parallelism}
+ * at a time across all batches; the limit is enforced by the worker pool
+ * rather than by flatMap, because every conversation stays open until the
+ * input ends. Results are emitted in completion order and carry the index of
+ * their item. A failed turn produces an error result and the batch goes on.
+ */
+@Service
+public class BatchChatService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchChatService.class);
+
+    private final ChatService chatService;
+    private final Scheduler workers;
+
+    public BatchChatService(ChatService chatService,
+                            @Value("${chat.batch.parallelism:8}") int parallelism) {
+        this.chatService = chatService;
+        this.workers = Schedulers.newBoundedElastic(parallelism, Integer.MAX_VALUE, "chat-batch");
+        logger.info("BatchChatService initialized (parallelism={})", parallelism);
+    }
+
+    /**
+     * Processes items as they arrive. Must be called on the request thread:
+     * the caller's tenant is captured here and applied to every turn.
+     *
+     * @param items Batch items; an error in the input ends the batch after the
+     *              turns already read have finished, with a final error result
+     */
+    public Flux<BatchChatResult> chat(Flux<BatchChatItem> items) {
+        String tenant = TenantContext.current();
+        return items
+                .map(Item::new)
+                .onErrorResume(e -> Mono.just(new Item(new IllegalArgumentException(
+                        "Invalid batch input: " + e.getMessage(), e))))
+                .index((index, item) -> item.at(index))
+                .groupBy(Item::conversationKey)
+                .flatMap(conversation -> conversation.concatMap(item -> run(item, tenant), 1), Integer.MAX_VALUE);
+    }
+
+    private Mono<BatchChatResult> run(Item item, String tenant) {
+        if (item.invalid() != null) {
+            return Mono.just(failure(item, item.invalid(), 0));
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Mono.fromCallable(() -> turn(item, tenant))
+                    .subscribeOn(workers)
+                    .map(response -> new BatchChatResult(item.index(), item.conversationId(),
+                            response.response(), null, elapsedMs(start)))
+                    .onErrorResume(e -> Mono.just(failure(item, e, elapsedMs(start))));
+        });
+    }
+
+    private ChatResponse turn(Item item, String tenant) {
+        TenantContext.set(tenant);
+        try {
+            return chatService.chat(item.conversationId(), item.message());
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    private static BatchChatResult failure(Item item, Throwable error, long durationMs) {
+        String reason = error instanceof ResponseStatusException status && status.getReason() != null
+                ? status.getReason()
+                : error.getMessage();
+        return new BatchChatResult(item.index(), item.conversationId(), null, reason, durationMs);
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.dispose();
+    }
+
+    /**
+     * A batch item with its position, or an input problem reported in its place.
+     */
+    private record Item(long index, String conversationId, String message, Throwable invalid) {
+
+        Item(BatchChatItem item) {
+            this(-1, item.conversationId(), item.message(), validate(item));
+        }
+
+        Item(Throwable invalid) {
+            this(-1, null, null, invalid);
+        }
+
+        Item at(long index) {
+            return new Item(index, conversationId, message, invalid);
+        }
+
+        /** Invalid items share one group; they finish without calling the LLM. */
+        String conversationKey() {
+            return invalid != null ? "" : conversationId;
+        }
+
+        private static Throwable validate(BatchChatItem item) {
+            if (item.conversationId() == null || item.conversationId().isBlank()) {
+                return new IllegalArgumentException("conversationId is required");
+            }
+            if (item.message() == null) {
+                return new IllegalArgumentException("message is required");
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.Message;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Assembles OpenAI chat-completion request bodies without re-encoding the history.
+ *
+ * The JSON around the messages array depends only on client configuration and
+ * is encoded once. Each message contributes its cached {@link Message#toJson()}
+ * bytes, and the pieces are spliced into a composite buffer that references
+ * them without copying. The fixed bytes are encoded once and only wrapped on
+ * each write, so the per-request cost is one small wrapper per piece regardless
+ * of a message's length.
+ */
+public class ChatRequestBodyWriter {
+
+    private static final byte[] COMMA = {','};
+    private static final NettyDataBufferFactory BUFFER_FACTORY =
+            new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+
+    private final byte[] prefix;
+    private final byte[] unarySuffix;
+    private final byte[] streamSuffix;
+
+    public ChatRequestBodyWriter(String model, double temperature, int maxTokens, List<String> stop) {
+        this.prefix = ("{\"model\":" + quote(model) + ",\"messages\":[").getBytes(StandardCharsets.UTF_8);
+        this.unarySuffix = suffix(temperature, maxTokens, stop, false);
+        this.streamSuffix = suffix(temperature, maxTokens, stop, true);
+    }
+
+    /**
+     * A read-only buffer that can be a component of any number of composites at
+     * once: composites read it by absolute index and releasing it is a no-op.
+     */
+    private static ByteBuf shared(byte[] bytes) {
+        return Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(bytes).asReadOnly());
+    }
+
+    /**
+     * Lays out the body for one request.
+     *
+     * @param system  Optional system message placed before the history (can be null)
+     * @param history Messages in chronological order
+     * @param stream  Whether to request an SSE stream
+     */
+    public Body write(Message system, List<Message> history, boolean stream) {
+        int messageCount = history.size() + (system != null ? 1 : 0);
+        byte[][] parts = new byte[Math.max(2, messageCount * 2 + 1)][];
+        int index = 0;
+        int length = 0;
+
+        parts[index++] = prefix;
+        length += prefix.length;
+        if (system != null) {
+            byte[] json = system.toJson();
+            parts[index++] = json;
+            length += json.length;
+        }
+        for (Message message : history) {
+            if (index > 1) {
+                parts[index++] = COMMA;
+                length++;
+            }
+            byte[] json = message.toJson();
+            parts[index++] = json;
+            length += json.length;
+        }
+        byte[] suffix = stream ? streamSuffix : unarySuffix;
+        parts[index++] = suffix;
+        length += suffix.length;
+
+        return new Body(parts, index, length, messageCount);
+    }
+
+    private static byte[] suffix(double temperature, int maxTokens, List<String> stop, boolean stream) {
+        // continues the object opened by the prefix
+        StringBuilder suffix = new StringBuilder("],\"temperature\":").append(temperature)
+                .append(",\"max_tokens\":").append(maxTokens)
+                .append(",\"stop\":[");
+        for (int i = 0; i < stop.size(); i++) {
+            if (i > 0) {
+                suffix.append(',');
+            }
+            suffix.append(quote(stop.get(i)));
+        }
+        suffix.append("],\"stream\":").append(stream).append('}');
+        return suffix.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String quote(String value) {
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        JsonStringEncoder.getInstance().quoteAsString(value, out);
+        return out.append('"').toString();
+    }
+
+    /**
+     * A laid-out request body. Cheap to keep around; a fresh composite buffer
+     * is created for every write so the body can be resent on retry.
+     */
+    public static final class Body {
+
+        private static final ByteBuf SHARED_COMMA = shared(COMMA);
+
+        private final byte[][] parts;
+        private final int partCount;
+        private final int length;
+        private final int messageCount;
+
+        private Body(byte[][] parts, int partCount, int length, int messageCount) {
+            this.parts = parts;
+            this.partCount = partCount;
+            this.length = length;
+            this.messageCount = messageCount;
+        }
+
+        public int contentLength() {
+            return length;
+        }
+
+        public int messageCount() {
+            return messageCount;
+        }
+
+        public DataBuffer toDataBuffer() {
+            CompositeByteBuf composite = Unpooled.compositeBuffer(partCount);
+            for (int i = 0; i < partCount; i++) {
+                byte[] part = parts[i];
+                composite.addComponent(true, part == COMMA ? SHARED_COMMA : Unpooled.wrappedBuffer(part));
+            }
+            return BUFFER_FACTORY.wrap(composite);
+        }
+
+        public byte[] toByteArray() {
+            byte[] bytes = new byte[length];
+            int offset = 0;
+            for (int i = 0; i < partCount; i++) {
+                System.arraycopy(parts[i], 0, bytes, offset, parts[i].length);
+                offset += parts[i].length;
+            }
+            return bytes;
+        }
+    }
+}
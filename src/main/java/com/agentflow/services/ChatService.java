@@ -1,18 +1,22 @@
 package com.agentflow.services;
 
 import com.agentflow.dto.Message;
+import com.agentflow.dto.StreamEvent;
 import com.agentflow.interfaces.LlmClient;
 import com.agentflow.memory.Conversation;
 import com.agentflow.memory.ConversationMemory;
 import com.agentflow.memory.MemoryProcessor;
+import com.agentflow.services.TurnTrace.Stage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
 
 import java.util.List;
+import java.util.Optional;
 
 @Service
 public class ChatService {
@@ -23,62 +27,188 @@ public class ChatService {
     private final ConversationMemory conversationMemory;
     private final UserPreferenceService userPreferenceService;
     private final MemoryProcessor memoryProcessor;
+    private final TokenCoalescer tokenCoalescer;
+    private final StreamRegistry streamRegistry;
+    private final ConversationSerializer conversationSerializer;
+    private final SlowTurnLog slowTurnLog;
 
     public ChatService(LlmClient llmClient,
                        ConversationMemory conversationMemory,
                        UserPreferenceService userPreferenceService,
-                       MemoryProcessor memoryProcessor) {
+                       MemoryProcessor memoryProcessor,
+                       TokenCoalescer tokenCoalescer,
+                       StreamRegistry streamRegistry,
+                       ConversationSerializer conversationSerializer,
+                       SlowTurnLog slowTurnLog) {
         this.llmClient = llmClient;
         this.conversationMemory = conversationMemory;
         this.userPreferenceService = userPreferenceService;
         this.memoryProcessor = memoryProcessor;
+        this.tokenCoalescer = tokenCoalescer;
+        this.streamRegistry = streamRegistry;
+        this.conversationSerializer = conversationSerializer;
+        this.slowTurnLog = slowTurnLog;
     }
 
     public String startConversation(String systemPrompt) {
         return conversationMemory.startConversation(systemPrompt);
     }
 
+    /**
+     * Runs one turn. Turns of the same conversation are serialized (see
+     * {@link ConversationSerializer}); a turn that arrives while another is
+     * running waits for it. The time of each stage is traced (see {@link TurnTrace}).
+     */
     public com.agentflow.dto.ChatResponse chat(String conversationId, String userMessageText) {
         Conversation conversation = getConversationOrThrow(conversationId);
+        TurnTrace trace = slowTurnLog.start(conversationId, false);
+        trace.stage(Stage.QUEUE);
+        String outcome = "error";
+        try {
+            com.agentflow.dto.ChatResponse response = conversationSerializer.call(conversationId,
+                    () -> runTurn(conversation, userMessageText, trace));
+            outcome = "success";
+            return response;
+        } finally {
+            trace.finish(outcome);
+        }
+    }
+
+    private com.agentflow.dto.ChatResponse runTurn(Conversation conversation, String userMessageText, TurnTrace trace) {
+        String conversationId = conversation.getId();
 
         // Extract preferences
+        trace.stage(Stage.PREFERENCES);
         userPreferenceService.extractPreferences(userMessageText);
 
         // Add user message
+        trace.stage(Stage.PERSIST);
         conversationMemory.addMessage(conversationId, new Message("user", userMessageText));
 
         // Process history
+        trace.stage(Stage.HISTORY);
         List<Message> history = conversationMemory.getHistory(conversationId);
+        trace.stage(Stage.MEMORY);
         List<Message> processedHistory = memoryProcessor.process(history);
+        trace.history(processedHistory);
 
         // Generate response
-        String response = llmClient.generate(conversation.getSystemPrompt(), processedHistory);
+        trace.stage(Stage.GENERATION);
+        String response = llmClient.generate(conversationId, conversation.getSystemPrompt(), processedHistory);
+        trace.reply(response.length());
 
         // Add assistant response
+        trace.stage(Stage.PERSIST);
         conversationMemory.addMessage(conversationId, new Message("assistant", response));
 
+        trace.stage(Stage.HISTORY);
         return new com.agentflow.dto.ChatResponse(conversationId, response, conversationMemory.getHistory(conversationId));
     }
 
     public Flux<String> chatStream(String conversationId, String userMessageText) {
+        return chatStream(conversationId, userMessageText, null);
+    }
+
+    /**
+     * Streams the assistant reply for a user message.
+     *
+     * @param coalesce Whether to merge deltas into larger chunks (see {@link TokenCoalescer});
+     *                 null uses the configured default
+     */
+    public Flux<String> chatStream(String conversationId, String userMessageText, Boolean coalesce) {
+        return chatStreamEvents(conversationId, userMessageText, coalesce).map(StreamEvent::data);
+    }
+
+    /**
+     * Streams the assistant reply as numbered events that can be resumed with
+     * {@link #resumeStream(String, String)} if the client disconnects.
+     *
+     * @throws LlmRejectedException before anything is streamed if the LLM call
+     *         would be rejected, so the caller can still answer 429 or 503
+     */
+    public Flux<StreamEvent> chatStreamEvents(String conversationId, String userMessageText, Boolean coalesce) {
+        llmClient.checkAvailable();
+        return streamRegistry.publish(conversationId, generateReply(conversationId, userMessageText, coalesce));
+    }
+
+    /**
+     * Reattaches to a reply that is streaming or recently finished, without generating again.
+     *
+     * @param lastEventId The {@code Last-Event-ID} sent by the client (can be null)
+     * @return Empty if there is no such stream to resume
+     */
+    public Optional<Flux<StreamEvent>> resumeStream(String conversationId, String lastEventId) {
+        return streamRegistry.resume(conversationId, lastEventId);
+    }
+
+    private Flux<String> generateReply(String conversationId, String userMessageText, Boolean coalesce) {
         Conversation conversation = getConversationOrThrow(conversationId);
+        TurnTrace trace = slowTurnLog.start(conversationId, true);
+        trace.stage(Stage.QUEUE);
+        Flux<String> deltas = conversationSerializer.flux(conversationId,
+                        () -> streamTurn(conversation, userMessageText, trace))
+                .doOnError(e -> trace.finish("error"));
+        return tokenCoalescer.isEnabled(coalesce) ? tokenCoalescer.coalesce(deltas) : deltas;
+    }
+
+    /**
+     * The reply is persisted before the turn ends: doOnComplete and doOnCancel
+     * run before the signal reaches the serializer, unlike doFinally. The trace
+     * splits the model's time at the first token into prefill and generation.
+     */
+    private Flux<String> streamTurn(Conversation conversation, String userMessageText, TurnTrace trace) {
+        String conversationId = conversation.getId();
 
+        trace.stage(Stage.PREFERENCES);
         userPreferenceService.extractPreferences(userMessageText);
+        trace.stage(Stage.PERSIST);
         conversationMemory.addMessage(conversationId, new Message("user", userMessageText));
 
+        trace.stage(Stage.HISTORY);
         List<Message> history = conversationMemory.getHistory(conversationId);
+        trace.stage(Stage.MEMORY);
         List<Message> processedHistory = memoryProcessor.process(history);
+        trace.history(processedHistory);
 
         StringBuilder fullResponse = new StringBuilder();
 
-        return llmClient.generateStream(conversation.getSystemPrompt(), processedHistory)
-                .doOnNext(fullResponse::append)
-                .doOnComplete(() -> {
-                    String completeResponse = fullResponse.toString().trim();
-                    if (!completeResponse.isEmpty()) {
-                        conversationMemory.addMessage(conversationId, new Message("assistant", completeResponse));
+        return llmClient.generateStream(conversationId, conversation.getSystemPrompt(), processedHistory)
+                .doOnSubscribe(subscription -> trace.stage(Stage.PREFILL))
+                .doOnNext(delta -> {
+                    if (trace.current() == Stage.PREFILL) {
+                        trace.stage(Stage.GENERATION);
                     }
-                });
+                    trace.reply(delta.length());
+                    fullResponse.append(delta);
+                })
+                .doOnComplete(() -> persistReply(conversationId, fullResponse, SignalType.ON_COMPLETE, trace))
+                .doOnCancel(() -> persistReply(conversationId, fullResponse, SignalType.CANCEL, trace))
+                .doOnError(e -> trace.finish("error"));
+    }
+
+    private void persistReply(String conversationId, StringBuilder fullResponse, SignalType signal, TurnTrace trace) {
+        trace.stage(Stage.PERSIST);
+        try {
+            storeReply(conversationId, fullResponse, signal);
+        } finally {
+            trace.finish(signal == SignalType.ON_COMPLETE ? "success" : "cancelled");
+        }
+    }
+
+    private void storeReply(String conversationId, StringBuilder fullResponse, SignalType signal) {
+        String completeResponse = fullResponse.toString().trim();
+        if (completeResponse.isEmpty()) {
+            return;
+        }
+        if (signal == SignalType.ON_COMPLETE) {
+            conversationMemory.addMessage(conversationId, new Message("assistant", completeResponse));
+        } else {
+            // client disconnected: keep what was generated so the history stays consistent
+            logger.info("Persisting truncated reply for conversation {} ({} chars)",
+                    conversationId, completeResponse.length());
+            conversationMemory.addMessage(conversationId,
+                    new Message("assistant", completeResponse, true));
+        }
     }
 
     private Conversation getConversationOrThrow(String conversationId) {
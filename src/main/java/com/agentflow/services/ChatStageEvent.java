@@ -0,0 +1,40 @@
+package com.agentflow.services;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One stage of a chat turn, as a Flight Recorder event. Enabled by default but
+ * only written while a recording is running; see {@link TurnTrace} for the stages.
+ */
+@Name("com.agentflow.ChatStage")
+@Label("Chat Stage")
+@Category({"AgentFlow", "Chat"})
+@Description("A stage of a chat turn: queueing, preference extraction, history, memory processing, prefill, generation or persistence")
+@StackTrace(false)
+class ChatStageEvent extends jdk.jfr.Event {
+
+    @Label("Conversation Id")
+    String conversationId;
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Streaming")
+    boolean streaming;
+
+    @Label("History Size")
+    @Description("Messages in the conversation history")
+    int historySize;
+
+    @Label("History Characters")
+    @Description("Characters of message content in the history sent to the model")
+    long historyChars;
+
+    @Label("Reply Characters")
+    @Description("Characters of the reply received so far")
+    long replyChars;
+}
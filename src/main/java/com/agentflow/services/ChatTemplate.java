@@ -0,0 +1,59 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.Message;
+
+/**
+ * Client-side chat templates used by the native /completion mode.
+ * The server adds the BOS token itself, so templates start at the first header.
+ */
+public enum ChatTemplate {
+
+    LLAMA3("<|start_header_id|>", "<|end_header_id|>\n\n", "<|eot_id|>"),
+    CHATML("<|im_start|>", "\n", "<|im_end|>\n");
+
+    private final String turnStart;
+    private final String roleEnd;
+    private final String turnEnd;
+
+    ChatTemplate(String turnStart, String roleEnd, String turnEnd) {
+        this.turnStart = turnStart;
+        this.roleEnd = roleEnd;
+        this.turnEnd = turnEnd;
+    }
+
+    /**
+     * @throws IllegalArgumentException for a name that is not a known template
+     */
+    public static ChatTemplate fromName(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "llama3" -> LLAMA3;
+            case "chatml" -> CHATML;
+            default -> throw new IllegalArgumentException(
+                    "Unknown chat template '" + name + "' (expected llama3 or chatml)");
+        };
+    }
+
+    public void appendTurn(StringBuilder prompt, String role, String content) {
+        prompt.append(turnStart).append(role).append(roleEnd)
+                .append(content != null ? content.trim() : "")
+                .append(turnEnd);
+    }
+
+    public void appendTurn(StringBuilder prompt, Message message) {
+        appendTurn(prompt, message.role(), message.content());
+    }
+
+    /**
+     * The header that opens the assistant turn the model should complete.
+     */
+    public String generationPrompt() {
+        return turnStart + "assistant" + roleEnd;
+    }
+
+    /**
+     * The token that ends a turn; always added to the stop sequences.
+     */
+    public String stopToken() {
+        return turnEnd.trim();
+    }
+}
@@ -0,0 +1,38 @@
+package com.agentflow.services;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A whole chat turn, from arrival to the stored reply. Its {@link ChatStageEvent}s
+ * fall within its duration.
+ */
+@Name("com.agentflow.ChatTurn")
+@Label("Chat Turn")
+@Category({"AgentFlow", "Chat"})
+@Description("A chat turn from arrival to the stored reply")
+@StackTrace(false)
+class ChatTurnEvent extends jdk.jfr.Event {
+
+    @Label("Conversation Id")
+    String conversationId;
+
+    @Label("Streaming")
+    boolean streaming;
+
+    @Label("Outcome")
+    @Description("success, error or cancelled")
+    String outcome;
+
+    @Label("History Size")
+    int historySize;
+
+    @Label("History Characters")
+    long historyChars;
+
+    @Label("Reply Characters")
+    long replyChars;
+}
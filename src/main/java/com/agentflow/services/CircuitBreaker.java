@@ -0,0 +1,209 @@
+package com.agentflow.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fails LLM calls fast while the backend is known to be unhealthy.
+ *
+ * The breaker opens after a run of consecutive failed calls (connection errors,
+ * 5xx responses, timeouts) or as soon as the health prober reports the backend
+ * down. While open, calls are rejected immediately with 503 instead of waiting
+ * for a timeout. After the open period one trial call is let through
+ * (half-open); its outcome closes or reopens the breaker. A healthy probe
+ * closes it right away.
+ */
+@Component
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(
+            @Value("${llama.circuit.failure-threshold:5}") int failureThreshold,
+            @Value("${llama.circuit.open-ms:10000}") long openMs,
+            MeterRegistry meterRegistry) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = Duration.ofMillis(openMs).toNanos();
+        Gauge.builder("agentflow.llm.circuit.open", this, breaker -> breaker.state() == State.CLOSED ? 0 : 1)
+                .register(meterRegistry);
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public <T> Mono<T> protect(Mono<T> call) {
+        return Mono.defer(() -> {
+            acquire();
+            boolean[] done = new boolean[1];
+            return call
+                    .doOnSuccess(value -> {
+                        done[0] = true;
+                        onSuccess();
+                    })
+                    .doOnError(error -> {
+                        done[0] = true;
+                        onError(error);
+                    })
+                    .doOnCancel(() -> {
+                        if (!done[0]) {
+                            onAbandoned();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Like {@link #protect(Mono)}; the first delta counts as success.
+     */
+    public <T> Flux<T> protectStream(Flux<T> call) {
+        return Flux.defer(() -> {
+            acquire();
+            boolean[] done = new boolean[1];
+            return call
+                    .doOnNext(element -> {
+                        if (!done[0]) {
+                            done[0] = true;
+                            onSuccess();
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        if (!done[0]) {
+                            done[0] = true;
+                            onSuccess();
+                        }
+                    })
+                    .doOnError(this::onError)
+                    .doOnCancel(() -> {
+                        if (!done[0]) {
+                            onAbandoned();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Applies a health probe result.
+     */
+    public synchronized void onProbe(boolean healthy) {
+        if (healthy && state != State.CLOSED) {
+            logger.info("LLM backend healthy again, closing circuit");
+            close();
+        } else if (!healthy && state == State.CLOSED) {
+            logger.warn("LLM backend reported unhealthy, opening circuit");
+            open();
+        } else if (!healthy && state == State.OPEN) {
+            openUntil = System.nanoTime() + openNanos;
+        }
+    }
+
+    /**
+     * Throws the rejection a call started now would get, without claiming the
+     * half-open trial, so streaming endpoints can fail before responding.
+     */
+    public synchronized void checkAvailable() {
+        boolean openPeriodOver = System.nanoTime() - openUntil >= 0;
+        if ((state == State.OPEN && !openPeriodOver) || (state == State.HALF_OPEN && trialInFlight)) {
+            throw unavailable();
+        }
+    }
+
+    private synchronized void acquire() {
+        if (state == State.OPEN && System.nanoTime() - openUntil >= 0) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.OPEN || (state == State.HALF_OPEN && trialInFlight)) {
+            throw unavailable();
+        }
+        if (state == State.HALF_OPEN) {
+            trialInFlight = true;
+        }
+    }
+
+    // guarded by this
+    private LlmRejectedException unavailable() {
+        long remaining = Math.max(0, openUntil - System.nanoTime());
+        return new LlmRejectedException(HttpStatus.SERVICE_UNAVAILABLE,
+                Duration.ofSeconds(Math.max(1, Duration.ofNanos(remaining).toSeconds())),
+                "LLM backend is unavailable");
+    }
+
+    private synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            logger.info("Trial LLM call succeeded, closing circuit");
+        }
+        close();
+    }
+
+    private synchronized void onError(Throwable error) {
+        if (!isBackendFailure(error)) {
+            onAbandoned();
+            return;
+        }
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            logger.warn("Opening circuit after {} consecutive LLM failures: {}", consecutiveFailures, error.getMessage());
+            open();
+        }
+    }
+
+    private synchronized void onAbandoned() {
+        trialInFlight = false;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.nanoTime() + openNanos;
+        trialInFlight = false;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    private static boolean isBackendFailure(Throwable error) {
+        // exhausted retries wrap the last failure
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof WebClientResponseException response) {
+                return response.getStatusCode().is5xxServerError();
+            }
+            if (cause instanceof WebClientRequestException || cause instanceof TimeoutException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,118 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the rendered, stable part of each conversation's prompt for the
+ * native /completion mode. When the history only grew since the last turn,
+ * the cached text is reused and just the new turns are rendered. Anything
+ * else (a new system block, a trimmed or summarized head) renders from scratch.
+ *
+ * The number of cached conversations is bounded; the least recently used
+ * entry is evicted first.
+ */
+public class CompletionPromptCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompletionPromptCache.class);
+
+    private final ChatTemplate template;
+    private final Map<String, RenderedPrompt> entries;
+    private final AtomicLong reusedTurns = new AtomicLong();
+
+    public CompletionPromptCache(ChatTemplate template, int maxConversations) {
+        this.template = template;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RenderedPrompt> eldest) {
+                return size() > maxConversations;
+            }
+        };
+    }
+
+    /**
+     * Renders the full prompt, ending with the assistant generation header.
+     *
+     * @param conversationId Cache key; {@code null} disables caching
+     * @param systemBlock    Combined system prompt and preferences (may be empty)
+     * @param history        Messages in chronological order
+     */
+    public String render(String conversationId, String systemBlock, List<Message> history) {
+        RenderedPrompt cached = conversationId != null ? get(conversationId) : null;
+
+        StringBuilder prompt;
+        int from;
+        if (cached != null && cached.isPrefixOf(systemBlock, history)) {
+            prompt = new StringBuilder(cached.text().length() + 256).append(cached.text());
+            from = cached.messages().size();
+        } else {
+            prompt = new StringBuilder();
+            if (systemBlock != null && !systemBlock.isEmpty()) {
+                template.appendTurn(prompt, "system", systemBlock);
+            }
+            from = 0;
+        }
+
+        for (int i = from; i < history.size(); i++) {
+            template.appendTurn(prompt, history.get(i));
+        }
+
+        String stable = prompt.toString();
+        if (conversationId != null) {
+            if (cached != null && from > 0) {
+                reusedTurns.addAndGet(from);
+                logger.debug("Reused {} cached turns for conversation {}", from, conversationId);
+            }
+            put(conversationId, new RenderedPrompt(systemBlock, List.copyOf(history), stable));
+        }
+        return stable + template.generationPrompt();
+    }
+
+    public void invalidate(String conversationId) {
+        synchronized (entries) {
+            entries.remove(conversationId);
+        }
+    }
+
+    /**
+     * Turns taken from the cache instead of rendered, over all conversations.
+     */
+    long reusedTurns() {
+        return reusedTurns.get();
+    }
+
+    private RenderedPrompt get(String conversationId) {
+        synchronized (entries) {
+            return entries.get(conversationId);
+        }
+    }
+
+    private void put(String conversationId, RenderedPrompt prompt) {
+        synchronized (entries) {
+            entries.put(conversationId, prompt);
+        }
+    }
+
+    private record RenderedPrompt(String systemBlock, List<Message> messages, String text) {
+
+        boolean isPrefixOf(String otherSystemBlock, List<Message> history) {
+            if (!systemBlock.equals(otherSystemBlock) || messages.size() > history.size()) {
+                return false;
+            }
+            for (int i = 0; i < messages.size(); i++) {
+                Message message = messages.get(i);
+                Message other = history.get(i);
+                if (message != other && !message.equals(other)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.agentflow.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Runs the turns of each conversation one at a time, in arrival order.
+ *
+ * Every conversation with pending turns has a mailbox holding the completion
+ * future of its last queued turn. A new turn swaps itself in as the tail and
+ * starts as soon as its predecessor's future completes, so queued turns run
+ * back to back without polling. Mailboxes live in a ConcurrentHashMap and are
+ * only touched through per-key {@code compute} calls, which lock a single
+ * hash bin: turns of different conversations never contend on a shared lock.
+ * A mailbox is removed once its last pending turn has finished.
+ *
+ * A reactive turn cancelled while still waiting hands its slot on only after
+ * its predecessor is done, so the order is never broken.
+ * Reactive turns that had to wait are started on a worker thread, because
+ * the turn before them may finish on an event loop and the next turn can
+ * block (history processing, summarization).
+ */
+@Component
+public class ConversationSerializer {
+
+    private static final CompletableFuture<Void> IDLE = CompletableFuture.completedFuture(null);
+
+    private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final Timer waitTimer;
+
+    public ConversationSerializer(MeterRegistry meterRegistry) {
+        this.waitTimer = Timer.builder("agentflow.conversation.turn.wait")
+                .description("Time a turn waited for earlier turns of its conversation")
+                .register(meterRegistry);
+        Gauge.builder("agentflow.conversation.mailboxes", mailboxes, ConcurrentHashMap::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a blocking turn on the calling thread once earlier turns of the
+     * conversation have finished.
+     */
+    public <T> T call(String conversationId, Supplier<T> turn) {
+        Ticket ticket = enqueue(conversationId);
+        try {
+            long start = System.nanoTime();
+            ticket.previous().join();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return turn.get();
+        } finally {
+            release(ticket);
+        }
+    }
+
+    /**
+     * Reactive variant of {@link #call(String, Supplier)}; the turn is queued
+     * on subscription and lasts until the returned Mono terminates or is cancelled.
+     */
+    public <T> Mono<T> mono(String conversationId, Supplier<Mono<T>> turn) {
+        return Mono.defer(() -> {
+            Ticket ticket = enqueue(conversationId);
+            return awaitTurn(ticket)
+                    .then(Mono.defer(inTenant(turn)))
+                    .doFinally(signal -> release(ticket));
+        });
+    }
+
+    /**
+     * Streaming variant; the turn lasts until the stream terminates or is cancelled.
+     */
+    public <T> Flux<T> flux(String conversationId, Supplier<Flux<T>> turn) {
+        return Flux.defer(() -> {
+            Ticket ticket = enqueue(conversationId);
+            return awaitTurn(ticket)
+                    .thenMany(Flux.defer(inTenant(turn)))
+                    .doFinally(signal -> release(ticket));
+        });
+    }
+
+    /**
+     * A turn that waited starts on another thread; it runs under the tenant
+     * that queued it.
+     */
+    private static <T> Supplier<T> inTenant(Supplier<T> turn) {
+        String tenant = TenantContext.current();
+        return () -> {
+            String previous = TenantContext.current();
+            TenantContext.set(tenant);
+            try {
+                return turn.get();
+            } finally {
+                TenantContext.set(previous);
+            }
+        };
+    }
+
+    private Mono<Void> awaitTurn(Ticket ticket) {
+        if (ticket.previous().isDone()) {
+            waitTimer.record(0, TimeUnit.NANOSECONDS);
+            return Mono.empty();
+        }
+        long start = System.nanoTime();
+        // cancelling a waiting turn must not cancel the predecessor's future
+        return Mono.fromFuture(ticket.previous(), true)
+                .publishOn(Schedulers.boundedElastic())
+                .doOnSuccess(ignored -> waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Number of conversations with a running or queued turn.
+     */
+    public int activeConversations() {
+        return mailboxes.size();
+    }
+
+    private Ticket enqueue(String conversationId) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<Void>> previous = new AtomicReference<>();
+        mailboxes.compute(conversationId, (id, existing) -> {
+            Mailbox mailbox = existing != null ? existing : new Mailbox();
+            previous.set(mailbox.tail);
+            mailbox.tail = done;
+            mailbox.pending++;
+            return mailbox;
+        });
+        return new Ticket(conversationId, previous.get(), done);
+    }
+
+    /**
+     * Hands the slot to the next turn once this one's predecessor is done, and
+     * drops the mailbox when nothing else is pending.
+     */
+    private void release(Ticket ticket) {
+        ticket.previous().whenComplete((ignored, error) -> {
+            ticket.done().complete(null);
+            mailboxes.computeIfPresent(ticket.conversationId(),
+                    (id, mailbox) -> --mailbox.pending == 0 ? null : mailbox);
+        });
+    }
+
+    /**
+     * Pending turns of one conversation. Fields are only read and written inside
+     * {@code compute} on the conversation's key.
+     */
+    private static final class Mailbox {
+
+        CompletableFuture<Void> tail = IDLE;
+        int pending;
+    }
+
+    /**
+     * A queued turn: it may start when {@code previous} completes and must be
+     * released exactly once, which completes {@code done}.
+     */
+    private record Ticket(String conversationId, CompletableFuture<Void> previous, CompletableFuture<Void> done) {
+    }
+}
@@ -0,0 +1,230 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.ConversationRecord;
+import com.agentflow.dto.ImportResult;
+import com.agentflow.memory.Conversation;
+import com.agentflow.memory.ConversationMemory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Exports and imports conversations as NDJSON, one {@link ConversationRecord}
+ * per line, through the {@link ConversationMemory} interface, so it works with
+ * any store.
+ *
+ * Conversations are read, encoded, decoded and stored {@code transfer.parallelism}
+ * at a time, but results keep their order ({@code flatMapSequential}), so at
+ * most that many conversations are held at once whatever the size of the
+ * corpus, and the last line written is always a valid checkpoint: an export
+ * resumes after the last ID received, an import after the last line number
+ * reported. Exports are ordered by conversation ID so that resuming by ID is
+ * stable while conversations are being added.
+ *
+ * The file variants, used by the command-line mode, keep such a checkpoint in
+ * {@code <file>.checkpoint} and pick up from it when run again.
+ */
+@Service
+public class ConversationTransfer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationTransfer.class);
+
+    /** IDs become file names in the file store. */
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]{0,127}");
+
+    private final ConversationMemory conversationMemory;
+    private final ObjectMapper objectMapper;
+    private final int parallelism;
+    private final int checkpointEvery;
+
+    public ConversationTransfer(
+            ConversationMemory conversationMemory,
+            ObjectMapper objectMapper,
+            @Value("${transfer.parallelism:4}") int parallelism,
+            @Value("${transfer.checkpoint-every:500}") int checkpointEvery) {
+        this.conversationMemory = conversationMemory;
+        this.objectMapper = objectMapper;
+        this.parallelism = Math.max(1, parallelism);
+        this.checkpointEvery = Math.max(1, checkpointEvery);
+    }
+
+    /**
+     * A conversation encoded as one NDJSON line, without the line break.
+     */
+    public record Line(String id, String json) {
+    }
+
+    /**
+     * Conversations with an ID after {@code afterId} (all if null), in ID order.
+     * Conversations deleted while the export runs are left out.
+     */
+    public Flux<Line> export(String afterId) {
+        List<String> ids = conversationMemory.listConversations().stream()
+                .filter(id -> afterId == null || id.compareTo(afterId) > 0)
+                .sorted()
+                .toList();
+        return Flux.fromIterable(ids)
+                .flatMapSequential(id -> Mono.fromCallable(() -> encode(id))
+                        .subscribeOn(Schedulers.boundedElastic()), parallelism);
+    }
+
+    /**
+     * Imports NDJSON lines, skipping the first {@code skip} (already imported by
+     * an earlier run). Blank lines are ignored; a line that cannot be imported
+     * gives an error result and the import goes on.
+     */
+    public Flux<ImportResult> importLines(Flux<String> lines, long skip) {
+        return lines
+                .index()
+                .skip(skip)
+                .filter(line -> !line.getT2().isBlank())
+                .flatMapSequential(line -> Mono.fromCallable(() -> importLine(line.getT1() + 1, line.getT2()))
+                        .subscribeOn(Schedulers.boundedElastic()), parallelism);
+    }
+
+    /**
+     * Lines of a reader as a lazy stream; the reader is closed when the stream ends.
+     */
+    public static Flux<String> lines(BufferedReader reader) {
+        return Flux.using(() -> reader, r -> Flux.fromStream(r.lines()), r -> {
+            try {
+                r.close();
+            } catch (IOException e) {
+                logger.debug("Could not close import input: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Writes all conversations to {@code file}. If a checkpoint from an
+     * interrupted export exists, the file is cut back to the checkpoint and the
+     * export continues after its last conversation.
+     *
+     * @return Conversations written by this run
+     */
+    public long exportToFile(Path file) throws IOException {
+        Path checkpointFile = checkpointFile(file);
+        String afterId = null;
+        long offset = 0;
+        if (Files.exists(checkpointFile) && Files.exists(file)) {
+            List<String> checkpoint = Files.readAllLines(checkpointFile, StandardCharsets.UTF_8);
+            afterId = checkpoint.get(0);
+            offset = Long.parseLong(checkpoint.get(1));
+            logger.info("Resuming export to {} after conversation {}", file, afterId);
+        }
+
+        long written = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // drops whatever an interrupted run wrote after its last checkpoint
+            channel.truncate(offset);
+            channel.position(offset);
+            OutputStream out = Channels.newOutputStream(channel);
+            for (Line line : export(afterId).toIterable(parallelism)) {
+                out.write(line.json().getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+                if (++written % checkpointEvery == 0) {
+                    channel.force(false);
+                    writeCheckpoint(checkpointFile, line.id() + "\n" + channel.position() + "\n");
+                }
+            }
+            channel.force(false);
+        }
+        Files.deleteIfExists(checkpointFile);
+        logger.info("Exported {} conversations to {}", written, file);
+        return written;
+    }
+
+    /**
+     * Imports every line of {@code file}, continuing after the checkpoint of an
+     * interrupted import if there is one.
+     *
+     * @return Lines that could not be imported
+     */
+    public long importFromFile(Path file) throws IOException {
+        Path checkpointFile = checkpointFile(file);
+        long skip = 0;
+        if (Files.exists(checkpointFile)) {
+            skip = Long.parseLong(Files.readAllLines(checkpointFile, StandardCharsets.UTF_8).get(0));
+            logger.info("Resuming import from {} after line {}", file, skip);
+        }
+
+        long imported = 0;
+        long failed = 0;
+        Flux<String> lines = lines(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+        for (ImportResult result : importLines(lines, skip).toIterable(parallelism)) {
+            if (result.error() != null) {
+                failed++;
+                logger.warn("Line {} of {} not imported: {}", result.line(), file, result.error());
+            } else if (++imported % checkpointEvery == 0) {
+                writeCheckpoint(checkpointFile, result.line() + "\n");
+            }
+        }
+        Files.deleteIfExists(checkpointFile);
+        logger.info("Imported {} conversations from {} ({} lines failed)", imported, file, failed);
+        return failed;
+    }
+
+    private Line encode(String id) throws JsonProcessingException {
+        Conversation conversation = conversationMemory.getConversation(id).orElse(null);
+        if (conversation == null) {
+            return null;
+        }
+        ConversationRecord record = new ConversationRecord(conversation.getId(), conversation.getSystemPrompt(),
+                conversation.getCreatedAt(), conversation.getUpdatedAt(), conversation.getMessages());
+        return new Line(id, objectMapper.writeValueAsString(record));
+    }
+
+    private ImportResult importLine(long lineNumber, String json) {
+        ConversationRecord record;
+        try {
+            record = objectMapper.readValue(json, ConversationRecord.class);
+        } catch (JsonProcessingException e) {
+            return new ImportResult(lineNumber, null, "Invalid JSON: " + e.getOriginalMessage());
+        }
+        if (record.id() == null || !VALID_ID.matcher(record.id()).matches()) {
+            return new ImportResult(lineNumber, null, "Invalid conversation id: " + record.id());
+        }
+        Instant createdAt = record.createdAt() != null ? record.createdAt() : Instant.now();
+        Instant updatedAt = record.updatedAt() != null ? record.updatedAt() : createdAt;
+        try {
+            conversationMemory.importConversation(new Conversation(record.id(), record.systemPrompt(),
+                    record.messages() != null ? record.messages() : List.of(), createdAt, updatedAt));
+        } catch (RuntimeException e) {
+            // one conversation the store rejects must not end the whole import
+            return new ImportResult(lineNumber, record.id(), "Could not store conversation: " + e.getMessage());
+        }
+        return new ImportResult(lineNumber, record.id(), null);
+    }
+
+    private static Path checkpointFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".checkpoint");
+    }
+
+    private static void writeCheckpoint(Path checkpointFile, String content) {
+        try {
+            DebouncedFileWriter.writeAtomically(checkpointFile, content.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write checkpoint " + checkpointFile, e);
+        }
+    }
+}
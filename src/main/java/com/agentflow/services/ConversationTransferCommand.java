@@ -0,0 +1,81 @@
+package com.agentflow.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Command-line export and import of the conversation store:
+ *
+ * <pre>
+ * java -jar agent-flow.jar --spring.main.web-application-type=none --transfer.export=conversations.ndjson
+ * java -jar agent-flow.jar --spring.main.web-application-type=none --transfer.import=conversations.ndjson
+ * </pre>
+ *
+ * A jar built with the {@code fast-startup} profile carries an AOT context made
+ * for the servlet application, which cannot start without a web server; run
+ * these with {@code -Dspring.aot.enabled=false}, as in the Docker image:
+ *
+ * <pre>
+ * docker run --rm -v agent-flow-data:/app/data --entrypoint java agent-flow \
+ *     -Dspring.aot.enabled=false -jar app.jar --spring.main.web-application-type=none \
+ *     --memory.type=file --transfer.export=data/conversations.ndjson
+ * </pre>
+ *
+ * Runs before any other runner, then exits with status 0, or 1 if the
+ * transfer failed or some lines could not be imported. Running the same
+ * command again after an interruption resumes from the checkpoint (see
+ * {@link ConversationTransfer}). Without either option this does nothing.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ConversationTransferCommand implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversationTransferCommand.class);
+
+    private final ConversationTransfer transfer;
+    private final ConfigurableApplicationContext context;
+    private final String exportFile;
+    private final String importFile;
+
+    public ConversationTransferCommand(
+            ConversationTransfer transfer,
+            ConfigurableApplicationContext context,
+            @Value("${transfer.export:}") String exportFile,
+            @Value("${transfer.import:}") String importFile) {
+        this.transfer = transfer;
+        this.context = context;
+        this.exportFile = exportFile;
+        this.importFile = importFile;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (exportFile.isBlank() && importFile.isBlank()) {
+            return;
+        }
+        int status;
+        try {
+            if (!exportFile.isBlank()) {
+                transfer.exportToFile(Path.of(exportFile));
+                status = 0;
+            } else {
+                status = transfer.importFromFile(Path.of(importFile)) > 0 ? 1 : 0;
+            }
+        } catch (Exception e) {
+            logger.error("Conversation transfer failed: {}", e.toString());
+            status = 1;
+        }
+        int exitCode = status;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+}
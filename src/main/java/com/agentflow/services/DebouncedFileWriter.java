@@ -0,0 +1,108 @@
+package com.agentflow.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves file writes off the request path. Callers mark their state as changed
+ * with {@link #requestWrite()}; the flush action runs on a background thread
+ * once the delay has passed, so all changes made within one delay are written
+ * together. {@link #close()} runs a final flush if anything is still pending;
+ * a write requested after that (a request still in flight during shutdown)
+ * runs at once on the caller's thread.
+ */
+public class DebouncedFileWriter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DebouncedFileWriter.class);
+
+    private final long delayMs;
+    private final Runnable flush;
+    private final Scheduler scheduler;
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final Object flushLock = new Object();
+    private volatile boolean closed;
+
+    /**
+     * @param flush Writes the current state; runs on the writer thread, never concurrently
+     */
+    public DebouncedFileWriter(String name, long delayMs, Runnable flush) {
+        this.delayMs = delayMs;
+        this.flush = flush;
+        this.scheduler = Schedulers.newSingle(name, true);
+    }
+
+    public void requestWrite() {
+        if (closed) {
+            pending.set(true);
+            runFlush();
+            return;
+        }
+        if (pending.compareAndSet(false, true)) {
+            try {
+                scheduler.schedule(this::runFlush, delayMs, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // closed concurrently
+                runFlush();
+            }
+        }
+    }
+
+    /**
+     * Whether a write has been requested and not started yet.
+     */
+    public boolean isPending() {
+        return pending.get();
+    }
+
+    private void runFlush() {
+        synchronized (flushLock) {
+            // cleared first: a change made while flushing schedules another write
+            if (!pending.compareAndSet(true, false)) {
+                return;
+            }
+            try {
+                flush.run();
+            } catch (RuntimeException e) {
+                logger.error("Background write failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        scheduler.dispose();
+        runFlush();
+    }
+
+    /**
+     * Replaces the file with the given content so that readers (and a crash)
+     * see either the old or the new file, never a partial one.
+     */
+    public static void writeAtomically(Path target, byte[] content) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, content);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.agentflow.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Sends a backup copy of a slow LLM request to another replica.
+ *
+ * If a unary call has not returned, or a stream has not produced its first
+ * delta, within the configured percentile of recent latencies, the same
+ * request is sent to a second replica and whichever answers first wins; the
+ * other one is cancelled. Unary and streaming calls keep separate latency
+ * windows (total latency and time to first delta respectively). Extra load is
+ * capped by a budget: every request earns {@code budget-percent}/100 of a
+ * hedge, and a hedge is only sent when a whole one has been earned.
+ *
+ * Latencies and the hedge delay are counted from when an attempt is admitted,
+ * not from when it was queued for a slot, so hedges target slow replicas
+ * rather than local congestion. A hedge is also skipped when the backup is
+ * unavailable at the moment it would be sent, e.g. while the admission limiter
+ * is saturated and the backup would only queue behind other requests.
+ */
+@Component
+public class HedgingPolicy {
+
+    private static final Logger logger = LoggerFactory.getLogger(HedgingPolicy.class);
+
+    /** Samples required before hedging starts. */
+    private static final int MIN_SAMPLES = 20;
+    /** Hedge credits that can be saved up during quiet periods. */
+    private static final double MAX_CREDITS = 10;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final double budgetRatio;
+    private final long minDelayNanos;
+
+    private final LatencyWindow unaryLatency;
+    private final LatencyWindow firstDeltaLatency;
+
+    // guarded by this
+    private double credits;
+
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+
+    public HedgingPolicy(
+            @Value("${llama.hedge.enabled:false}") boolean enabled,
+            @Value("${llama.hedge.percentile:0.95}") double percentile,
+            @Value("${llama.hedge.budget-percent:10}") double budgetPercent,
+            @Value("${llama.hedge.min-delay-ms:50}") long minDelayMs,
+            @Value("${llama.hedge.window:256}") int window,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.budgetRatio = budgetPercent / 100.0;
+        this.minDelayNanos = Duration.ofMillis(minDelayMs).toNanos();
+        this.unaryLatency = new LatencyWindow(window);
+        this.firstDeltaLatency = new LatencyWindow(window);
+        this.hedgesSent = Counter.builder("agentflow.llm.hedge")
+                .tag("result", "sent")
+                .register(meterRegistry);
+        this.hedgesWon = Counter.builder("agentflow.llm.hedge")
+                .tag("result", "won")
+                .register(meterRegistry);
+        logger.info("HedgingPolicy {} (p{}, budget {}%)", enabled ? "enabled" : "disabled",
+                Math.round(percentile * 100), budgetPercent);
+    }
+
+    /**
+     * Runs a unary call on the primary replica, hedged to the backup if it is slow.
+     *
+     * @param backupAvailable Whether a backup may be sent; checked again when the hedge is due
+     * @param admission       Wraps each attempt in admission control; the attempt is
+     *                        subscribed once it is admitted
+     * @param attempt         Builds the call for a replica index (0 = primary, 1 = backup)
+     */
+    public <T> Mono<T> hedge(BooleanSupplier backupAvailable, UnaryOperator<Mono<T>> admission,
+            Function<Integer, Mono<T>> attempt) {
+        earnCredit();
+        Duration delay = backupAvailable.getAsBoolean() ? hedgeDelay(unaryLatency) : null;
+        if (delay == null) {
+            return admission.apply(timed(attempt.apply(0), unaryLatency, false));
+        }
+        return Mono.defer(() -> {
+            Sinks.One<Boolean> admitted = Sinks.one();
+            Mono<T> primary = admission.apply(timed(attempt.apply(0), unaryLatency, true)
+                            .doOnSubscribe(subscription -> admitted.tryEmitValue(true)))
+                    .doOnError(error -> admitted.tryEmitValue(false));
+            Mono<T> backup = backupAfter(admitted, delay, backupAvailable)
+                    .flatMap(tick -> admission.apply(timed(attempt.apply(1), unaryLatency, false))
+                            .doOnNext(value -> hedgesWon.increment()));
+            return Mono.firstWithValue(primary, backup).onErrorMap(HedgingPolicy::unwrap);
+        });
+    }
+
+    /**
+     * Streaming variant of {@link #hedge}; the race is decided by the first delta.
+     */
+    public <T> Flux<T> hedgeStream(BooleanSupplier backupAvailable, UnaryOperator<Flux<T>> admission,
+            Function<Integer, Flux<T>> attempt) {
+        earnCredit();
+        Duration delay = backupAvailable.getAsBoolean() ? hedgeDelay(firstDeltaLatency) : null;
+        if (delay == null) {
+            return admission.apply(timedFirst(attempt.apply(0), false));
+        }
+        return Flux.defer(() -> {
+            Sinks.One<Boolean> admitted = Sinks.one();
+            Flux<T> primary = admission.apply(timedFirst(attempt.apply(0), true)
+                            .doOnSubscribe(subscription -> admitted.tryEmitValue(true)))
+                    .doOnError(error -> admitted.tryEmitValue(false));
+            Flux<T> backup = backupAfter(admitted, delay, backupAvailable)
+                    .flatMapMany(tick -> {
+                        boolean[] first = {true};
+                        return admission.apply(timedFirst(attempt.apply(1), false)).doOnNext(value -> {
+                            if (first[0]) {
+                                first[0] = false;
+                                hedgesWon.increment();
+                            }
+                        });
+                    });
+            return Flux.firstWithValue(primary, backup).onErrorMap(HedgingPolicy::unwrap);
+        });
+    }
+
+    /**
+     * Emits when the backup should be sent: {@code delay} after the primary was
+     * admitted, if a backup is still available and a hedge credit can be spent.
+     * Completes empty if the primary failed before it was admitted.
+     */
+    private Mono<Long> backupAfter(Sinks.One<Boolean> primaryAdmitted, Duration delay, BooleanSupplier backupAvailable) {
+        return primaryAdmitted.asMono()
+                .filter(admitted -> admitted)
+                .flatMap(admitted -> Mono.delay(delay))
+                .filter(tick -> backupAvailable.getAsBoolean() && trySpendCredit())
+                .doOnNext(tick -> hedgesSent.increment());
+    }
+
+    private Duration hedgeDelay(LatencyWindow window) {
+        if (!enabled) {
+            return null;
+        }
+        long nanos = window.percentile(percentile, MIN_SAMPLES);
+        return nanos < 0 ? null : Duration.ofNanos(Math.max(minDelayNanos, nanos));
+    }
+
+    /**
+     * Current delay before a unary call is hedged; null until there are enough samples.
+     */
+    Duration unaryHedgeDelay() {
+        return hedgeDelay(unaryLatency);
+    }
+
+    private synchronized void earnCredit() {
+        credits = Math.min(MAX_CREDITS, credits + budgetRatio);
+    }
+
+    private synchronized boolean trySpendCredit() {
+        if (credits < 1) {
+            return false;
+        }
+        credits -= 1;
+        return true;
+    }
+
+    /**
+     * Records the call's latency when it succeeds. With {@code recordCancel},
+     * a call cancelled first (a primary that lost the race to its backup)
+     * records the time it had taken so far: it would have taken at least that
+     * long, and leaving it out would drop the slow tail from the window, so
+     * hedges would fire earlier and earlier.
+     */
+    private static <T> Mono<T> timed(Mono<T> call, LatencyWindow window, boolean recordCancel) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            boolean[] done = new boolean[1];
+            return call
+                    .doOnSuccess(value -> {
+                        done[0] = true;
+                        window.record(System.nanoTime() - start);
+                    })
+                    .doOnError(error -> done[0] = true)
+                    .doOnCancel(() -> {
+                        if (recordCancel && !done[0]) {
+                            window.record(System.nanoTime() - start);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Like {@link #timed}, for the time to the first delta.
+     */
+    private <T> Flux<T> timedFirst(Flux<T> call, boolean recordCancel) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            boolean[] first = {true};
+            return call
+                    .doOnNext(value -> {
+                        if (first[0]) {
+                            first[0] = false;
+                            firstDeltaLatency.record(System.nanoTime() - start);
+                        }
+                    })
+                    .doOnTerminate(() -> first[0] = false)
+                    .doOnCancel(() -> {
+                        if (recordCancel && first[0]) {
+                            first[0] = false;
+                            firstDeltaLatency.record(System.nanoTime() - start);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * firstWithValue reports "all sources failed" with the real errors attached;
+     * surface the first real error instead.
+     */
+    private static Throwable unwrap(Throwable error) {
+        if (error instanceof NoSuchElementException && error.getCause() != null) {
+            for (Throwable cause : Exceptions.unwrapMultiple(error.getCause())) {
+                if (!(cause instanceof NoSuchElementException)) {
+                    return cause;
+                }
+            }
+        }
+        return error;
+    }
+
+    /**
+     * Fixed-size ring of recent latencies. The percentile is recomputed every
+     * few samples rather than on every request.
+     */
+    private static final class LatencyWindow {
+
+        private static final int RECOMPUTE_EVERY = 16;
+
+        private final long[] samples;
+        private int count;
+        private int next;
+        private int sinceComputed;
+        private long cachedPercentile = -1;
+        private double cachedFor = -1;
+
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+            sinceComputed++;
+        }
+
+        synchronized long percentile(double p, int minSamples) {
+            if (count < minSamples) {
+                return -1;
+            }
+            if (cachedPercentile < 0 || cachedFor != p || sinceComputed >= RECOMPUTE_EVERY) {
+                long[] sorted = Arrays.copyOf(samples, count);
+                Arrays.sort(sorted);
+                cachedPercentile = sorted[Math.min(count - 1, (int) Math.ceil(p * count) - 1)];
+                cachedFor = p;
+                sinceComputed = 0;
+            }
+            return cachedPercentile;
+        }
+    }
+}
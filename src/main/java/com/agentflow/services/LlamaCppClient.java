@@ -2,26 +2,44 @@ package com.agentflow.services;
 
 import com.agentflow.dto.*;
 import com.agentflow.interfaces.LlmClient;
+import com.agentflow.services.AdmissionController.Priority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.codec.ServerSentEvent;
-import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 public class LlamaCppClient implements LlmClient {
 
 	private static final Logger logger = LoggerFactory.getLogger(LlamaCppClient.class);
 
-	private final WebClient webClient;
+	private static final Message NO_SYSTEM_MESSAGE = new Message("system", "");
+
+	private static final String CHAT_COMPLETIONS_URI = "/v1/chat/completions";
+	private static final String COMPLETION_URI = "/completion";
+	private static final String HEALTH_URI = "/health";
+
+	private final List<Replica> replicas;
+	private final AtomicInteger nextReplica = new AtomicInteger();
 	private final UserPreferenceService userPreferenceService;
 	private final int maxTokens;
 	private final long timeoutMs;
@@ -30,64 +48,166 @@ public class LlamaCppClient implements LlmClient {
 	private final double temperature;
 	private final List<String> stopSequences;
 
+	private final boolean completionMode;
+	private final ChatTemplate chatTemplate;
+	private final CompletionPromptCache promptCache;
+	private final List<String> completionStopSequences;
+	private final int defaultKeepTokens;
+	private final Map<String, Integer> systemTokenCounts = new ConcurrentHashMap<>();
+
+	private final ChatRequestBodyWriter bodyWriter;
+	private final Map<SystemPromptKey, Message> systemMessages = new ConcurrentHashMap<>();
+
+	private final boolean singleFlightEnabled;
+	private final SingleFlight<FlightKey> singleFlight;
+	private final AdmissionController admissionController;
+	private final TenantQuotas tenantQuotas;
+	private final CircuitBreaker circuitBreaker;
+	private final HedgingPolicy hedgingPolicy;
+	private final LlmMetrics metrics;
+
 	public LlamaCppClient(
-			@Value("${llama.base-url:http://localhost:8080}") String baseUrl,
+			@Value("${llama.base-urls:${llama.base-url:http://localhost:8080}}") List<String> baseUrls,
 			@Value("${llama.max-tokens:256}") int maxTokens,
 			@Value("${llama.timeout-ms:30000}") long timeoutMs,
 			@Value("${llama.max-retries:3}") int maxRetries,
 			@Value("${llama.temperature:0.7}") double temperature,
 			@Value("${llama.stop-sequences:###,\\nUser:,\\nAssistant:}") List<String> stopSequences,
-			UserPreferenceService userPreferenceService) {
-		this.webClient = WebClient.builder()
-				.baseUrl(baseUrl)
-				.build();
+			@Value("${llama.mode:chat}") String mode,
+			@Value("${llama.completion.template:llama3}") String template,
+			@Value("${llama.completion.cache-size:1000}") int promptCacheSize,
+			@Value("${llama.completion.n-keep:0}") int defaultKeepTokens,
+			@Value("${llama.single-flight.enabled:true}") boolean singleFlightEnabled,
+			UserPreferenceService userPreferenceService,
+			AdmissionController admissionController,
+			TenantQuotas tenantQuotas,
+			CircuitBreaker circuitBreaker,
+			HedgingPolicy hedgingPolicy,
+			LlmMetrics metrics,
+			MeterRegistry meterRegistry) {
+		this.replicas = baseUrls.stream()
+				.map(String::trim)
+				.filter(url -> !url.isEmpty())
+				.map(url -> new Replica(url, WebClient.builder().baseUrl(url).build()))
+				.toList();
+		if (replicas.isEmpty()) {
+			throw new IllegalArgumentException("llama.base-urls must name at least one server");
+		}
 		this.userPreferenceService = userPreferenceService;
+		this.admissionController = admissionController;
+		this.tenantQuotas = tenantQuotas;
+		this.circuitBreaker = circuitBreaker;
+		this.hedgingPolicy = hedgingPolicy;
+		this.metrics = metrics;
 		this.maxTokens = maxTokens;
 		this.timeoutMs = timeoutMs;
 		this.maxRetries = maxRetries;
 		this.temperature = temperature;
 		this.stopSequences = stopSequences;
+		this.bodyWriter = new ChatRequestBodyWriter("default", temperature, maxTokens, stopSequences);
+		Counter coalescedUnary = coalescedCounter(meterRegistry, "unary");
+		Counter coalescedStreams = coalescedCounter(meterRegistry, "stream");
+		this.singleFlightEnabled = singleFlightEnabled;
+		this.singleFlight = new SingleFlight<>(key -> {
+			logger.debug("Joined in-flight {} request to {}", key.stream() ? "streaming" : "unary", key.endpoint());
+			(key.stream() ? coalescedStreams : coalescedUnary).increment();
+		});
+
+		this.completionMode = "completion".equalsIgnoreCase(mode);
+		this.chatTemplate = ChatTemplate.fromName(template);
+		this.promptCache = new CompletionPromptCache(chatTemplate, promptCacheSize);
+		this.completionStopSequences = new ArrayList<>(stopSequences);
+		this.completionStopSequences.add(chatTemplate.stopToken());
+		this.defaultKeepTokens = defaultKeepTokens;
+		logger.info("LlamaCppClient using {} endpoint on {} replica(s) (template={})",
+				completionMode ? COMPLETION_URI : CHAT_COMPLETIONS_URI, replicas.size(), chatTemplate);
+	}
+
+	private static Counter coalescedCounter(MeterRegistry meterRegistry, String type) {
+		return Counter.builder("agentflow.llm.coalesced")
+				.description("Requests served by joining an identical request already in flight")
+				.tag("type", type)
+				.register(meterRegistry);
 	}
 
 	@Override
 	public String generate(String prompt) {
 		logger.info("Generating response for single prompt (stateless)");
-		List<Message> messages = new ArrayList<>();
-		
-		String preferencesPrompt = userPreferenceService.getPreferencesPrompt();
-		if (!preferencesPrompt.isEmpty()) {
-			messages.add(new Message("system", preferencesPrompt));
+		Message system = systemMessage(null);
+		List<Message> history = List.of(new Message("user", prompt));
+		if (completionMode) {
+			return executeCompletion(null, systemBlock(system), history, Caller.interactive(null));
 		}
-		
-		messages.add(new Message("user", prompt));
-		return executeRequest(messages);
+		return executeRequest(system, history, Caller.interactive(null));
 	}
 
+	/**
+	 * Used for internal work such as summarization, so it yields to interactive
+	 * calls under load.
+	 */
 	@Override
 	public String generateRaw(String prompt) {
 		logger.info("Generating raw response (no preferences)");
-		List<Message> messages = List.of(new Message("user", prompt));
-		return executeRequest(messages);
+		List<Message> history = List.of(new Message("user", prompt));
+		if (completionMode) {
+			return executeCompletion(null, "", history, Caller.background());
+		}
+		return executeRequest(null, history, Caller.background());
 	}
 
 	@Override
 	public String generate(String systemPrompt, List<Message> history) {
+		return generate(null, systemPrompt, history);
+	}
+
+	@Override
+	public String generate(String conversationId, String systemPrompt, List<Message> history) {
 		logger.info("Generating response with conversation history ({} messages)", history.size());
-		List<Message> messages = buildMessages(systemPrompt, history);
-		return executeRequest(messages);
+		Message system = systemMessage(systemPrompt);
+		if (completionMode) {
+			return executeCompletion(conversationId, systemBlock(system), history, Caller.interactive(conversationId));
+		}
+		return executeRequest(system, history, Caller.interactive(conversationId));
 	}
 
 	@Override
 	public Flux<String> generateStream(String systemPrompt, List<Message> history) {
-		logger.info("Streaming response with conversation history ({} messages)", history.size());
-		List<Message> messages = buildMessages(systemPrompt, history);
-		return executeStreamRequest(messages);
+		return generateStream(null, systemPrompt, history);
 	}
 
-	private List<Message> buildMessages(String systemPrompt, List<Message> history) {
-		List<Message> messages = new ArrayList<>();
+	@Override
+	public Flux<String> generateStream(String conversationId, String systemPrompt, List<Message> history) {
+		logger.info("Streaming response with conversation history ({} messages)", history.size());
+		Message system = systemMessage(systemPrompt);
+		if (completionMode) {
+			return executeCompletionStream(conversationId, systemBlock(system), history, Caller.interactive(conversationId));
+		}
+		return executeStreamRequest(system, history, Caller.interactive(conversationId));
+	}
 
+	/**
+	 * Returns the system message combining the conversation's system prompt with
+	 * the user preferences, or null if both are empty. The combined message is
+	 * cached so its JSON encoding is reused across turns.
+	 */
+	private Message systemMessage(String systemPrompt) {
 		String preferencesPrompt = userPreferenceService.getPreferencesPrompt();
+		SystemPromptKey key = new SystemPromptKey(systemPrompt, preferencesPrompt);
+		Message cached = systemMessages.get(key);
+		if (cached != null) {
+			return cached == NO_SYSTEM_MESSAGE ? null : cached;
+		}
+
+		String fullSystemPrompt = buildSystemPrompt(systemPrompt, preferencesPrompt);
+		Message message = fullSystemPrompt.isEmpty() ? NO_SYSTEM_MESSAGE : new Message("system", fullSystemPrompt);
+		if (systemMessages.size() > 1000) {
+			systemMessages.clear();
+		}
+		systemMessages.put(key, message);
+		return message == NO_SYSTEM_MESSAGE ? null : message;
+	}
+
+	private String buildSystemPrompt(String systemPrompt, String preferencesPrompt) {
 		StringBuilder fullSystemPrompt = new StringBuilder();
 
 		if (systemPrompt != null && !systemPrompt.isBlank()) {
@@ -101,80 +221,330 @@ public class LlamaCppClient implements LlmClient {
 			fullSystemPrompt.append(preferencesPrompt);
 		}
 
-		if (fullSystemPrompt.length() > 0) {
-			messages.add(new Message("system", fullSystemPrompt.toString()));
-		}
+		return fullSystemPrompt.toString();
+	}
 
-		messages.addAll(history);
-		return messages;
+	private static String systemBlock(Message system) {
+		return system != null ? system.content() : "";
 	}
 
-	private String executeRequest(List<Message> messages) {
-		logger.info("Sending {} messages to LLM (timeout={}ms, max-tokens={})", 
-				messages.size(), timeoutMs, maxTokens);
+	/**
+	 * Checks what {@link #sharedStream} would otherwise only find out once
+	 * subscribed, when a streaming response has already been committed.
+	 *
+	 * @throws LlmRejectedException if the circuit is open, the tenant is over its
+	 *         token quota or the admission queue is full
+	 */
+	@Override
+	public void checkAvailable() {
+		Caller caller = Caller.interactive(null);
+		circuitBreaker.checkAvailable();
+		tenantQuotas.checkQuota(caller.tenant());
+		admissionController.checkCapacity(caller.priority(), caller.tenant());
+	}
 
-		OpenAiChatRequest request = new OpenAiChatRequest(
-				"default", 
-				messages,
-				temperature,
-				maxTokens,
-				stopSequences,
-				false);
+	private String executeRequest(Message system, List<Message> history, Caller caller) {
+		ChatRequestBodyWriter.Body body = bodyWriter.write(system, history, false);
+		logger.info("Sending {} messages to LLM (timeout={}ms, max-tokens={})", 
+				body.messageCount(), timeoutMs, maxTokens);
 
-		OpenAiChatResponse response = webClient.post()
-				.uri("/v1/chat/completions")
-				.bodyValue(request)
-				.retrieve()
-				.bodyToMono(OpenAiChatResponse.class)
-				.retryWhen(Retry.backoff(maxRetries, Duration.ofMillis(500))
-						.filter(ex -> !(ex instanceof java.util.concurrent.TimeoutException))
-						.doBeforeRetry(signal -> logger.warn("Retrying LLM request (attempt {}): {}",
-								signal.totalRetries() + 1, signal.failure().getMessage())))
-				.timeout(Duration.ofMillis(timeoutMs))
+		OpenAiChatResponse response = shared(FlightKey.chat(system, history, false), caller, replica ->
+				post(replica.client(), CHAT_COMPLETIONS_URI, body)
+						.retrieve()
+						.bodyToMono(OpenAiChatResponse.class)
+						.retryWhen(retrySpec(CHAT_COMPLETIONS_URI, replica))
+						.timeout(Duration.ofMillis(timeoutMs)))
 				.block();
 
+		String content = null;
 		if (response != null && !response.choices().isEmpty()) {
-			String content = response.choices().get(0).message().content();
-			if (content != null) {
-				content = content.trim();
-				logger.info("Generated response: {}", content);
-				return content;
-			}
+			content = response.choices().get(0).message().content();
+		}
+		if (response != null && response.usage() != null) {
+			tenantQuotas.recordUsage(caller.tenant(), response.usage().prompt_tokens(), response.usage().completion_tokens());
+		} else {
+			tenantQuotas.recordUsage(caller.tenant(), estimateTokens(body.contentLength()),
+					estimateTokens(content != null ? content.length() : 0));
+		}
+
+		if (content != null) {
+			content = content.trim();
+			logger.info("Generated response: {}", content);
+			return content;
 		}
 
 		logger.warn("Received empty or null response from LLM server");
 		return "";
 	}
 
-	private Flux<String> executeStreamRequest(List<Message> messages) {
+	private Flux<String> executeStreamRequest(Message system, List<Message> history, Caller caller) {
+		ChatRequestBodyWriter.Body body = bodyWriter.write(system, history, true);
 		logger.info("Streaming {} messages to LLM (timeout={}ms, max-tokens={})",
-				messages.size(), timeoutMs, maxTokens);
+				body.messageCount(), timeoutMs, maxTokens);
 
-		OpenAiChatRequest request = new OpenAiChatRequest(
-				"default",
-				messages,
-				temperature,
+		return sharedStream(FlightKey.chat(system, history, true), caller, body.contentLength(), replica ->
+				post(replica.client(), CHAT_COMPLETIONS_URI, body)
+						.retrieve()
+						.bodyToFlux(DataBuffer.class)
+						.transform(chunks -> SseContentParser.decode(chunks, true))
+						.timeout(Duration.ofMillis(timeoutMs)));
+	}
+
+	/**
+	 * Runs a unary call through the circuit breaker and admission control, or
+	 * joins an identical one already in flight. The call goes to the caller's
+	 * replica and may be hedged to the next one (see {@link HedgingPolicy});
+	 * each attempt is admitted separately and retries happen inside its slot.
+	 *
+	 * @throws LlmRejectedException if the caller's tenant is over its token quota
+	 */
+	private <T> Mono<T> shared(FlightKey key, Caller caller, Function<Replica, Mono<T>> call) {
+		tenantQuotas.checkQuota(caller.tenant());
+		int primary = primaryReplica(caller);
+		Supplier<Mono<T>> admitted = () -> circuitBreaker.protect(
+				hedgingPolicy.hedge(this::backupAvailable,
+						request -> admissionController.admit(caller.priority(), caller.tenant(), request),
+						attempt -> Mono.defer(() -> {
+							Replica replica = replica(primary + attempt);
+							return metrics.unary(key.endpoint(), replica.name(), call.apply(replica));
+						})));
+		return singleFlightEnabled ? singleFlight.mono(key, admitted) : Mono.defer(admitted);
+	}
+
+	/**
+	 * Runs a streaming call, or joins an identical one already in flight and
+	 * receives its deltas from the start. The upstream is cancelled only when
+	 * every joined subscriber has cancelled. Streams carry no usage, so the
+	 * caller is charged an estimate: prompt size / 4 and one token per delta.
+	 *
+	 * @throws LlmRejectedException if the caller's tenant is over its token quota
+	 */
+	private Flux<String> sharedStream(FlightKey key, Caller caller, int promptChars,
+			Function<Replica, Flux<String>> call) {
+		tenantQuotas.checkQuota(caller.tenant());
+		int primary = primaryReplica(caller);
+		Supplier<Flux<String>> admitted = () -> circuitBreaker.protectStream(
+				hedgingPolicy.hedgeStream(this::backupAvailable,
+						request -> admissionController.admitStream(caller.priority(), caller.tenant(), request),
+						attempt -> Flux.defer(() -> {
+							Replica replica = replica(primary + attempt);
+							return metrics.stream(key.endpoint(), replica.name(), call.apply(replica));
+						})))
+				.transform(deltas -> metrics.trackCancellation(deltas, maxTokens))
+				.doOnComplete(() -> logger.info("Stream completed"))
+				.doOnError(e -> logger.error("Stream error: {}", e.getMessage()));
+		Flux<String> deltas = singleFlightEnabled ? singleFlight.flux(key, admitted) : Flux.defer(admitted);
+		return Flux.defer(() -> {
+			long[] completionTokens = new long[1];
+			return deltas
+					.doOnNext(delta -> completionTokens[0]++)
+					.doFinally(signal -> tenantQuotas.recordUsage(caller.tenant(),
+							estimateTokens(promptChars), completionTokens[0]));
+		});
+	}
+
+	private static long estimateTokens(long chars) {
+		return (chars + 3) / 4;
+	}
+
+	/**
+	 * A backup attempt needs a second replica and a free admission slot; while
+	 * calls are queueing, a hedge would only add to the queue.
+	 */
+	private boolean backupAvailable() {
+		return replicas.size() > 1 && !admissionController.isSaturated();
+	}
+
+	/**
+	 * Conversations stick to one replica so its KV cache can be reused across
+	 * turns; stateless calls are spread round-robin.
+	 */
+	private int primaryReplica(Caller caller) {
+		if (replicas.size() == 1) {
+			return 0;
+		}
+		return caller.conversationId() != null
+				? Math.floorMod(caller.conversationId().hashCode(), replicas.size())
+				: Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+	}
+
+	private Replica replica(int index) {
+		return replicas.get(index % replicas.size());
+	}
+
+	/**
+	 * Posts a pre-assembled body. The composite buffer is created per subscription
+	 * because it is released once written, and retries resubscribe.
+	 */
+	private WebClient.RequestHeadersSpec<?> post(WebClient client, String uri, ChatRequestBodyWriter.Body body) {
+		return client.post()
+				.uri(uri)
+				.contentType(MediaType.APPLICATION_JSON)
+				.contentLength(body.contentLength())
+				.body(BodyInserters.fromDataBuffers(Mono.fromSupplier(body::toDataBuffer)));
+	}
+
+	private String executeCompletion(String conversationId, String systemBlock, List<Message> history,
+			Caller caller) {
+		String prompt = promptCache.render(conversationId, systemBlock, history);
+		logger.info("Sending rendered prompt to /completion ({} chars, timeout={}ms, max-tokens={})",
+				prompt.length(), timeoutMs, maxTokens);
+
+		LlamaCompletionResponse response = shared(FlightKey.completion(prompt, false), caller, replica ->
+				systemTokenCount(replica.client(), systemBlock)
+						.flatMap(nKeep -> replica.client().post()
+								.uri(COMPLETION_URI)
+								.bodyValue(completionRequest(prompt, nKeep, false))
+								.retrieve()
+								.bodyToMono(LlamaCompletionResponse.class)
+								.retryWhen(retrySpec(COMPLETION_URI, replica)))
+						.timeout(Duration.ofMillis(timeoutMs)))
+				.block();
+
+		if (response != null) {
+			tenantQuotas.recordUsage(caller.tenant(),
+					response.tokens_evaluated() != null ? response.tokens_evaluated() : estimateTokens(prompt.length()),
+					response.tokens_predicted() != null ? response.tokens_predicted()
+							: estimateTokens(response.content() != null ? response.content().length() : 0));
+		}
+		if (response != null && response.content() != null) {
+			logger.info("Completion reused {} cached prompt tokens (evaluated {})",
+					response.tokens_cached(), response.tokens_evaluated());
+			String content = response.content().trim();
+			logger.info("Generated response: {}", content);
+			return content;
+		}
+
+		logger.warn("Received empty or null response from LLM server");
+		return "";
+	}
+
+	private Flux<String> executeCompletionStream(String conversationId, String systemBlock, List<Message> history,
+			Caller caller) {
+		String prompt = promptCache.render(conversationId, systemBlock, history);
+		logger.info("Streaming rendered prompt to /completion ({} chars, timeout={}ms, max-tokens={})",
+				prompt.length(), timeoutMs, maxTokens);
+
+		return sharedStream(FlightKey.completion(prompt, true), caller, prompt.length(), replica ->
+				systemTokenCount(replica.client(), systemBlock)
+						.flatMapMany(nKeep -> replica.client().post()
+								.uri(COMPLETION_URI)
+								.bodyValue(completionRequest(prompt, nKeep, true))
+								.retrieve()
+								.bodyToFlux(DataBuffer.class)
+								.transform(chunks -> SseContentParser.decode(chunks, false)))
+						.timeout(Duration.ofMillis(timeoutMs)));
+	}
+
+	private LlamaCompletionRequest completionRequest(String prompt, int nKeep, boolean stream) {
+		return new LlamaCompletionRequest(
+				prompt,
 				maxTokens,
-				stopSequences,
-				true); // stream = true
+				temperature,
+				completionStopSequences,
+				nKeep,
+				true, // cache_prompt: reuse the KV cache for the unchanged prefix
+				stream);
+	}
+
+	/**
+	 * Number of tokens in the rendered system turn, used as n_keep so that a
+	 * context shift on the server never discards the system prompt.
+	 * Counts are cached per system block; on failure the configured default is used.
+	 */
+	private Mono<Integer> systemTokenCount(WebClient client, String systemBlock) {
+		if (systemBlock.isEmpty()) {
+			return Mono.just(defaultKeepTokens);
+		}
+		Integer cached = systemTokenCounts.get(systemBlock);
+		if (cached != null) {
+			return Mono.just(cached);
+		}
 
-		return webClient.post()
-				.uri("/v1/chat/completions")
-				.bodyValue(request)
+		StringBuilder systemTurn = new StringBuilder();
+		chatTemplate.appendTurn(systemTurn, "system", systemBlock);
+
+		return client.post()
+				.uri("/tokenize")
+				.bodyValue(new LlamaTokenizeRequest(systemTurn.toString()))
 				.retrieve()
-				.bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<OpenAiStreamChunk>>() {})
-				.timeout(Duration.ofMillis(timeoutMs))
-				.mapNotNull(sse -> {
-					OpenAiStreamChunk chunk = sse.data();
-					if (chunk != null && chunk.choices() != null && !chunk.choices().isEmpty()) {
-						OpenAiStreamChunk.Delta delta = chunk.choices().get(0).delta();
-						if (delta != null && delta.content() != null) {
-							return delta.content();
-						}
+				.bodyToMono(LlamaTokenizeResponse.class)
+				.map(response -> response.tokens() != null ? response.tokens().size() : defaultKeepTokens)
+				.doOnNext(count -> {
+					if (systemTokenCounts.size() > 1000) {
+						systemTokenCounts.clear();
 					}
-					return null;
+					systemTokenCounts.put(systemBlock, count);
 				})
-				.doOnComplete(() -> logger.info("Stream completed"))
-				.doOnError(e -> logger.error("Stream error: {}", e.getMessage()));
+				.onErrorResume(e -> {
+					logger.warn("Could not tokenize system prompt, using n_keep={}: {}", defaultKeepTokens, e.getMessage());
+					return Mono.just(defaultKeepTokens);
+				});
+	}
+
+	private Retry retrySpec(String endpoint, Replica replica) {
+		return Retry.backoff(maxRetries, Duration.ofMillis(500))
+				.filter(ex -> !(ex instanceof java.util.concurrent.TimeoutException))
+				.doBeforeRetry(signal -> {
+					metrics.retried(endpoint, replica.name());
+					logger.warn("Retrying LLM request (attempt {}): {}",
+							signal.totalRetries() + 1, signal.failure().getMessage());
+				});
+	}
+
+	/**
+	 * Opens up to {@code connections} pooled connections to every replica by sending
+	 * that many concurrent {@code /health} requests, after setting up the shared event
+	 * loops and DNS resolver. A replica that does not answer is skipped.
+	 *
+	 * @return How many of the requests got a response, whatever its status
+	 */
+	public Mono<Long> warmConnections(int connections) {
+		return HttpClient.create().warmup()
+				.thenMany(Flux.fromIterable(replicas))
+				.flatMap(replica -> Flux.range(0, connections)
+						.flatMap(i -> replica.client().get().uri(HEALTH_URI)
+								.exchangeToMono(response -> response.releaseBody().thenReturn(1))
+								.timeout(Duration.ofMillis(timeoutMs))
+								.onErrorResume(e -> Mono.empty()), connections))
+				.count();
+	}
+
+	private record SystemPromptKey(String systemPrompt, String preferencesPrompt) {
+	}
+
+	/**
+	 * An LLM server; {@code name} is its base URL, used as the metrics backend tag.
+	 */
+	private record Replica(String name, WebClient client) {
+	}
+
+	/**
+	 * Who a call is made for, captured on the request thread when the call is made.
+	 */
+	private record Caller(String tenant, Priority priority, String conversationId) {
+
+		static Caller interactive(String conversationId) {
+			return new Caller(TenantContext.current(), Priority.INTERACTIVE, conversationId);
+		}
+
+		static Caller background() {
+			return new Caller(TenantContext.current(), Priority.BACKGROUND, null);
+		}
+	}
+
+	/**
+	 * Identifies a request payload for single-flight: the endpoint plus either
+	 * the chat messages or the rendered /completion prompt.
+	 */
+	private record FlightKey(String endpoint, Message system, List<Message> history, String prompt, boolean stream) {
+
+		static FlightKey chat(Message system, List<Message> history, boolean stream) {
+			return new FlightKey(CHAT_COMPLETIONS_URI, system, List.copyOf(history), null, stream);
+		}
+
+		static FlightKey completion(String prompt, boolean stream) {
+			return new FlightKey(COMPLETION_URI, null, null, prompt, stream);
+		}
 	}
 }
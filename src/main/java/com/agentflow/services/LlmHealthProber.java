@@ -0,0 +1,157 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.LlmHealth;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Probes the llama.cpp servers in the background and caches the result.
+ *
+ * Each probe calls {@code /health} (no generation, no slot used) and, if the
+ * server is up, {@code /slots} for slot occupancy. With several replicas the
+ * backend counts as up while any replica is, and slots are summed over the
+ * replicas that are up. The cached status answers /api/health without touching
+ * the backend and is fed to the {@link CircuitBreaker}.
+ */
+@Component
+public class LlmHealthProber {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmHealthProber.class);
+
+    private final List<WebClient> replicas;
+    private final Duration probeTimeout;
+    private final CircuitBreaker circuitBreaker;
+
+    private volatile LlmHealth health = new LlmHealth(LlmHealth.UNKNOWN, -1, -1, null, null);
+
+    public LlmHealthProber(
+            @Value("${llama.base-urls:${llama.base-url:http://localhost:8080}}") List<String> baseUrls,
+            @Value("${llama.health.timeout-ms:2000}") long probeTimeoutMs,
+            CircuitBreaker circuitBreaker,
+            MeterRegistry meterRegistry) {
+        this.replicas = baseUrls.stream()
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .map(url -> WebClient.builder().baseUrl(url).build())
+                .toList();
+        this.probeTimeout = Duration.ofMillis(probeTimeoutMs);
+        this.circuitBreaker = circuitBreaker;
+        Gauge.builder("agentflow.llm.up", this, prober -> prober.current().isUp() ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    public LlmHealth current() {
+        return health;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${llama.health.interval-ms:5000}")
+    public void probe() {
+        LlmHealth previous = health;
+        LlmHealth next = null;
+        for (WebClient replica : replicas) {
+            next = merge(next, probe(replica));
+        }
+        health = next;
+
+        if (!next.status().equals(previous.status())) {
+            logger.info("LLM backend status {} -> {}{}", previous.status(), next.status(),
+                    next.error() != null ? " (" + next.error() + ")" : "");
+        }
+        circuitBreaker.onProbe(next.isUp());
+    }
+
+    private LlmHealth probe(WebClient replica) {
+        try {
+            String status = probeHealth(replica);
+            int[] slots = LlmHealth.UP.equals(status) ? probeSlots(replica) : new int[]{-1, -1};
+            return new LlmHealth(status, slots[0], slots[1], Instant.now(), null);
+        } catch (Exception e) {
+            return new LlmHealth(LlmHealth.DOWN, -1, -1, Instant.now(), e.getMessage());
+        }
+    }
+
+    /**
+     * Combines replica results: the best status wins, and slots add up over
+     * the replicas that are up.
+     */
+    private static LlmHealth merge(LlmHealth combined, LlmHealth replica) {
+        if (combined == null) {
+            return replica;
+        }
+        if (rank(replica.status()) > rank(combined.status())) {
+            LlmHealth swap = combined;
+            combined = replica;
+            replica = swap;
+        }
+        if (!combined.isUp() || !replica.isUp() || combined.slotsTotal() < 0 || replica.slotsTotal() < 0) {
+            return combined;
+        }
+        return new LlmHealth(combined.status(), combined.slotsIdle() + replica.slotsIdle(),
+                combined.slotsTotal() + replica.slotsTotal(), combined.checkedAt(), null);
+    }
+
+    private static int rank(String status) {
+        return switch (status) {
+            case LlmHealth.UP -> 2;
+            case LlmHealth.LOADING -> 1;
+            default -> 0;
+        };
+    }
+
+    private String probeHealth(WebClient replica) {
+        return replica.get()
+                .uri("/health")
+                .retrieve()
+                .toBodilessEntity()
+                .map(response -> LlmHealth.UP)
+                .onErrorResume(WebClientResponseException.ServiceUnavailable.class, e ->
+                        // llama.cpp answers 503 while the model is loading
+                        Mono.just(e.getResponseBodyAsString().toLowerCase().contains("loading")
+                                ? LlmHealth.LOADING : LlmHealth.DOWN))
+                .timeout(probeTimeout)
+                .block();
+    }
+
+    /**
+     * Returns {idle, total}, or {-1, -1} if the endpoint is disabled or unreadable.
+     */
+    private int[] probeSlots(WebClient replica) {
+        try {
+            JsonNode slots = replica.get()
+                    .uri("/slots")
+                    .retrieve()
+                    .bodyToMono(JsonNode.class)
+                    .timeout(probeTimeout)
+                    .block();
+            if (slots == null || !slots.isArray()) {
+                return new int[]{-1, -1};
+            }
+            int idle = 0;
+            for (JsonNode slot : slots) {
+                boolean busy = slot.has("is_processing")
+                        ? slot.get("is_processing").asBoolean()
+                        : slot.path("state").asInt(0) != 0;
+                if (!busy) {
+                    idle++;
+                }
+            }
+            return new int[]{idle, slots.size()};
+        } catch (Exception e) {
+            logger.debug("Could not read /slots: {}", e.getMessage());
+            return new int[]{-1, -1};
+        }
+    }
+}
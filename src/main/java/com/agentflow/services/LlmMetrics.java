@@ -0,0 +1,236 @@
+package com.agentflow.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency, time to first token, token rate, retries and in-flight counts of
+ * calls to the LLM server, tagged by endpoint and backend (the replica's base
+ * URL). Each attempt is measured on its own, so a hedged request that loses
+ * shows up as {@code outcome=cancelled}.
+ *
+ * <ul>
+ *   <li>{@code agentflow.llm.requests}: attempt latency, tagged {@code type}
+ *       (unary/stream) and {@code outcome} (success/error/timeout/cancelled)</li>
+ *   <li>{@code agentflow.llm.ttft}: time to the first streamed token</li>
+ *   <li>{@code agentflow.llm.tokens}: streamed tokens; {@code agentflow.llm.tokens.rate}
+ *       the tokens per second of each stream after its first token</li>
+ *   <li>{@code agentflow.llm.retries}, {@code agentflow.llm.inflight}</li>
+ *   <li>{@code agentflow.llm.stream.cancelled}: streams aborted because the client
+ *       went away; {@code agentflow.llm.stream.reclaimed} the generation time that saved</li>
+ * </ul>
+ *
+ * Meters are looked up once per endpoint and backend and cached, so the hot
+ * path only reads the clock and updates pre-registered meters.
+ */
+@Component
+public class LlmMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmMetrics.class);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean percentileHistogram;
+    private final Map<Target, Meters> meters = new ConcurrentHashMap<>();
+    private final Counter streamsCancelled;
+    private final Timer reclaimedGeneration;
+
+    public LlmMetrics(
+            MeterRegistry meterRegistry,
+            @Value("${llama.metrics.percentile-histogram:true}") boolean percentileHistogram) {
+        this.meterRegistry = meterRegistry;
+        this.percentileHistogram = percentileHistogram;
+        this.streamsCancelled = Counter.builder("agentflow.llm.stream.cancelled")
+                .description("Streaming generations aborted because the client went away")
+                .register(meterRegistry);
+        this.reclaimedGeneration = Timer.builder("agentflow.llm.stream.reclaimed")
+                .description("Estimated generation time freed on the LLM server by aborting cancelled streams")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Measures one unary attempt against the backend.
+     */
+    public <T> Mono<T> unary(String endpoint, String backend, Mono<T> attempt) {
+        return Mono.defer(() -> {
+            Meters m = meters(endpoint, backend);
+            Call call = new Call(m, "unary");
+            return call.measure(attempt);
+        });
+    }
+
+    /**
+     * Measures one streaming attempt: latency to the end, time to first token
+     * and token rate. Each element is counted as one token.
+     */
+    public Flux<String> stream(String endpoint, String backend, Flux<String> attempt) {
+        return Flux.defer(() -> {
+            Meters m = meters(endpoint, backend);
+            Call call = new Call(m, "stream");
+            return call.measure(attempt.doOnNext(delta -> call.token()));
+        });
+    }
+
+    /**
+     * Accounts for a stream cancelled downstream (typically a client disconnect).
+     * Cancelling the WebClient response closes the upstream connection, which
+     * makes llama.cpp stop generating and free the slot. The time saved is
+     * estimated from the observed per-token rate and the unused token budget.
+     */
+    public Flux<String> trackCancellation(Flux<String> deltas, int maxTokens) {
+        return Flux.defer(() -> {
+            long[] firstTokenAt = new long[1];
+            int[] tokens = new int[1];
+            return deltas
+                    .doOnNext(delta -> {
+                        if (tokens[0]++ == 0) {
+                            firstTokenAt[0] = System.nanoTime();
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        streamsCancelled.increment();
+                        int generated = tokens[0];
+                        if (generated > 1 && generated < maxTokens) {
+                            long nanosPerToken = (System.nanoTime() - firstTokenAt[0]) / (generated - 1);
+                            reclaimedGeneration.record((maxTokens - generated) * nanosPerToken, TimeUnit.NANOSECONDS);
+                        }
+                        logger.info("Stream cancelled after {} tokens; aborted upstream generation", generated);
+                    });
+        });
+    }
+
+    public void retried(String endpoint, String backend) {
+        meters(endpoint, backend).retries.increment();
+    }
+
+    private Meters meters(String endpoint, String backend) {
+        Target target = new Target(endpoint, backend);
+        Meters m = meters.get(target);
+        return m != null ? m : meters.computeIfAbsent(target, Meters::new);
+    }
+
+    private record Target(String endpoint, String backend) {
+    }
+
+    private final class Meters {
+
+        private final Target target;
+        private final Map<String, Timer> requests = new ConcurrentHashMap<>();
+        private final Timer timeToFirstToken;
+        private final Counter tokens;
+        private final DistributionSummary tokenRate;
+        private final Counter retries;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        Meters(Target target) {
+            this.target = target;
+            this.timeToFirstToken = Timer.builder("agentflow.llm.ttft")
+                    .description("Time from sending a streaming request to its first token")
+                    .tags("endpoint", target.endpoint(), "backend", target.backend())
+                    .publishPercentileHistogram(percentileHistogram)
+                    .register(meterRegistry);
+            this.tokens = Counter.builder("agentflow.llm.tokens")
+                    .description("Tokens received in streamed replies")
+                    .tags("endpoint", target.endpoint(), "backend", target.backend())
+                    .register(meterRegistry);
+            this.tokenRate = DistributionSummary.builder("agentflow.llm.tokens.rate")
+                    .description("Tokens per second of each streamed reply, after its first token")
+                    .tags("endpoint", target.endpoint(), "backend", target.backend())
+                    .register(meterRegistry);
+            this.retries = Counter.builder("agentflow.llm.retries")
+                    .description("Requests retried after a failed attempt")
+                    .tags("endpoint", target.endpoint(), "backend", target.backend())
+                    .register(meterRegistry);
+            Gauge.builder("agentflow.llm.inflight", inFlight, AtomicInteger::get)
+                    .description("Requests sent to the LLM server and not yet finished")
+                    .tags("endpoint", target.endpoint(), "backend", target.backend())
+                    .register(meterRegistry);
+        }
+
+        Timer requests(String type, String outcome) {
+            String key = type + ':' + outcome;
+            Timer timer = requests.get(key);
+            return timer != null ? timer : requests.computeIfAbsent(key, k -> Timer.builder("agentflow.llm.requests")
+                    .description("Latency of requests to the LLM server, to the last byte")
+                    .tags("endpoint", target.endpoint(), "backend", target.backend(), "type", type, "outcome", outcome)
+                    .publishPercentileHistogram(percentileHistogram)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * State of one attempt. Signals of a subscription arrive serially, so plain fields suffice.
+     * Recorded on the terminal signal itself rather than in {@code doFinally}, so the meters
+     * are up to date by the time the caller sees the result.
+     */
+    private static final class Call {
+
+        private final Meters meters;
+        private final String type;
+        private final long start = System.nanoTime();
+        private long firstTokenAt;
+        private long tokens;
+        private boolean finished;
+
+        Call(Meters meters, String type) {
+            this.meters = meters;
+            this.type = type;
+            meters.inFlight.incrementAndGet();
+        }
+
+        void token() {
+            if (tokens++ == 0) {
+                firstTokenAt = System.nanoTime();
+                meters.timeToFirstToken.record(firstTokenAt - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        <T> Mono<T> measure(Mono<T> attempt) {
+            return attempt
+                    .doOnSuccess(value -> finish("success"))
+                    .doOnError(this::failed)
+                    .doOnCancel(() -> finish("cancelled"));
+        }
+
+        Flux<String> measure(Flux<String> attempt) {
+            return attempt
+                    .doOnComplete(() -> finish("success"))
+                    .doOnError(this::failed)
+                    .doOnCancel(() -> finish("cancelled"));
+        }
+
+        private void failed(Throwable error) {
+            finish(error instanceof TimeoutException ? "timeout" : "error");
+        }
+
+        private void finish(String outcome) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            long end = System.nanoTime();
+            meters.inFlight.decrementAndGet();
+            meters.requests(type, outcome).record(end - start, TimeUnit.NANOSECONDS);
+            if (tokens > 0) {
+                meters.tokens.increment(tokens);
+            }
+            if (tokens > 1 && end > firstTokenAt) {
+                meters.tokenRate.record((tokens - 1) * 1e9 / (end - firstTokenAt));
+            }
+        }
+    }
+}
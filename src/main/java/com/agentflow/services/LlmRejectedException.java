@@ -0,0 +1,32 @@
+package com.agentflow.services;
+
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+/**
+ * Thrown when an LLM call is shed instead of being sent upstream, either
+ * because the wait queue is full (429) or because the call waited too long
+ * for a slot (503). Carries the delay clients should wait before retrying.
+ */
+public class LlmRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HttpStatus status;
+    private final Duration retryAfter;
+
+    public LlmRejectedException(HttpStatus status, Duration retryAfter, String message) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,286 @@
+package com.agentflow.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.regex.Pattern;
+
+/**
+ * Finds preference statements ("I like ...", "My favorite X is Y") in one pass.
+ *
+ * Rules are phrase templates with one or two {@code {}} captures, e.g.
+ * {@code "I like {}"} or {@code "My favorite {} is {}"}. The trigger phrases
+ * (the text before the first capture) are compiled into an Aho-Corasick
+ * automaton, so the text is scanned once however many rules there are. A rule
+ * matches at most once per line, at the first occurrence of its trigger, and
+ * captures up to the end of the line; a second capture splits at the last
+ * occurrence of the separator. This is what the previous {@code (?i)I like (.*)}
+ * style regexes matched, without their backtracking: the total work is linear
+ * in the input. Matching is ASCII case-insensitive, like {@code (?i)}.
+ *
+ * Captures longer than {@code maxCaptureChars} are ignored; they are pasted
+ * text rather than something the user said about themselves.
+ */
+@Component
+public class PreferenceMatcher {
+
+    public static final List<String> DEFAULT_RULES = List.of(
+            "I like {}", "I prefer {}", "I love {}", "My favorite {} is {}", "Remind me that {}");
+
+    private static final String CAPTURE = "{}";
+    private static final int ASCII = 128;
+
+    private final Rule[] rules;
+    private final int maxCaptureChars;
+
+    // automaton: transitions for ASCII input are precomputed, others follow failure links
+    private final int[][] asciiNext;
+    private final List<Map<Character, Integer>> otherGoto;
+    private final int[] failure;
+    private final int[][] outputs;
+
+    public PreferenceMatcher(
+            @Value("${preferences.rules:I like {},I prefer {},I love {},My favorite {} is {},Remind me that {}}") List<String> rules,
+            @Value("${preferences.max-capture-chars:300}") int maxCaptureChars) {
+        this.rules = rules.stream().map(Rule::parse).toArray(Rule[]::new);
+        this.maxCaptureChars = maxCaptureChars > 0 ? maxCaptureChars : Integer.MAX_VALUE;
+
+        List<int[]> next = new ArrayList<>();
+        List<Map<Character, Integer>> other = new ArrayList<>();
+        List<List<Integer>> ruleEnds = new ArrayList<>();
+        addState(next, other, ruleEnds);
+        for (int r = 0; r < this.rules.length; r++) {
+            int state = 0;
+            for (char c : this.rules[r].trigger().toCharArray()) {
+                int target = c < ASCII ? next.get(state)[c] : other.get(state).getOrDefault(c, -1);
+                if (target <= 0) {
+                    target = addState(next, other, ruleEnds);
+                    if (c < ASCII) {
+                        next.get(state)[c] = target;
+                    } else {
+                        other.get(state).put(c, target);
+                    }
+                }
+                state = target;
+            }
+            ruleEnds.get(state).add(r);
+        }
+
+        int states = next.size();
+        this.asciiNext = next.toArray(new int[0][]);
+        this.otherGoto = other;
+        this.failure = new int[states];
+        this.outputs = new int[states][];
+        buildFailureLinks(ruleEnds);
+    }
+
+    /**
+     * Matcher for {@link #DEFAULT_RULES}.
+     */
+    public static PreferenceMatcher defaults() {
+        return new PreferenceMatcher(DEFAULT_RULES, 300);
+    }
+
+    private static int addState(List<int[]> next, List<Map<Character, Integer>> other, List<List<Integer>> ruleEnds) {
+        next.add(new int[ASCII]);
+        other.add(new HashMap<>(0));
+        ruleEnds.add(new ArrayList<>(1));
+        return next.size() - 1;
+    }
+
+    /**
+     * Breadth-first: fills in failure links, turns the ASCII goto table into a
+     * full transition table, and merges each state's outputs with those of its
+     * failure state.
+     */
+    private void buildFailureLinks(List<List<Integer>> ruleEnds) {
+        Queue<Integer> queue = new ArrayDeque<>();
+        outputs[0] = ruleEnds.get(0).stream().mapToInt(Integer::intValue).toArray();
+        for (int c = 0; c < ASCII; c++) {
+            int child = asciiNext[0][c];
+            if (child > 0) {
+                failure[child] = 0;
+                queue.add(child);
+            }
+        }
+        for (int child : otherGoto.get(0).values()) {
+            failure[child] = 0;
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] own = ruleEnds.get(state).stream().mapToInt(Integer::intValue).toArray();
+            int[] inherited = outputs[failure[state]];
+            int[] merged = Arrays.copyOf(own, own.length + inherited.length);
+            System.arraycopy(inherited, 0, merged, own.length, inherited.length);
+            outputs[state] = merged;
+
+            for (int c = 0; c < ASCII; c++) {
+                int child = asciiNext[state][c];
+                if (child > 0) {
+                    failure[child] = asciiNext[failure[state]][c];
+                    queue.add(child);
+                } else {
+                    asciiNext[state][c] = asciiNext[failure[state]][c];
+                }
+            }
+            for (Map.Entry<Character, Integer> edge : otherGoto.get(state).entrySet()) {
+                int child = edge.getValue();
+                failure[child] = otherStep(failure[state], edge.getKey());
+                queue.add(child);
+            }
+        }
+    }
+
+    private int otherStep(int state, char c) {
+        while (true) {
+            Integer target = otherGoto.get(state).get(c);
+            if (target != null) {
+                return target;
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failure[state];
+        }
+    }
+
+    /**
+     * Returns the preferences stated in the text, in order of appearance,
+     * with one trailing {@code .}, {@code !} or {@code ?} removed and trimmed.
+     */
+    public List<String> extract(CharSequence text) {
+        List<String> found = new ArrayList<>();
+        int length = text.length();
+        int[] matchedOnLine = new int[rules.length];
+        Arrays.fill(matchedOnLine, -1);
+        int line = 0;
+        int lineEnd = -1;
+        int state = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (isLineTerminator(c)) {
+                state = 0;
+                line++;
+                lineEnd = -1;
+                continue;
+            }
+            state = c < ASCII ? asciiNext[state][fold(c)] : otherStep(state, c);
+            for (int r : outputs[state]) {
+                if (matchedOnLine[r] == line) {
+                    continue;
+                }
+                matchedOnLine[r] = line;
+                if (lineEnd < 0) {
+                    lineEnd = findLineEnd(text, i + 1);
+                }
+                String match = rules[r].capture(text, i + 1, lineEnd, maxCaptureChars);
+                if (match != null && !match.isEmpty()) {
+                    found.add(match);
+                }
+            }
+        }
+        return found;
+    }
+
+    private static int findLineEnd(CharSequence text, int from) {
+        int i = from;
+        while (i < text.length() && !isLineTerminator(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /** The characters {@code .} does not match without DOTALL. */
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == 0x85 || c == 0x2028 || c == 0x2029;
+    }
+
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static String clean(String match) {
+        int end = match.length();
+        if (end > 0) {
+            char last = match.charAt(end - 1);
+            if (last == '.' || last == '!' || last == '?') {
+                end--;
+            }
+        }
+        return match.substring(0, end).trim();
+    }
+
+    /**
+     * A parsed template. {@code trigger} is lower-cased; {@code separator} is
+     * null for single-capture rules.
+     */
+    private record Rule(String trigger, String separator, String foldedSeparator) {
+
+        static Rule parse(String template) {
+            String[] parts = template.split(Pattern.quote(CAPTURE), -1);
+            if (parts.length < 2 || parts.length > 3 || parts[0].isEmpty() || !parts[parts.length - 1].isEmpty()) {
+                throw new IllegalArgumentException("Preference rule must be a phrase followed by one or two {} "
+                        + "captures, the last one at the end: " + template);
+            }
+            if (template.chars().anyMatch(c -> isLineTerminator((char) c))) {
+                throw new IllegalArgumentException("Preference rule cannot span lines: " + template);
+            }
+            if (parts.length == 3 && parts[1].isEmpty()) {
+                throw new IllegalArgumentException("Captures must be separated by text: " + template);
+            }
+            String separator = parts.length == 3 ? parts[1] : null;
+            return new Rule(foldAll(parts[0]), separator, separator != null ? foldAll(separator) : null);
+        }
+
+        /**
+         * Captures from just after the trigger to the end of the line, or
+         * returns null if the rule does not match there.
+         */
+        String capture(CharSequence text, int start, int lineEnd, int maxChars) {
+            if (lineEnd - start > maxChars) {
+                return null;
+            }
+            if (separator == null) {
+                return clean(text.subSequence(start, lineEnd).toString());
+            }
+            int split = lastIndexOfFolded(text, start, lineEnd);
+            if (split < 0) {
+                return null;
+            }
+            return clean(text.subSequence(start, split) + separator
+                    + text.subSequence(split + separator.length(), lineEnd));
+        }
+
+        private int lastIndexOfFolded(CharSequence text, int from, int to) {
+            int length = foldedSeparator.length();
+            for (int i = to - length; i >= from; i--) {
+                int j = 0;
+                while (j < length && fold(text.charAt(i + j)) == foldedSeparator.charAt(j)) {
+                    j++;
+                }
+                if (j == length) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static String foldAll(String value) {
+            StringBuilder folded = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                folded.append(fold(value.charAt(i)));
+            }
+            return folded.toString();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.agentflow.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Caches replies to stateless prompts (/api/generate).
+ *
+ * Entries are keyed by a SHA-256 of the whitespace-normalized prompt, the
+ * current preferences prompt and the sampling settings, so a change to any of
+ * them misses. The cache is only consulted when sampling is deterministic
+ * (temperature 0) or the caller explicitly accepts a cached reply. It is
+ * bounded by entry count and by an estimate of the retained bytes, evicting
+ * the least recently used entries first, and entries expire after a TTL.
+ */
+@Component
+public class ResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /** Rough per-entry overhead: map node, key string, entry object. */
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final double temperature;
+    private final int maxTokens;
+    private final UserPreferenceService userPreferenceService;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long retainedBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ResponseCache(
+            @Value("${generate.cache.enabled:true}") boolean enabled,
+            @Value("${generate.cache.max-entries:1000}") int maxEntries,
+            @Value("${generate.cache.max-bytes:16777216}") long maxBytes,
+            @Value("${generate.cache.ttl-seconds:600}") long ttlSeconds,
+            @Value("${llama.temperature:0.7}") double temperature,
+            @Value("${llama.max-tokens:256}") int maxTokens,
+            UserPreferenceService userPreferenceService,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+        this.temperature = temperature;
+        this.maxTokens = maxTokens;
+        this.userPreferenceService = userPreferenceService;
+
+        this.hits = Counter.builder("agentflow.generate.cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("agentflow.generate.cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("agentflow.generate.cache.hit.ratio", this, ResponseCache::hitRatio)
+                .register(meterRegistry);
+        Gauge.builder("agentflow.generate.cache.entries", this, ResponseCache::size)
+                .register(meterRegistry);
+        Gauge.builder("agentflow.generate.cache.retained", this, ResponseCache::retainedBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        logger.info("ResponseCache {} (max-entries={}, max-bytes={}, ttl={}s, default temperature={})",
+                enabled ? "enabled" : "disabled", maxEntries, maxBytes, ttlSeconds, temperature);
+    }
+
+    /**
+     * Returns the cached reply for the prompt, or generates and caches it.
+     *
+     * @param prompt    The user prompt
+     * @param optIn     Whether the caller accepts a cached reply even though sampling is not deterministic
+     * @param generator Produces the reply on a miss
+     */
+    public String getOrGenerate(String prompt, boolean optIn, Supplier<String> generator) {
+        if (!enabled || !(optIn || temperature == 0.0)) {
+            return generator.get();
+        }
+
+        String key = key(prompt);
+        String cached = get(key);
+        if (cached != null) {
+            hits.increment();
+            logger.debug("Response cache hit");
+            return cached;
+        }
+
+        misses.increment();
+        String response = generator.get();
+        put(key, response);
+        return response;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        retainedBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long retainedBytes() {
+        return retainedBytes;
+    }
+
+    public double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0.0 : hits.count() / total;
+    }
+
+    private String key(String prompt) {
+        String normalized = prompt == null ? "" : WHITESPACE.matcher(prompt.strip()).replaceAll(" ");
+        MessageDigest digest = sha256();
+        update(digest, normalized);
+        update(digest, userPreferenceService.getPreferencesPrompt());
+        update(digest, Double.toString(temperature));
+        update(digest, Integer.toString(maxTokens));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String part) {
+        digest.update(part.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0); // separator, so "ab"+"c" and "a"+"bc" differ
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private synchronized String get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.createdAt() > ttlNanos) {
+            remove(key);
+            return null;
+        }
+        return entry.response();
+    }
+
+    private synchronized void put(String key, String response) {
+        long size = (long) response.length() * 2 + ENTRY_OVERHEAD_BYTES;
+        if (size > maxBytes) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(response, size, System.nanoTime()));
+        retainedBytes += size;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || retainedBytes > maxBytes) && eldest.hasNext()) {
+            retainedBytes -= eldest.next().size();
+            eldest.remove();
+        }
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            retainedBytes -= removed.size();
+        }
+    }
+
+    private record Entry(String response, long size, long createdAt) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.agentflow.services;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent callers with the same key share one in-flight call.
+ *
+ * The first caller for a key starts the call; callers arriving while it is
+ * still running subscribe to the same publisher instead of starting their own.
+ * Streams are replayed from the start, so a late joiner receives every element.
+ * The upstream is cancelled only when all subscribers have cancelled. Once the
+ * call terminates the key is released and the next caller starts a new call.
+ */
+public class SingleFlight<K> {
+
+    /**
+     * Called with the key when a caller joins a call that is already in flight.
+     */
+    public interface Listener<K> {
+        void onJoined(K key);
+    }
+
+    private final Map<K, Object> inFlight = new ConcurrentHashMap<>();
+    private final Listener<K> listener;
+
+    public SingleFlight(Listener<K> listener) {
+        this.listener = listener;
+    }
+
+    public <T> Mono<T> mono(K key, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> join(key, holder -> call.get()
+                .doFinally(signal -> inFlight.remove(key, holder.get()))
+                .share()));
+    }
+
+    public <T> Flux<T> flux(K key, Supplier<Flux<T>> call) {
+        return Flux.defer(() -> join(key, holder -> call.get()
+                .doFinally(signal -> inFlight.remove(key, holder.get()))
+                .replay()
+                .refCount()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <P> P join(K key, Function<AtomicReference<Object>, P> start) {
+        AtomicReference<Object> holder = new AtomicReference<>();
+        Object shared = inFlight.computeIfAbsent(key, k -> {
+            P created = start.apply(holder);
+            holder.set(created);
+            return created;
+        });
+        if (shared != holder.get()) {
+            listener.onJoined(key);
+        }
+        return (P) shared;
+    }
+
+    /**
+     * Number of distinct calls currently in flight.
+     */
+    public int size() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,80 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.SlowTurn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The most recent chat turns that took at least {@code chat.trace.slow-turn-ms},
+ * with their time per stage, served slowest first at {@code /actuator/slowturns}.
+ * Also remembers how long the first turn after startup took.
+ *
+ * Turns below the threshold cost a comparison; only slow ones are copied into
+ * the ring buffer of {@code chat.trace.slow-turns} entries.
+ */
+@Component
+@Endpoint(id = "slowturns")
+public class SlowTurnLog {
+
+    private final long thresholdNanos;
+    private final int capacity;
+    private final ArrayDeque<SlowTurn> turns;
+    private final AtomicLong firstTurnNanos = new AtomicLong(-1);
+
+    public SlowTurnLog(
+            @Value("${chat.trace.slow-turn-ms:2000}") long thresholdMs,
+            @Value("${chat.trace.slow-turns:50}") int capacity) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, thresholdMs));
+        this.capacity = Math.max(1, capacity);
+        this.turns = new ArrayDeque<>(this.capacity);
+    }
+
+    /**
+     * Starts tracing a turn of the calling tenant.
+     */
+    TurnTrace start(String conversationId, boolean streaming) {
+        return new TurnTrace(this, conversationId, TenantContext.current(), streaming);
+    }
+
+    void record(TurnTrace trace, String outcome, long totalNanos) {
+        if (firstTurnNanos.get() < 0) {
+            firstTurnNanos.compareAndSet(-1, totalNanos);
+        }
+        if (totalNanos < thresholdNanos) {
+            return;
+        }
+        SlowTurn turn = trace.toSlowTurn(outcome, totalNanos);
+        synchronized (turns) {
+            if (turns.size() == capacity) {
+                turns.removeFirst();
+            }
+            turns.addLast(turn);
+        }
+    }
+
+    /**
+     * Duration of the first turn recorded, or -1 before any.
+     */
+    long firstTurnNanos() {
+        return firstTurnNanos.get();
+    }
+
+    @ReadOperation
+    public List<SlowTurn> slowTurns() {
+        List<SlowTurn> snapshot;
+        synchronized (turns) {
+            snapshot = new ArrayList<>(turns);
+        }
+        snapshot.sort(Comparator.comparingDouble(SlowTurn::totalMillis).reversed());
+        return snapshot;
+    }
+}
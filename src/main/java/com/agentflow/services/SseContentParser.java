@@ -0,0 +1,269 @@
+package com.agentflow.services;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Incremental parser that pulls the generated text out of a llama.cpp SSE
+ * stream straight from the response bytes.
+ *
+ * Each {@code data:} line is scanned for its {@code "content"} string (inside
+ * {@code "delta"} for chat-completion chunks, at the top level for native
+ * /completion chunks) and only that string is decoded. No event or chunk
+ * objects are created. Lines may be split across buffers; the parser keeps the
+ * partial line until its newline arrives. A parser holds per-stream state and
+ * must not be shared between streams.
+ */
+public class SseContentParser {
+
+    private static final byte[] DATA_FIELD = "data:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ERROR_FIELD = "error:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DONE_PAYLOAD = "[DONE]".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONTENT_KEY = "\"content\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DELTA_KEY = "\"delta\"".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Returned by {@link #feed(DataBuffer)} when the {@code [DONE]} marker is seen.
+     * Compared by identity.
+     */
+    @SuppressWarnings("StringOperationCanBeSimplified")
+    static final String DONE = new String("[DONE]");
+
+    private final byte[] anchor;
+    private byte[] line = new byte[512];
+    private int lineLength;
+    private boolean done;
+
+    private SseContentParser(byte[] anchor) {
+        this.anchor = anchor;
+    }
+
+    /**
+     * Parser for OpenAI-compatible chat-completion chunks ({@code choices[0].delta.content}).
+     */
+    public static SseContentParser forChatCompletions() {
+        return new SseContentParser(DELTA_KEY);
+    }
+
+    /**
+     * Parser for native /completion chunks (top-level {@code content}).
+     */
+    public static SseContentParser forCompletion() {
+        return new SseContentParser(null);
+    }
+
+    /**
+     * Decodes a raw SSE body into content deltas, completing at {@code [DONE]}.
+     * Buffers are released as they are consumed.
+     */
+    public static Flux<String> decode(Flux<DataBuffer> body, boolean chatCompletions) {
+        return Flux.defer(() -> {
+            SseContentParser parser = chatCompletions ? forChatCompletions() : forCompletion();
+            return body
+                    .concatMapIterable(buffer -> {
+                        try {
+                            return parser.feed(buffer);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .takeWhile(content -> content != DONE)
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    /**
+     * Consumes the readable bytes of a buffer (without releasing it) and returns
+     * the content of every event completed by it, in order. Empty content is skipped.
+     *
+     * @throws IllegalStateException if the server reports an error event
+     */
+    public List<String> feed(DataBuffer buffer) {
+        List<String> contents = Collections.emptyList();
+        if (done) {
+            return contents;
+        }
+        // DataBuffer.getByte() validates its index on every call; scan the NIO views instead
+        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                ByteBuffer bytes = iterator.next();
+                for (int i = bytes.position(), end = bytes.limit(); i < end; i++) {
+                    byte b = bytes.get(i);
+                    if (b != '\n') {
+                        append(b);
+                        continue;
+                    }
+                    String content = completeLine();
+                    if (content != null) {
+                        if (contents.isEmpty()) {
+                            contents = List.of(content);
+                        } else {
+                            if (contents.size() == 1) {
+                                contents = new ArrayList<>(contents);
+                            }
+                            contents.add(content);
+                        }
+                        if (done) {
+                            return contents;
+                        }
+                    }
+                }
+            }
+        }
+        return contents;
+    }
+
+    private void append(byte b) {
+        if (lineLength == line.length) {
+            byte[] grown = new byte[line.length * 2];
+            System.arraycopy(line, 0, grown, 0, lineLength);
+            line = grown;
+        }
+        line[lineLength++] = b;
+    }
+
+    private String completeLine() {
+        int length = lineLength;
+        lineLength = 0;
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+
+        if (startsWith(line, length, ERROR_FIELD)) {
+            throw new IllegalStateException("LLM stream error: "
+                    + new String(line, ERROR_FIELD.length, length - ERROR_FIELD.length, StandardCharsets.UTF_8).trim());
+        }
+        if (!startsWith(line, length, DATA_FIELD)) {
+            return null; // blank separator, comment, event/id/retry fields
+        }
+
+        int start = DATA_FIELD.length;
+        if (start < length && line[start] == ' ') {
+            start++;
+        }
+        if (length - start == DONE_PAYLOAD.length && startsWith(line, start, length, DONE_PAYLOAD)) {
+            done = true;
+            return DONE;
+        }
+        return extractContent(start, length);
+    }
+
+    private String extractContent(int start, int end) {
+        int from = start;
+        if (anchor != null) {
+            from = indexOf(line, from, end, anchor);
+            if (from < 0) {
+                return null;
+            }
+            from += anchor.length;
+        }
+
+        int key = indexOf(line, from, end, CONTENT_KEY);
+        if (key < 0) {
+            return null;
+        }
+        int i = skipWhitespace(key + CONTENT_KEY.length, end);
+        if (i >= end || line[i] != ':') {
+            return null;
+        }
+        i = skipWhitespace(i + 1, end);
+        if (i >= end || line[i] != '"') {
+            return null; // null or non-string content
+        }
+
+        String content = decodeString(i + 1, end);
+        return content == null || content.isEmpty() ? null : content;
+    }
+
+    /**
+     * Decodes a JSON string starting just after its opening quote.
+     * Returns null if the closing quote is missing.
+     */
+    private String decodeString(int start, int end) {
+        int i = start;
+        while (i < end && line[i] != '"' && line[i] != '\\') {
+            i++;
+        }
+        if (i < end && line[i] == '"') {
+            return new String(line, start, i - start, StandardCharsets.UTF_8);
+        }
+
+        StringBuilder out = new StringBuilder(i - start + 16);
+        int runStart = start;
+        while (i < end) {
+            byte b = line[i];
+            if (b == '"') {
+                out.append(new String(line, runStart, i - runStart, StandardCharsets.UTF_8));
+                return out.toString();
+            }
+            if (b != '\\') {
+                i++;
+                continue;
+            }
+
+            out.append(new String(line, runStart, i - runStart, StandardCharsets.UTF_8));
+            if (i + 1 >= end) {
+                return null;
+            }
+            byte escaped = line[i + 1];
+            i += 2;
+            switch (escaped) {
+                case 'n' -> out.append('\n');
+                case 't' -> out.append('\t');
+                case 'r' -> out.append('\r');
+                case 'b' -> out.append('\b');
+                case 'f' -> out.append('\f');
+                case 'u' -> {
+                    if (i + 4 > end) {
+                        return null;
+                    }
+                    out.append((char) Integer.parseInt(new String(line, i, 4, StandardCharsets.US_ASCII), 16));
+                    i += 4;
+                }
+                default -> out.append((char) escaped); // \" \\ \/
+            }
+            runStart = i;
+        }
+        return null;
+    }
+
+    private int skipWhitespace(int i, int end) {
+        while (i < end && (line[i] == ' ' || line[i] == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean startsWith(byte[] bytes, int length, byte[] prefix) {
+        return startsWith(bytes, 0, length, prefix);
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, int length, byte[] prefix) {
+        if (length - offset < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] bytes, int from, int end, byte[] target) {
+        byte first = target[0];
+        for (int i = from, last = end - target.length; i <= last; i++) {
+            if (bytes[i] == first && startsWith(bytes, i, end, target)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
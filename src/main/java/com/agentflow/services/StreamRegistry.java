@@ -0,0 +1,249 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.StreamEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps in-flight generations resumable.
+ *
+ * Each generation is subscribed once and publishes its chunks, numbered from 1,
+ * into a bounded replay buffer. Any number of clients can attach to it; a
+ * client that reconnects with the id of the last event it received gets the
+ * buffered events after that one and then follows the live stream; if some of
+ * those events have already left the buffer, the resume is refused rather than
+ * leaving a hole in the reply. When the last client detaches, the upstream
+ * keeps running for a grace period so that a reconnect does not lose the
+ * generation; if nobody reattaches in time it is cancelled. The grace period
+ * holds the LLM server's slot that long after a disconnect, so it is kept
+ * short; with 0 the upstream is cancelled as soon as the last client detaches.
+ * Finished generations stay attachable for a retention period.
+ */
+@Component
+public class StreamRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamRegistry.class);
+    private static final Duration EMIT_TIMEOUT = Duration.ofMillis(100);
+    // how long a new generation waits for its first client, even without a grace period
+    private static final long FIRST_ATTACH_MS = 1000;
+
+    private final int bufferSize;
+    private final long graceMs;
+    private final long retentionMs;
+    private final Scheduler scheduler = Schedulers.parallel();
+
+    private final Map<String, ResumableStream> byGeneration = new ConcurrentHashMap<>();
+    private final Map<String, ResumableStream> latestByConversation = new ConcurrentHashMap<>();
+
+    public StreamRegistry(
+            @Value("${chat.stream.resume.buffer-size:256}") int bufferSize,
+            @Value("${chat.stream.resume.grace-ms:1000}") long graceMs,
+            @Value("${chat.stream.resume.retention-ms:60000}") long retentionMs) {
+        this.bufferSize = bufferSize;
+        this.graceMs = graceMs;
+        this.retentionMs = retentionMs;
+        logger.info("StreamRegistry initialized (buffer-size={}, grace-ms={}, retention-ms={})",
+                bufferSize, graceMs, retentionMs);
+    }
+
+    /**
+     * Starts publishing a generation and returns a subscription to it from the first event.
+     * The upstream is subscribed immediately.
+     */
+    public Flux<StreamEvent> publish(String conversationId, Flux<String> chunks) {
+        ResumableStream stream = new ResumableStream(conversationId, UUID.randomUUID().toString());
+        byGeneration.put(stream.generationId, stream);
+        latestByConversation.put(conversationId, stream);
+        stream.start(chunks);
+        return stream.attach(0);
+    }
+
+    /**
+     * Reattaches to a generation of the given conversation.
+     *
+     * @param lastEventId The last event id the client received; null attaches to
+     *                    the conversation's latest generation from its oldest buffered event
+     * @return Empty if the generation is unknown, expired or belongs to another
+     *         conversation, or if events after {@code lastEventId} have already
+     *         left the replay buffer
+     */
+    public Optional<Flux<StreamEvent>> resume(String conversationId, String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return Optional.ofNullable(latestByConversation.get(conversationId)).map(stream -> stream.attach(0));
+        }
+
+        int separator = lastEventId.lastIndexOf('-');
+        if (separator < 0) {
+            return Optional.empty();
+        }
+        long lastSequence;
+        try {
+            lastSequence = Long.parseLong(lastEventId.substring(separator + 1).trim());
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+        ResumableStream stream = byGeneration.get(lastEventId.substring(0, separator).trim());
+        if (stream == null || !stream.conversationId.equals(conversationId)) {
+            return Optional.empty();
+        }
+        if (lastSequence + 1 < stream.oldestBuffered()) {
+            logger.debug("Events after {} of generation {} are no longer buffered", lastSequence, stream.generationId);
+            return Optional.empty();
+        }
+        return Optional.of(stream.attach(lastSequence));
+    }
+
+    private void remove(ResumableStream stream) {
+        byGeneration.remove(stream.generationId, stream);
+        latestByConversation.remove(stream.conversationId, stream);
+    }
+
+    private final class ResumableStream {
+
+        private final String conversationId;
+        private final String generationId;
+        private final Sinks.Many<StreamEvent> events;
+
+        /** Events published so far, which is also the sequence of the latest one. */
+        private volatile long published;
+        private int subscribers;
+        private boolean terminated;
+        private Disposable upstream;
+        private Disposable pendingCancel;
+
+        ResumableStream(String conversationId, String generationId) {
+            this.conversationId = conversationId;
+            this.generationId = generationId;
+            this.events = Sinks.many().replay().limit(bufferSize);
+        }
+
+        void start(Flux<String> chunks) {
+            synchronized (this) {
+                // nobody may ever attach; the caller gets at least FIRST_ATTACH_MS to do so
+                scheduleCancel(Math.max(graceMs, FIRST_ATTACH_MS));
+            }
+            long[] sequence = new long[1];
+            Disposable subscription = chunks.subscribe(
+                    chunk -> {
+                        long next = ++sequence[0];
+                        // fails only once the stream was cancelled, when the chunk is no longer wanted
+                        events.tryEmitNext(new StreamEvent(generationId + "-" + next, next, chunk));
+                        published = next;
+                    },
+                    error -> {
+                        events.tryEmitError(error);
+                        onTerminated();
+                    },
+                    () -> {
+                        events.tryEmitComplete();
+                        onTerminated();
+                    });
+            synchronized (this) {
+                upstream = subscription;
+            }
+        }
+
+        /**
+         * Sequence of the oldest event still in the replay buffer.
+         */
+        long oldestBuffered() {
+            return Math.max(1, published - bufferSize + 1);
+        }
+
+        Flux<StreamEvent> attach(long afterSequence) {
+            Flux<StreamEvent> tail = events.asFlux();
+            if (afterSequence > 0) {
+                // events may leave the buffer between resume() and the subscription
+                tail = Flux.defer(() -> {
+                    long[] expected = {afterSequence + 1};
+                    return events.asFlux()
+                            .filter(event -> event.sequence() > afterSequence)
+                            .handle((event, sink) -> {
+                                if (event.sequence() > expected[0]) {
+                                    sink.error(new IllegalStateException("Events " + expected[0] + " to "
+                                            + (event.sequence() - 1) + " of generation " + generationId
+                                            + " are no longer buffered"));
+                                    return;
+                                }
+                                expected[0] = event.sequence() + 1;
+                                sink.next(event);
+                            });
+                });
+            }
+            return tail
+                    .doOnSubscribe(subscription -> onAttach())
+                    .doFinally(signal -> onDetach());
+        }
+
+        private synchronized void onAttach() {
+            subscribers++;
+            if (pendingCancel != null) {
+                pendingCancel.dispose();
+                pendingCancel = null;
+            }
+        }
+
+        private void onDetach() {
+            synchronized (this) {
+                subscribers--;
+                if (subscribers > 0 || terminated) {
+                    return;
+                }
+                if (graceMs > 0) {
+                    scheduleCancel(graceMs);
+                    return;
+                }
+            }
+            cancelIfAbandoned();
+        }
+
+        private void scheduleCancel(long delayMs) {
+            pendingCancel = scheduler.schedule(this::cancelIfAbandoned, delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void cancelIfAbandoned() {
+            Disposable abandoned;
+            synchronized (this) {
+                if (subscribers > 0 || terminated) {
+                    return;
+                }
+                terminated = true;
+                pendingCancel = null;
+                abandoned = upstream;
+            }
+            logger.info("No client reattached to generation {} of conversation {} within {} ms, cancelling",
+                    generationId, conversationId, graceMs);
+            if (abandoned != null) {
+                abandoned.dispose();
+            }
+            // a chunk may still be in flight on the upstream thread; wait for it rather than fail
+            events.emitComplete(Sinks.EmitFailureHandler.busyLooping(EMIT_TIMEOUT));
+            remove(this);
+        }
+
+        private void onTerminated() {
+            synchronized (this) {
+                terminated = true;
+                if (pendingCancel != null) {
+                    pendingCancel.dispose();
+                    pendingCancel = null;
+                }
+            }
+            scheduler.schedule(() -> remove(this), retentionMs, TimeUnit.MILLISECONDS);
+        }
+    }
+}
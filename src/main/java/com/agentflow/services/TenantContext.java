@@ -0,0 +1,31 @@
+package com.agentflow.services;
+
+/**
+ * Holds the tenant of the request being handled on the current thread.
+ *
+ * Set by {@code TenantFilter} for the duration of a request. Reactive work
+ * that outlives the request thread must capture {@link #current()} when the
+ * call is made rather than read it later.
+ */
+public final class TenantContext {
+
+    public static final String DEFAULT_TENANT = "default";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static String current() {
+        String tenant = CURRENT.get();
+        return tenant != null ? tenant : DEFAULT_TENANT;
+    }
+
+    public static void set(String tenant) {
+        CURRENT.set(tenant);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
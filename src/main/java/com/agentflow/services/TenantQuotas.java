@@ -0,0 +1,158 @@
+package com.agentflow.services;
+
+import com.agentflow.config.TenantProperties;
+import com.agentflow.dto.TenantUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks token usage per tenant and enforces token-rate quotas.
+ *
+ * Each tenant with a {@code tokens-per-minute} limit has a token bucket that
+ * refills continuously up to one minute's worth. A call is admitted while the
+ * bucket is not empty; its actual usage is charged afterwards, so a large
+ * reply can take the bucket into debt and delay the tenant's next calls.
+ *
+ * Tenants that are not configured (see {@link TenantProperties#isConfigured})
+ * are forgotten once unused for {@code tenants.idle-eviction-ms} with a full
+ * bucket, which loses nothing but their usage totals, and their
+ * {@code agentflow.tenant.tokens} are counted under {@code tenant=other} so
+ * that client-chosen ids cannot grow memory or metric cardinality.
+ */
+@Component
+public class TenantQuotas {
+
+    static final String OTHER_TENANT_TAG = "other";
+
+    private final TenantProperties tenantProperties;
+    private final MeterRegistry meterRegistry;
+    private final long idleNanos;
+    private final Map<String, TenantState> tenants = new ConcurrentHashMap<>();
+    private final AtomicLong lastEviction = new AtomicLong(System.nanoTime());
+
+    public TenantQuotas(
+            TenantProperties tenantProperties,
+            MeterRegistry meterRegistry,
+            @Value("${tenants.idle-eviction-ms:300000}") long idleEvictionMs) {
+        this.tenantProperties = tenantProperties;
+        this.meterRegistry = meterRegistry;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleEvictionMs);
+    }
+
+    /**
+     * @throws LlmRejectedException (429) if the tenant has used up its token rate
+     */
+    public void checkQuota(String tenant) {
+        TenantState state = state(tenant);
+        if (state.tokensPerMinute <= 0) {
+            return;
+        }
+        double available = state.refill();
+        if (available <= 0) {
+            long waitMs = (long) Math.ceil((1 - available) * 60_000 / state.tokensPerMinute);
+            throw new LlmRejectedException(HttpStatus.TOO_MANY_REQUESTS,
+                    Duration.ofSeconds(Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitMs))),
+                    "Token quota exceeded for tenant " + tenant);
+        }
+    }
+
+    public void recordUsage(String tenant, long promptTokens, long completionTokens) {
+        TenantState state = state(tenant);
+        state.requests.incrementAndGet();
+        state.promptTokens.addAndGet(promptTokens);
+        state.completionTokens.addAndGet(completionTokens);
+        state.promptCounter.increment(promptTokens);
+        state.completionCounter.increment(completionTokens);
+        if (state.tokensPerMinute > 0) {
+            state.charge(promptTokens + completionTokens);
+        }
+    }
+
+    public TenantUsage usage(String tenant) {
+        TenantState state = state(tenant);
+        long available = state.tokensPerMinute > 0 ? (long) Math.max(0, state.refill()) : -1;
+        return new TenantUsage(tenant, state.requests.get(), state.promptTokens.get(),
+                state.completionTokens.get(), available);
+    }
+
+    private TenantState state(String tenant) {
+        long now = System.nanoTime();
+        TenantState state = tenants.computeIfAbsent(tenant, TenantState::new);
+        state.lastUsed = now;
+        long last = lastEviction.get();
+        if (now - last >= idleNanos && lastEviction.compareAndSet(last, now)) {
+            evictIdle(now);
+        }
+        return state;
+    }
+
+    /**
+     * Forgets unconfigured tenants that have been idle for the eviction period
+     * and whose bucket has refilled, so a returning tenant starts where it would
+     * have been anyway. Runs at most once per period.
+     */
+    private void evictIdle(long now) {
+        tenants.forEach((tenant, state) -> {
+            if (!state.configured && now - state.lastUsed >= idleNanos && state.isFull()) {
+                tenants.remove(tenant, state);
+            }
+        });
+    }
+
+    private final class TenantState {
+
+        private final long tokensPerMinute;
+        private final boolean configured;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong promptTokens = new AtomicLong();
+        private final AtomicLong completionTokens = new AtomicLong();
+        private final Counter promptCounter;
+        private final Counter completionCounter;
+
+        // guarded by this
+        private double bucket;
+        private long refilledAt = System.nanoTime();
+        private volatile long lastUsed = System.nanoTime();
+
+        TenantState(String tenant) {
+            this.tokensPerMinute = tenantProperties.limitsFor(tenant).tokensPerMinute();
+            this.configured = tenantProperties.isConfigured(tenant);
+            this.bucket = tokensPerMinute;
+            String tag = configured ? tenant : OTHER_TENANT_TAG;
+            this.promptCounter = tokenCounter(tag, "prompt");
+            this.completionCounter = tokenCounter(tag, "completion");
+        }
+
+        private Counter tokenCounter(String tag, String type) {
+            return Counter.builder("agentflow.tenant.tokens")
+                    .tag("tenant", tag)
+                    .tag("type", type)
+                    .register(meterRegistry);
+        }
+
+        synchronized double refill() {
+            long now = System.nanoTime();
+            bucket = Math.min(tokensPerMinute, bucket + (now - refilledAt) * tokensPerMinute / 60e9);
+            refilledAt = now;
+            return bucket;
+        }
+
+        boolean isFull() {
+            return tokensPerMinute <= 0 || refill() >= tokensPerMinute;
+        }
+
+        synchronized void charge(long tokens) {
+            refill();
+            bucket -= tokens;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.agentflow.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges streamed deltas into fewer, larger chunks so that each SSE frame
+ * carries more than a single token.
+ *
+ * The first delta is always emitted immediately to keep time-to-first-token
+ * unchanged. After that, deltas are buffered and flushed when the buffer
+ * reaches the size limit or the oldest buffered delta has waited for the
+ * maximum delay, whichever comes first. Cancelling the coalesced stream
+ * cancels the upstream.
+ */
+@Component
+public class TokenCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenCoalescer.class);
+
+    private final long maxDelayMs;
+    private final int maxChars;
+    private final boolean enabledByDefault;
+    private final Scheduler scheduler = Schedulers.parallel();
+
+    public TokenCoalescer(
+            @Value("${chat.stream.coalesce.max-delay-ms:20}") long maxDelayMs,
+            @Value("${chat.stream.coalesce.max-chars:64}") int maxChars,
+            @Value("${chat.stream.coalesce.default:false}") boolean enabledByDefault) {
+        this.maxDelayMs = maxDelayMs;
+        this.maxChars = maxChars;
+        this.enabledByDefault = enabledByDefault;
+        logger.info("TokenCoalescer initialized (max-delay-ms={}, max-chars={}, default={})",
+                maxDelayMs, maxChars, enabledByDefault);
+    }
+
+    /**
+     * Resolves a per-request choice against the configured default.
+     *
+     * @param requested The client's choice, or null if it did not specify one
+     */
+    public boolean isEnabled(Boolean requested) {
+        return requested != null ? requested : enabledByDefault;
+    }
+
+    public Flux<String> coalesce(Flux<String> deltas) {
+        return Flux.create(sink -> new Coalescing(sink).subscribe(deltas));
+    }
+
+    private final class Coalescing {
+
+        private final FluxSink<String> sink;
+        private final StringBuilder buffer = new StringBuilder();
+        private boolean first = true;
+        private Disposable pendingFlush;
+
+        Coalescing(FluxSink<String> sink) {
+            this.sink = sink;
+        }
+
+        void subscribe(Flux<String> deltas) {
+            Disposable upstream = deltas.subscribe(this::onNext, this::onError, this::onComplete);
+            sink.onDispose(() -> {
+                upstream.dispose();
+                cancelPendingFlush();
+            });
+        }
+
+        private synchronized void onNext(String delta) {
+            if (first) {
+                first = false;
+                sink.next(delta);
+                return;
+            }
+
+            buffer.append(delta);
+            if (buffer.length() >= maxChars) {
+                flush();
+            } else if (pendingFlush == null) {
+                pendingFlush = scheduler.schedule(this::onDelayElapsed, maxDelayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private synchronized void onDelayElapsed() {
+            pendingFlush = null;
+            flush();
+        }
+
+        private synchronized void onComplete() {
+            flush();
+            sink.complete();
+        }
+
+        private synchronized void onError(Throwable error) {
+            flush();
+            sink.error(error);
+        }
+
+        private void flush() {
+            cancelPendingFlush();
+            if (buffer.length() > 0) {
+                sink.next(buffer.toString());
+                buffer.setLength(0);
+            }
+        }
+
+        private synchronized void cancelPendingFlush() {
+            if (pendingFlush != null) {
+                pendingFlush.dispose();
+                pendingFlush = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.Message;
+import com.agentflow.dto.SlowTurn;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where the time of one chat turn went. The turn moves through its stages in
+ * order by calling {@link #stage(Stage)}, which ends the running stage; a stage
+ * entered more than once (persistence happens before and after generation)
+ * adds up. Each stage is also emitted as a {@link ChatStageEvent} and the whole
+ * turn as a {@link ChatTurnEvent}.
+ *
+ * Not thread-safe: the stages of a turn run one after the other, even when
+ * they run on different threads.
+ */
+final class TurnTrace {
+
+    enum Stage {
+        /** Waiting for an earlier turn of the same conversation */
+        QUEUE,
+        PREFERENCES,
+        /** Copying the history out of conversation memory */
+        HISTORY,
+        /** Memory processing: trimming or summarization */
+        MEMORY,
+        /** From sending a streaming request to its first token */
+        PREFILL,
+        /** Generating the reply; for a unary reply this includes prefill */
+        GENERATION,
+        /** Storing the user message and the reply */
+        PERSIST
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final SlowTurnLog log;
+    private final String conversationId;
+    private final String tenant;
+    private final boolean streaming;
+    private final long startedAtMillis = System.currentTimeMillis();
+    private final long start = System.nanoTime();
+    private final ChatTurnEvent turnEvent = new ChatTurnEvent();
+    private final long[] stageNanos = new long[STAGES.length];
+    private Stage current;
+    private long currentStart;
+    private ChatStageEvent currentEvent;
+    private int historySize;
+    private long historyChars;
+    private long replyChars;
+    private boolean finished;
+
+    TurnTrace(SlowTurnLog log, String conversationId, String tenant, boolean streaming) {
+        this.log = log;
+        this.conversationId = conversationId;
+        this.tenant = tenant;
+        this.streaming = streaming;
+        turnEvent.begin();
+    }
+
+    /**
+     * Ends the running stage, if any, and starts the next one.
+     */
+    void stage(Stage next) {
+        long now = System.nanoTime();
+        endCurrent(now);
+        current = next;
+        currentStart = now;
+        ChatStageEvent event = new ChatStageEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            currentEvent = event;
+        }
+    }
+
+    /**
+     * Notes the history that is being sent to the model.
+     */
+    void history(List<Message> messages) {
+        long chars = 0;
+        for (Message message : messages) {
+            String content = message.content();
+            chars += content != null ? content.length() : 0;
+        }
+        historySize = messages.size();
+        historyChars = chars;
+    }
+
+    void reply(int chars) {
+        replyChars += chars;
+    }
+
+    Stage current() {
+        return current;
+    }
+
+    /**
+     * Ends the running stage and the turn; later calls do nothing.
+     */
+    void finish(String outcome) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        long now = System.nanoTime();
+        endCurrent(now);
+        current = null;
+        turnEvent.end();
+        if (turnEvent.shouldCommit()) {
+            turnEvent.conversationId = conversationId;
+            turnEvent.streaming = streaming;
+            turnEvent.outcome = outcome;
+            turnEvent.historySize = historySize;
+            turnEvent.historyChars = historyChars;
+            turnEvent.replyChars = replyChars;
+            turnEvent.commit();
+        }
+        log.record(this, outcome, now - start);
+    }
+
+    SlowTurn toSlowTurn(String outcome, long totalNanos) {
+        Map<String, Double> stageMillis = new LinkedHashMap<>();
+        for (Stage stage : STAGES) {
+            if (stageNanos[stage.ordinal()] > 0) {
+                stageMillis.put(stage.name().toLowerCase(), millis(stageNanos[stage.ordinal()]));
+            }
+        }
+        return new SlowTurn(conversationId, tenant, streaming, Instant.ofEpochMilli(startedAtMillis), outcome,
+                millis(totalNanos), historySize, historyChars, replyChars, stageMillis);
+    }
+
+    long stageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    private void endCurrent(long now) {
+        if (current == null) {
+            return;
+        }
+        stageNanos[current.ordinal()] += now - currentStart;
+        ChatStageEvent event = currentEvent;
+        currentEvent = null;
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.conversationId = conversationId;
+                event.stage = current.name().toLowerCase();
+                event.streaming = streaming;
+                event.historySize = historySize;
+                event.historyChars = historyChars;
+                event.replyChars = replyChars;
+                event.commit();
+            }
+        }
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+}
@@ -8,47 +8,87 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import jakarta.annotation.PostConstruct;
-import java.io.File;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Collections;
-import java.util.HashSet;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+/**
+ * Preferences users have stated about themselves, kept per tenant.
+ *
+ * Every method works on the preferences of {@link TenantContext#current()}, so
+ * a prompt only carries what its own tenant said. Each tenant keeps at most
+ * {@code preferences.max-per-tenant} preferences; stating a new one beyond the
+ * cap drops the one stated least recently, and with
+ * {@code preferences.max-age-days} set, preferences not restated within that
+ * time are dropped too.
+ *
+ * A tenant's preferences are loaded from {@code <data-dir>/preferences/<tenant>.json}
+ * the first time they are needed, and at most {@code preferences.max-loaded-tenants}
+ * are held in memory, the least recently used being dropped first. The
+ * rendered prompt is built once per change, so the LLM client gets the same
+ * string on every call until the preferences change. Saving is debounced onto
+ * a background writer ({@code preferences.save-delay-ms}); a chat turn never
+ * waits on the disk, and pending changes are flushed on shutdown.
+ *
+ * A {@code preferences.json} from before preferences were per tenant is read
+ * as the default tenant's.
+ */
 @Service
 public class UserPreferenceService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserPreferenceService.class);
 
-    private final Set<String> preferences = Collections.synchronizedSet(new HashSet<>());
-    private final Path preferencesFile;
-    private final ObjectMapper objectMapper;
+    private static final Pattern SAFE_FILE_NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]{0,63}");
 
-    // Simple keyword-based extraction patterns
-    private static final Pattern[] PREFERENCE_PATTERNS = {
-            Pattern.compile("(?i)I like (.*)"),
-            Pattern.compile("(?i)I prefer (.*)"),
-            Pattern.compile("(?i)I love (.*)"),
-            Pattern.compile("(?i)My favorite (.*) is (.*)"),
-            Pattern.compile("(?i)Remind me that (.*)")
-    };
+    private final Map<String, TenantPreferences> loaded = new ConcurrentHashMap<>();
+    // changed since last written; also consulted on load, so an evicted tenant is not read back stale
+    private final Map<String, TenantPreferences> unsaved = new ConcurrentHashMap<>();
+    private final Path preferencesDir;
+    private final Path legacyFile;
+    private final int maxPerTenant;
+    private final long maxAgeMillis;
+    private final int maxLoadedTenants;
+    private final ObjectMapper objectMapper;
+    private final PreferenceMatcher preferenceMatcher;
+    private final DebouncedFileWriter writer;
 
     public UserPreferenceService(
-            @Value("${memory.data-dir:./data}") String dataDir) {
-        this.preferencesFile = Paths.get(dataDir, "preferences.json");
+            @Value("${memory.data-dir:./data}") String dataDir,
+            @Value("${preferences.save-delay-ms:500}") long saveDelayMs,
+            @Value("${preferences.max-per-tenant:50}") int maxPerTenant,
+            @Value("${preferences.max-age-days:0}") int maxAgeDays,
+            @Value("${preferences.max-loaded-tenants:10000}") int maxLoadedTenants,
+            PreferenceMatcher preferenceMatcher) {
+        this.preferenceMatcher = preferenceMatcher;
+        this.preferencesDir = Paths.get(dataDir, "preferences");
+        this.legacyFile = Paths.get(dataDir, "preferences.json");
+        this.maxPerTenant = maxPerTenant > 0 ? maxPerTenant : Integer.MAX_VALUE;
+        this.maxAgeMillis = maxAgeDays > 0 ? Duration.ofDays(maxAgeDays).toMillis() : 0;
+        this.maxLoadedTenants = Math.max(1, maxLoadedTenants);
         this.objectMapper = new ObjectMapper();
         this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        this.writer = new DebouncedFileWriter("preferences-writer", saveDelayMs, this::saveChanged);
     }
 
-    @PostConstruct
-    public void init() {
-        loadPreferences();
+    @PreDestroy
+    public void shutdown() {
+        writer.close();
     }
 
     public void extractPreferences(String text) {
@@ -56,76 +96,221 @@ public class UserPreferenceService {
             return;
         }
 
-        boolean changed = false;
-        for (Pattern pattern : PREFERENCE_PATTERNS) {
-            Matcher matcher = pattern.matcher(text);
-            while (matcher.find()) {
-                String match;
-                if (matcher.groupCount() == 2) {
-                    match = matcher.group(1) + " is " + matcher.group(2);
-                } else {
-                    match = matcher.group(1);
-                }
-
-                // Clean up the match (remove punctuation at the end)
-                match = match.replaceAll("[.!?]$", "").trim();
-
-                if (!match.isEmpty() && preferences.add(match)) {
-                    logger.info("Extracted user preference: {}", match);
-                    changed = true;
-                }
-            }
-        }
-
-        if (changed) {
-            savePreferences();
+        List<String> matches = preferenceMatcher.extract(text);
+        if (matches.isEmpty()) {
+            return;
         }
+        update(prefs -> prefs.add(matches));
     }
 
     public Set<String> getPreferences() {
-        return new HashSet<>(preferences);
+        return tenant(TenantContext.current()).snapshot();
     }
 
     public String getPreferencesPrompt() {
-        if (preferences.isEmpty()) {
-            return "";
-        }
+        return tenant(TenantContext.current()).prompt();
+    }
+
+    public void clearPreferences() {
+        update(TenantPreferences::clear);
+    }
 
-        String prefs = preferences.stream()
-                .map(p -> "- " + p)
-                .collect(Collectors.joining("\n"));
+    /**
+     * Whether changes are waiting to be written to disk.
+     */
+    public boolean hasUnsavedChanges() {
+        return !unsaved.isEmpty();
+    }
 
-        return "The user has shared the following preferences and information about themselves:\n" + prefs + "\n\nUse this information to personalize your responses when relevant.";
+    int loadedTenants() {
+        return loaded.size();
     }
 
-    public void clearPreferences() {
-        preferences.clear();
-        savePreferences();
+    private TenantPreferences tenant(String tenant) {
+        TenantPreferences prefs = loaded.get(tenant);
+        if (prefs == null) {
+            prefs = loaded.computeIfAbsent(tenant, this::resolve);
+            if (loaded.size() > maxLoadedTenants) {
+                evictLeastRecentlyUsed();
+            }
+        }
+        prefs.lastUsed = System.nanoTime();
+        return prefs;
     }
 
-    private void loadPreferences() {
-        File file = preferencesFile.toFile();
-        if (!file.exists()) {
-            logger.info("No existing preferences file found at {}", preferencesFile);
-            return;
+    /**
+     * Applies a change to the current tenant's preferences and marks them unsaved
+     * in one compute on the tenant's key. Eviction removes that same key, so a
+     * change always lands on the instance that is mapped, never on one evicted
+     * while a second copy was read back from disk.
+     */
+    private void update(Consumer<TenantPreferences> change) {
+        TenantPreferences prefs = loaded.compute(TenantContext.current(), (tenant, current) -> {
+            TenantPreferences mapped = current != null ? current : resolve(tenant);
+            change.accept(mapped);
+            unsaved.put(tenant, mapped);
+            return mapped;
+        });
+        prefs.lastUsed = System.nanoTime();
+        if (loaded.size() > maxLoadedTenants) {
+            evictLeastRecentlyUsed();
         }
+        writer.requestWrite();
+    }
 
+    private TenantPreferences resolve(String tenant) {
+        TenantPreferences pending = unsaved.get(tenant);
+        return pending != null ? pending : load(tenant);
+    }
+
+    /**
+     * Drops least recently used tenants until a tenth of the limit is free.
+     * Only runs when a tenant is loaded past the limit, so the scan is amortized.
+     */
+    private void evictLeastRecentlyUsed() {
+        int excess = loaded.size() - maxLoadedTenants + maxLoadedTenants / 10;
+        loaded.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().lastUsed))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(loaded::remove);
+    }
+
+    private TenantPreferences load(String tenant) {
+        TenantPreferences prefs = new TenantPreferences();
+        Path file = fileFor(tenant);
         try {
-            Set<String> loaded = objectMapper.readValue(file, new TypeReference<Set<String>>() {});
-            preferences.addAll(loaded);
-            logger.info("Loaded {} preferences from disk", preferences.size());
+            if (Files.exists(file)) {
+                Map<String, Long> stated = objectMapper.readValue(file.toFile(), new TypeReference<LinkedHashMap<String, Long>>() {});
+                stated.entrySet().stream()
+                        .sorted(Map.Entry.comparingByValue())
+                        .forEach(e -> prefs.stated.put(e.getKey(), e.getValue()));
+            } else if (TenantContext.DEFAULT_TENANT.equals(tenant) && Files.exists(legacyFile)) {
+                Set<String> legacy = objectMapper.readValue(legacyFile.toFile(), new TypeReference<LinkedHashSet<String>>() {});
+                long statedAt = Files.getLastModifiedTime(legacyFile).toMillis();
+                legacy.forEach(p -> prefs.stated.put(p, statedAt));
+                logger.info("Read {} preferences from {} as the default tenant's", legacy.size(), legacyFile);
+            }
         } catch (IOException e) {
-            logger.warn("Could not load preferences from {}: {}", preferencesFile, e.getMessage());
+            logger.warn("Could not load preferences from {}: {}", file, e.getMessage());
         }
+        prefs.prune(System.currentTimeMillis());
+        return prefs;
     }
 
-    private void savePreferences() {
-        try {
-            Files.createDirectories(preferencesFile.getParent());
-            objectMapper.writeValue(preferencesFile.toFile(), preferences);
-            logger.debug("Saved {} preferences to disk", preferences.size());
-        } catch (IOException e) {
-            logger.error("Failed to save preferences to {}: {}", preferencesFile, e.getMessage());
+    private void saveChanged() {
+        for (Map.Entry<String, TenantPreferences> entry : unsaved.entrySet()) {
+            String tenant = entry.getKey();
+            TenantPreferences prefs = entry.getValue();
+            long version;
+            Map<String, Long> snapshot;
+            synchronized (prefs) {
+                version = prefs.version;
+                snapshot = new LinkedHashMap<>(prefs.stated);
+            }
+            Path file = fileFor(tenant);
+            try {
+                DebouncedFileWriter.writeAtomically(file, objectMapper.writeValueAsBytes(snapshot));
+                logger.debug("Saved {} preferences to {}", snapshot.size(), file);
+            } catch (IOException e) {
+                logger.error("Failed to save preferences to {}: {}", file, e.getMessage());
+                continue;
+            }
+            // a change made while writing keeps the entry for the next write
+            unsaved.computeIfPresent(tenant, (t, p) -> p == prefs && p.version == version ? null : p);
+        }
+    }
+
+    private Path fileFor(String tenant) {
+        String name = SAFE_FILE_NAME.matcher(tenant).matches()
+                ? tenant
+                : "~" + HexFormat.of().formatHex(tenant.getBytes(StandardCharsets.UTF_8));
+        return preferencesDir.resolve(name + ".json");
+    }
+
+    /**
+     * One tenant's preferences with when each was last stated, oldest first.
+     * Guarded by its own monitor.
+     */
+    private final class TenantPreferences {
+
+        private final LinkedHashMap<String, Long> stated = new LinkedHashMap<>();
+        private volatile long version;
+        private volatile RenderedPrompt rendered = new RenderedPrompt(0, "", Long.MAX_VALUE);
+        private volatile long lastUsed = System.nanoTime();
+
+        synchronized void add(List<String> matches) {
+            long now = System.currentTimeMillis();
+            for (String match : matches) {
+                // re-inserted so the map stays ordered by when each was last stated
+                if (stated.remove(match) == null) {
+                    logger.info("Extracted user preference: {}", match);
+                }
+                stated.put(match, now);
+            }
+            prune(now);
+            version++;
+        }
+
+        synchronized void clear() {
+            stated.clear();
+            version++;
+        }
+
+        synchronized Set<String> snapshot() {
+            if (prune(System.currentTimeMillis())) {
+                version++;
+            }
+            return new LinkedHashSet<>(stated.keySet());
+        }
+
+        String prompt() {
+            RenderedPrompt cached = rendered;
+            if (cached.version() == version && !expired(cached.oldestStatedAt())) {
+                return cached.text();
+            }
+
+            synchronized (this) {
+                if (prune(System.currentTimeMillis())) {
+                    version++;
+                }
+                String text = stated.isEmpty() ? ""
+                        : "The user has shared the following preferences and information about themselves:\n"
+                        + stated.keySet().stream().map(p -> "- " + p).collect(Collectors.joining("\n"))
+                        + "\n\nUse this information to personalize your responses when relevant.";
+                if (text.equals(rendered.text())) {
+                    // restating a preference changes the version but often not the text
+                    text = rendered.text();
+                }
+                long oldest = stated.isEmpty() ? Long.MAX_VALUE : stated.values().iterator().next();
+                rendered = new RenderedPrompt(version, text, oldest);
+                return text;
+            }
+        }
+
+        /**
+         * Drops what is over the cap or too old; returns whether anything was dropped.
+         */
+        boolean prune(long now) {
+            boolean pruned = false;
+            Iterator<Map.Entry<String, Long>> oldestFirst = stated.entrySet().iterator();
+            while (oldestFirst.hasNext()) {
+                Map.Entry<String, Long> oldest = oldestFirst.next();
+                if (stated.size() <= maxPerTenant && !(maxAgeMillis > 0 && now - oldest.getValue() > maxAgeMillis)) {
+                    break;
+                }
+                oldestFirst.remove();
+                pruned = true;
+            }
+            return pruned;
+        }
+
+        private boolean expired(long statedAt) {
+            return maxAgeMillis > 0 && statedAt != Long.MAX_VALUE
+                    && System.currentTimeMillis() - statedAt > maxAgeMillis;
         }
     }
+
+    private record RenderedPrompt(long version, String text, long oldestStatedAt) {}
 }
@@ -0,0 +1,196 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.ChatRequest;
+import com.agentflow.dto.ChatResponse;
+import com.agentflow.dto.CreateConversationResponse;
+import com.agentflow.dto.Message;
+import com.agentflow.dto.OpenAiChatResponse;
+import com.agentflow.dto.OpenAiStreamChunk;
+import com.agentflow.dto.StreamEvent;
+import com.agentflow.interfaces.LlmClient;
+import com.agentflow.memory.InMemoryConversationMemory;
+import com.agentflow.memory.SummarizingMemory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Optional warm-up before the application reports ready ({@code warmup.enabled}).
+ *
+ * Runners finish before readiness turns to {@code ACCEPTING_TRAFFIC}, so a
+ * load balancer following {@code /actuator/health/readiness} only sends
+ * traffic once this is done. The warm-up opens {@code warmup.connections}
+ * connections to each LLM replica, then runs {@code warmup.iterations} chat
+ * and streamed turns through a separate {@link ChatService} backed by a stub
+ * LLM client, in-memory conversations and a throwaway preference store. Those
+ * turns go through preference extraction, memory processing including
+ * summarization, and Jackson serialization of the API and upstream DTOs, so
+ * that code is loaded and compiled before the first real request. Nothing is
+ * sent to the model and no real conversation or preference is touched.
+ *
+ * {@code agentflow.startup.first-turn} reports how long the first real chat
+ * turn took, tagged {@code warmup=true|false}, to compare deployments with and
+ * without warm-up.
+ */
+@Component
+public class WarmUpRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(WarmUpRunner.class);
+
+    private static final int CONVERSATIONS = 4;
+    private static final String UPSTREAM_REPLY = """
+            {"id":"warmup","object":"chat.completion","created":0,"model":"warmup",\
+            "choices":[{"index":0,"message":{"role":"assistant","content":"Noted."},"finish_reason":"stop"}],\
+            "usage":{"prompt_tokens":12,"completion_tokens":2,"total_tokens":14}}""";
+    private static final String UPSTREAM_CHUNK = """
+            {"id":"warmup","object":"chat.completion.chunk","created":0,"model":"warmup",\
+            "choices":[{"index":0,"delta":{"content":" noted"},"finish_reason":null}]}""";
+    private static final String[] USER_MESSAGES = {
+            "I prefer short answers with numbers.",
+            "My favorite report is the quarterly revenue summary.",
+            "How did the margin change compared with last quarter?",
+            "Remind me that the budget review is on Friday.",
+    };
+
+    private final boolean enabled;
+    private final int connections;
+    private final int iterations;
+    private final LlmClient llmClient;
+    private final ObjectMapper objectMapper;
+    private final PreferenceMatcher preferenceMatcher;
+    private final TokenCoalescer tokenCoalescer;
+
+    public WarmUpRunner(
+            @Value("${warmup.enabled:false}") boolean enabled,
+            @Value("${warmup.connections:4}") int connections,
+            @Value("${warmup.iterations:100}") int iterations,
+            LlmClient llmClient,
+            ObjectMapper objectMapper,
+            PreferenceMatcher preferenceMatcher,
+            TokenCoalescer tokenCoalescer,
+            SlowTurnLog slowTurnLog,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.connections = connections;
+        this.iterations = iterations;
+        this.llmClient = llmClient;
+        this.objectMapper = objectMapper;
+        this.preferenceMatcher = preferenceMatcher;
+        this.tokenCoalescer = tokenCoalescer;
+        TimeGauge.builder("agentflow.startup.first-turn", slowTurnLog, TimeUnit.NANOSECONDS,
+                        log -> log.firstTurnNanos() < 0 ? Double.NaN : log.firstTurnNanos())
+                .description("Duration of the first chat turn after startup")
+                .tag("warmup", String.valueOf(enabled))
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            if (connections > 0 && llmClient instanceof LlamaCppClient llama) {
+                Long answered = llama.warmConnections(connections).block(Duration.ofSeconds(60));
+                logger.info("Warm-up opened connections to the LLM server ({} health checks answered)", answered);
+            }
+            exerciseChat();
+            logger.info("Warm-up finished in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            // a failed warm-up only costs the first requests some speed
+            logger.warn("Warm-up failed after {} ms: {}",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), e.toString());
+        }
+    }
+
+    private void exerciseChat() throws IOException {
+        Path dataDir = Files.createTempDirectory("agentflow-warmup");
+        StubLlmClient stub = new StubLlmClient();
+        UserPreferenceService preferences = new UserPreferenceService(
+                dataDir.toString(), 60_000, 50, 0, 16, preferenceMatcher);
+        try {
+            ChatService chatService = new ChatService(stub, new InMemoryConversationMemory(), preferences,
+                    new SummarizingMemory(stub, 20, 30, new SimpleMeterRegistry()), tokenCoalescer,
+                    new StreamRegistry(64, 1000, 1000), new ConversationSerializer(new SimpleMeterRegistry()),
+                    new SlowTurnLog(Long.MAX_VALUE, 1));
+            List<String> conversations = new ArrayList<>();
+            for (int i = 0; i < CONVERSATIONS; i++) {
+                conversations.add(chatService.startConversation("You are a financial analyst agent."));
+            }
+            for (int i = 0; i < iterations; i++) {
+                String conversationId = conversations.get(i % CONVERSATIONS);
+                String text = USER_MESSAGES[i % USER_MESSAGES.length];
+                ChatResponse response = chatService.chat(conversationId, text);
+                List<StreamEvent> events = chatService.chatStreamEvents(conversationId, text, null)
+                        .collectList().block(Duration.ofSeconds(10));
+                preferences.getPreferencesPrompt();
+                serialize(response, events);
+            }
+        } finally {
+            preferences.shutdown();
+            deleteRecursively(dataDir);
+        }
+    }
+
+    private void serialize(ChatResponse response, List<StreamEvent> events) throws IOException {
+        objectMapper.readValue(objectMapper.writeValueAsBytes(response), ChatResponse.class);
+        objectMapper.writeValueAsString(events);
+        objectMapper.writeValueAsString(new CreateConversationResponse(response.conversationId()));
+        objectMapper.readValue("{\"message\":\"hello\"}", ChatRequest.class);
+        objectMapper.readValue(UPSTREAM_REPLY, OpenAiChatResponse.class);
+        objectMapper.readValue(UPSTREAM_CHUNK, OpenAiStreamChunk.class);
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Answers at once with a short reply; summaries are requested through {@link #generateRaw}.
+     */
+    private static final class StubLlmClient implements LlmClient {
+
+        @Override
+        public String generate(String prompt) {
+            return "Noted.";
+        }
+
+        @Override
+        public String generate(String systemPrompt, List<Message> history) {
+            return "Noted: " + history.get(history.size() - 1).content();
+        }
+
+        @Override
+        public String generateRaw(String prompt) {
+            return "The user discussed quarterly figures and stated some preferences.";
+        }
+
+        @Override
+        public Flux<String> generateStream(String systemPrompt, List<Message> history) {
+            return Flux.just("Noted", ": ", history.get(history.size() - 1).content());
+        }
+    }
+}
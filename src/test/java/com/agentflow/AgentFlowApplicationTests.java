@@ -0,0 +1,55 @@
+package com.agentflow;
+
+import com.agentflow.dto.CreateConversationRequest;
+import com.agentflow.dto.CreateConversationResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the whole application, file memory and WebSocket endpoint included,
+ * against an LLM that is not there.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "llama.base-url=http://127.0.0.1:9",
+        "memory.type=file"
+})
+@DirtiesContext // closed before the temp directory is deleted
+class AgentFlowApplicationTests {
+
+    @TempDir
+    static Path dataDir;
+
+    @DynamicPropertySource
+    static void dataDir(DynamicPropertyRegistry registry) {
+        registry.add("memory.data-dir", dataDir::toString);
+    }
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Test
+    void startsAndServesRequests() {
+        ResponseEntity<String> liveness = rest.getForEntity("/actuator/health/liveness", String.class);
+        assertEquals(HttpStatus.OK, liveness.getStatusCode());
+        assertTrue(liveness.getBody().contains("UP"));
+
+        ResponseEntity<CreateConversationResponse> created =
+                rest.postForEntity("/api/conversations", new CreateConversationRequest("Be brief."), CreateConversationResponse.class);
+        assertEquals(HttpStatus.OK, created.getStatusCode());
+
+        String id = created.getBody().conversationId();
+        assertTrue(rest.getForObject("/api/conversations", String.class).contains(id));
+    }
+}
@@ -4,6 +4,7 @@ import com.agentflow.dto.Message;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -97,6 +98,19 @@ class InMemoryConversationMemoryTest {
         assertTrue(history.get(3).content().contains("test environment"));
     }
 
+    @Test
+    void testImportConversationKeepsIdAndTimestamps() {
+        Instant created = Instant.parse("2024-03-01T10:00:00Z");
+        memory.importConversation(new Conversation("imported", "Prompt",
+                List.of(new Message("user", "old question")), created, created.plusSeconds(30)));
+
+        Conversation conversation = memory.getConversation("imported").orElseThrow();
+        assertEquals("Prompt", conversation.getSystemPrompt());
+        assertEquals(1, conversation.messageCount());
+        assertEquals(created, conversation.getCreatedAt());
+        assertEquals(created.plusSeconds(30), conversation.getUpdatedAt());
+    }
+
     @Test
     void testAddMessageToNonExistentConversation() {
         assertThrows(IllegalArgumentException.class, () -> {
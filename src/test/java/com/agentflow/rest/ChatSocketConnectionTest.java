@@ -0,0 +1,144 @@
+package com.agentflow.rest;
+
+import com.agentflow.dto.ChatSocketEvent;
+import com.agentflow.dto.ChatSocketRequest;
+import com.agentflow.dto.Message;
+import com.agentflow.interfaces.LlmClient;
+import com.agentflow.memory.ConversationMemory;
+import com.agentflow.memory.InMemoryConversationMemory;
+import com.agentflow.services.ChatService;
+import com.agentflow.services.ConversationSerializer;
+import com.agentflow.services.LlmRejectedException;
+import com.agentflow.services.PreferenceMatcher;
+import com.agentflow.services.SlowTurnLog;
+import com.agentflow.services.StreamRegistry;
+import com.agentflow.services.TokenCoalescer;
+import com.agentflow.services.UserPreferenceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatSocketConnectionTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ConversationMemory memory = new InMemoryConversationMemory();
+    private final List<ChatSocketEvent> sent = new CopyOnWriteArrayList<>();
+    private Sinks.Many<String> reply;
+    private LlmRejectedException rejection;
+    private UserPreferenceService preferences;
+    private ChatSocketConnection connection;
+
+    private final LlmClient llmClient = new LlmClient() {
+        @Override
+        public String generate(String prompt) {
+            return prompt;
+        }
+
+        @Override
+        public String generate(String systemPrompt, List<Message> history) {
+            return "";
+        }
+
+        @Override
+        public String generateRaw(String prompt) {
+            return prompt;
+        }
+
+        @Override
+        public Flux<String> generateStream(String systemPrompt, List<Message> history) {
+            return reply.asFlux();
+        }
+
+        @Override
+        public void checkAvailable() {
+            if (rejection != null) {
+                throw rejection;
+            }
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        reply = Sinks.many().unicast().onBackpressureBuffer();
+        preferences = new UserPreferenceService(tempDir.toString(), 0, 50, 0, 10000, PreferenceMatcher.defaults());
+        ChatService chatService = new ChatService(llmClient, memory, preferences,
+                history -> history, new TokenCoalescer(20, 64, false), new StreamRegistry(16, 10_000, 60_000),
+                new ConversationSerializer(new SimpleMeterRegistry()), new SlowTurnLog(2000, 50));
+        connection = new ChatSocketConnection(chatService, "default", 32, 4, sent::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        preferences.shutdown();
+    }
+
+    private static ChatSocketRequest send(String stream, String conversationId, Integer credits) {
+        return new ChatSocketRequest("send", stream, conversationId, "hi", null, null, credits);
+    }
+
+    private List<String> types() {
+        return sent.stream().map(event -> event.type() + ":" + event.stream()).toList();
+    }
+
+    @Test
+    void testDeltasAreGatedByCredits() {
+        String conversation = memory.startConversation(null);
+        connection.handle(send("s1", conversation, 2));
+        List.of("a", "b", "c", "d").forEach(reply::tryEmitNext);
+        reply.tryEmitComplete();
+
+        assertEquals(List.of("a", "b"), sent.stream().map(ChatSocketEvent::data).toList());
+
+        connection.handle(new ChatSocketRequest("ack", "s1", null, null, null, null, 5));
+        assertEquals(List.of("delta:s1", "delta:s1", "delta:s1", "delta:s1", "done:s1"), types());
+        assertEquals(0, connection.openStreams());
+        assertEquals("abcd", memory.getHistory(conversation).get(1).content());
+    }
+
+    @Test
+    void testCancelDetachesOnlyThatStream() {
+        String first = memory.startConversation(null);
+        connection.handle(send("s1", first, null));
+        reply.tryEmitNext("a");
+        connection.handle(new ChatSocketRequest("cancel", "s1", null, null, null, null, null));
+
+        assertEquals(List.of("delta:s1", "cancelled:s1"), types());
+        assertEquals(0, connection.openStreams());
+    }
+
+    @Test
+    void testInvalidFramesGetErrors() {
+        connection.handle(send("s1", "missing", null));
+        connection.handle(new ChatSocketRequest("bogus", "s2", null, null, null, null, null));
+        connection.handle(new ChatSocketRequest("stream", "s3", memory.startConversation(null), null, null, null, null));
+
+        assertEquals(List.of(404, 400, 404), sent.stream().map(ChatSocketEvent::status).toList());
+        assertEquals("Conversation not found", sent.get(0).error());
+    }
+
+    @Test
+    void testRejectedTurnFailsBeforeStreaming() {
+        String conversation = memory.startConversation(null);
+        rejection = new LlmRejectedException(HttpStatus.TOO_MANY_REQUESTS, Duration.ofSeconds(3), "Token quota exceeded");
+
+        connection.handle(send("s1", conversation, null));
+
+        assertEquals(List.of(429), sent.stream().map(ChatSocketEvent::status).toList());
+        assertEquals(0, connection.openStreams());
+        assertTrue(memory.getHistory(conversation).isEmpty());
+    }
+}
@@ -0,0 +1,123 @@
+package com.agentflow.services;
+
+import com.agentflow.config.TenantProperties;
+import com.agentflow.services.AdmissionController.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControllerTest {
+
+    private static final String TENANT = "t";
+
+    private static AdmissionController controller(int limit, int maxQueue, long queueTimeoutMs) {
+        TenantProperties tenants = new TenantProperties(true, Map.of(),
+                new TenantProperties.Limits(1, 0, 0), Map.of());
+        return new AdmissionController(true, limit, 1, 64, maxQueue, queueTimeoutMs, 20_000, 0.5,
+                tenants, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void testInteractiveAdmittedBeforeBackground() {
+        AdmissionController admission = controller(1, 10, 10_000);
+        Sinks.One<String> running = Sinks.one();
+        List<String> order = new ArrayList<>();
+
+        admission.admit(Priority.INTERACTIVE, TENANT, running.asMono()).subscribe();
+        admission.admit(Priority.BACKGROUND, TENANT, Mono.fromCallable(() -> order.add("background"))).subscribe();
+        admission.admit(Priority.INTERACTIVE, TENANT, Mono.fromCallable(() -> order.add("interactive"))).subscribe();
+        assertEquals(2, admission.queued());
+        assertTrue(order.isEmpty());
+
+        running.tryEmitValue("first");
+        assertEquals(List.of("interactive", "background"), order);
+        assertEquals(0, admission.inFlight());
+    }
+
+    @Test
+    void testRejectsWhenQueueFullOrWaitTooLong() {
+        AdmissionController admission = controller(1, 1, 50);
+        admission.admit(Priority.INTERACTIVE, TENANT, Mono.never()).subscribe();
+        admission.checkCapacity(Priority.INTERACTIVE, TENANT);
+        Mono<String> queued = admission.admit(Priority.INTERACTIVE, TENANT, Mono.just("queued"));
+        List<Throwable> errors = new ArrayList<>();
+        queued.subscribe(v -> { }, errors::add);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, assertThrows(LlmRejectedException.class,
+                () -> admission.checkCapacity(Priority.INTERACTIVE, TENANT)).getStatus());
+        assertEquals(1, admission.queued());
+
+        LlmRejectedException full = assertThrows(LlmRejectedException.class,
+                () -> admission.admit(Priority.INTERACTIVE, TENANT, Mono.just("x")).block());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, full.getStatus());
+        assertTrue(full.getRetryAfter().toSeconds() >= 1);
+
+        Mono.delay(Duration.ofMillis(200)).block();
+        assertEquals(1, errors.size());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ((LlmRejectedException) errors.get(0)).getStatus());
+        assertEquals(0, admission.queued());
+    }
+
+    @Test
+    void testLimitBacksOffOnTimeoutAndGrowsOnSuccess() {
+        AdmissionController admission = controller(8, 10, 1_000);
+
+        assertThrows(RuntimeException.class, () ->
+                admission.admit(Priority.INTERACTIVE, TENANT, Mono.error(new TimeoutException())).block());
+        assertEquals(4.0, admission.limit(), 1e-9);
+
+        for (int i = 0; i < 8; i++) {
+            admission.admit(Priority.INTERACTIVE, TENANT, Mono.just("ok")).block();
+        }
+        assertTrue(admission.limit() > 5.0);
+    }
+
+    @Test
+    void testTenantsShareCapacityFairly() {
+        AdmissionController admission = controller(1, 100, 10_000);
+        Sinks.One<String> running = Sinks.one();
+        List<String> order = new ArrayList<>();
+
+        admission.admit(Priority.INTERACTIVE, "heavy", running.asMono()).subscribe();
+        for (int i = 0; i < 3; i++) {
+            admission.admit(Priority.INTERACTIVE, "heavy", Mono.fromCallable(() -> order.add("heavy"))).subscribe();
+        }
+        admission.admit(Priority.INTERACTIVE, "light", Mono.fromCallable(() -> order.add("light"))).subscribe();
+
+        running.tryEmitValue("done");
+        // the light tenant arrived last but has not had a turn yet
+        assertEquals(List.of("light", "heavy", "heavy", "heavy"), order);
+    }
+
+    @Test
+    void testQueueFullShedsHeaviestTenant() {
+        AdmissionController admission = controller(1, 2, 10_000);
+        List<Throwable> heavyErrors = new ArrayList<>();
+        List<Throwable> otherErrors = new ArrayList<>();
+        Disposable.Composite calls = Disposables.composite();
+        calls.add(admission.admit(Priority.INTERACTIVE, "heavy", Mono.never()).subscribe(v -> { }, otherErrors::add));
+        calls.add(admission.admit(Priority.INTERACTIVE, "heavy", Mono.just("a")).subscribe(v -> { }, heavyErrors::add));
+        calls.add(admission.admit(Priority.INTERACTIVE, "heavy", Mono.just("b")).subscribe(v -> { }, heavyErrors::add));
+
+        calls.add(admission.admit(Priority.INTERACTIVE, "light", Mono.just("c")).subscribe(v -> { }, otherErrors::add));
+
+        assertEquals(1, heavyErrors.size());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, ((LlmRejectedException) heavyErrors.get(0)).getStatus());
+        assertEquals(2, admission.queued());
+        assertTrue(otherErrors.isEmpty());
+        // the queued calls would otherwise time out after the test
+        calls.dispose();
+    }
+}
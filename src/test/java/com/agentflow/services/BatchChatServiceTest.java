@@ -0,0 +1,132 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.BatchChatItem;
+import com.agentflow.dto.BatchChatResult;
+import com.agentflow.dto.Message;
+import com.agentflow.interfaces.LlmClient;
+import com.agentflow.memory.ConversationMemory;
+import com.agentflow.memory.InMemoryConversationMemory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchChatServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ConversationMemory memory = new InMemoryConversationMemory();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private UserPreferenceService preferences;
+    private BatchChatService batchChatService;
+
+    /** Replies with the last message and the history length it saw. */
+    private final LlmClient llmClient = new LlmClient() {
+        @Override
+        public String generate(String prompt) {
+            return prompt;
+        }
+
+        @Override
+        public String generate(String systemPrompt, List<Message> history) {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return history.get(history.size() - 1).content() + "@" + history.size();
+        }
+
+        @Override
+        public String generateRaw(String prompt) {
+            return prompt;
+        }
+
+        @Override
+        public Flux<String> generateStream(String systemPrompt, List<Message> history) {
+            return Flux.just(generate(systemPrompt, history));
+        }
+    };
+
+    private BatchChatService service(int parallelism) {
+        preferences = new UserPreferenceService(tempDir.toString(), 0, 50, 0, 10000, PreferenceMatcher.defaults());
+        ChatService chatService = new ChatService(llmClient, memory, preferences,
+                history -> history, new TokenCoalescer(20, 64, false), new StreamRegistry(16, 10_000, 60_000),
+                new ConversationSerializer(new SimpleMeterRegistry()), new SlowTurnLog(2000, 50));
+        batchChatService = new BatchChatService(chatService, parallelism);
+        return batchChatService;
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchChatService.shutdown();
+        preferences.shutdown();
+    }
+
+    private List<BatchChatResult> run(BatchChatService service, List<BatchChatItem> items) {
+        List<BatchChatResult> results = service.chat(Flux.fromIterable(items))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        List<BatchChatResult> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingLong(BatchChatResult::index));
+        return sorted;
+    }
+
+    @Test
+    void testTurnsOfOneConversationRunInOrder() {
+        BatchChatService service = service(4);
+        String a = memory.startConversation(null);
+        String b = memory.startConversation(null);
+
+        List<BatchChatResult> results = run(service, List.of(
+                new BatchChatItem(a, "a1"), new BatchChatItem(b, "b1"),
+                new BatchChatItem(a, "a2"), new BatchChatItem(a, "a3"), new BatchChatItem(b, "b2")));
+
+        assertEquals(List.of("a1@1", "b1@1", "a2@3", "a3@5", "b2@3"),
+                results.stream().map(BatchChatResult::response).toList());
+        assertEquals(6, memory.getHistory(a).size());
+    }
+
+    @Test
+    void testParallelismIsBoundedAcrossConversations() {
+        BatchChatService service = service(2);
+        List<BatchChatItem> items = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            items.add(new BatchChatItem(memory.startConversation(null), "hello"));
+        }
+
+        List<BatchChatResult> results = run(service, items);
+
+        assertEquals(8, results.size());
+        assertTrue(results.stream().allMatch(result -> result.error() == null));
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    void testFailedItemsDoNotStopTheBatch() {
+        BatchChatService service = service(2);
+        String a = memory.startConversation(null);
+
+        List<BatchChatResult> results = run(service, List.of(
+                new BatchChatItem("missing", "x"), new BatchChatItem(null, "y"), new BatchChatItem(a, "z")));
+
+        assertEquals("Conversation not found", results.get(0).error());
+        assertEquals("conversationId is required", results.get(1).error());
+        assertEquals("z@1", results.get(2).response());
+    }
+}
@@ -0,0 +1,63 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.Message;
+import com.agentflow.dto.OpenAiChatRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatRequestBodyWriterTest {
+
+    private static final List<String> STOP = List.of("###", "\nUser:", "\nAssistant:");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ChatRequestBodyWriter writer = new ChatRequestBodyWriter("default", 0.7, 512, STOP);
+
+    @Test
+    void testMatchesJacksonSerialization() throws Exception {
+        Message system = new Message("system", "You are \"helpful\".");
+        List<Message> history = List.of(
+                new Message("user", "Hello\nthere \u00e9 \ud83d\ude00"),
+                new Message("assistant", "Hi! \\o/"));
+
+        ChatRequestBodyWriter.Body body = writer.write(system, history, true);
+
+        List<Message> messages = new ArrayList<>();
+        messages.add(system);
+        messages.addAll(history);
+        JsonNode expected = objectMapper.valueToTree(
+                new OpenAiChatRequest("default", messages, 0.7, 512, STOP, true));
+
+        assertEquals(expected, objectMapper.readTree(body.toByteArray()));
+        assertEquals(3, body.messageCount());
+    }
+
+    @Test
+    void testCompositeBufferMatchesByteArray() {
+        ChatRequestBodyWriter.Body body = writer.write(null, List.of(new Message("user", "ping")), false);
+
+        DataBuffer buffer = body.toDataBuffer();
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        buffer.read(bytes);
+        DataBufferUtils.release(buffer);
+
+        assertEquals(body.contentLength(), bytes.length);
+        assertEquals(new String(body.toByteArray(), StandardCharsets.UTF_8), new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testEmptyHistory() throws Exception {
+        JsonNode json = objectMapper.readTree(writer.write(null, List.of(), false).toByteArray());
+
+        assertTrue(json.get("messages").isEmpty());
+        assertFalse(json.get("stream").asBoolean());
+    }
+}
@@ -0,0 +1,109 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.Message;
+import com.agentflow.interfaces.LlmClient;
+import com.agentflow.memory.ConversationMemory;
+import com.agentflow.memory.InMemoryConversationMemory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ConversationMemory memory = new InMemoryConversationMemory();
+    private final List<List<Message>> sentHistories = new CopyOnWriteArrayList<>();
+    private Sinks.Many<String> reply;
+    private UserPreferenceService preferences;
+    private ChatService chatService;
+
+    private final LlmClient llmClient = new LlmClient() {
+        @Override
+        public String generate(String prompt) {
+            return prompt;
+        }
+
+        @Override
+        public String generate(String systemPrompt, List<Message> history) {
+            return "";
+        }
+
+        @Override
+        public String generateRaw(String prompt) {
+            return prompt;
+        }
+
+        @Override
+        public Flux<String> generateStream(String systemPrompt, List<Message> history) {
+            sentHistories.add(List.copyOf(history));
+            return reply.asFlux();
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        reply = Sinks.many().unicast().onBackpressureBuffer();
+        preferences = new UserPreferenceService(tempDir.toString(), 0, 50, 0, 10000, PreferenceMatcher.defaults());
+        // no grace period: a disconnect cancels the generation at once
+        chatService = new ChatService(llmClient, memory, preferences,
+                history -> history, new TokenCoalescer(20, 64, false), new StreamRegistry(16, 0, 60_000),
+                new ConversationSerializer(new SimpleMeterRegistry()), new SlowTurnLog(2000, 50));
+    }
+
+    @AfterEach
+    void tearDown() {
+        preferences.shutdown();
+    }
+
+    private Message lastMessage(String conversationId) {
+        List<Message> history = memory.getHistory(conversationId);
+        return history.get(history.size() - 1);
+    }
+
+    @Test
+    void testDisconnectStoresPartialReplyMarkedTruncated() {
+        String conversationId = chatService.startConversation(null);
+        List<String> received = new CopyOnWriteArrayList<>();
+        Disposable client = chatService.chatStream(conversationId, "Tell me a story").subscribe(received::add);
+        reply.tryEmitNext("Once upon");
+        reply.tryEmitNext(" a time");
+        assertEquals(List.of("Once upon", " a time"), received);
+
+        client.dispose();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!"assistant".equals(lastMessage(conversationId).role()) && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        Message stored = lastMessage(conversationId);
+        assertEquals(new Message("assistant", "Once upon a time", true), stored);
+
+        // the next turn sends the partial reply as it was generated, without the mark
+        reply = Sinks.many().unicast().onBackpressureBuffer();
+        Flux<String> next = chatService.chatStream(conversationId, "Go on");
+        reply.tryEmitNext("and so on");
+        reply.tryEmitComplete();
+        assertEquals(List.of("and so on"), next.collectList().block(Duration.ofSeconds(5)));
+
+        List<Message> sent = sentHistories.get(1);
+        assertEquals("Once upon a time", sent.get(1).content());
+        assertFalse(new String(sent.get(1).toJson(), StandardCharsets.UTF_8).contains("truncated"));
+        assertFalse(lastMessage(conversationId).truncated());
+    }
+}
@@ -0,0 +1,60 @@
+package com.agentflow.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private Mono<String> failing() {
+        return Mono.defer(() -> {
+            calls.incrementAndGet();
+            return Mono.error(new TimeoutException("slow"));
+        });
+    }
+
+    @Test
+    void testOpensAfterConsecutiveFailuresAndFailsFast() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 60_000, new SimpleMeterRegistry());
+
+        assertThrows(RuntimeException.class, () -> breaker.protect(failing()).block());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertThrows(RuntimeException.class, () -> breaker.protect(failing()).block());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        LlmRejectedException rejected = assertThrows(LlmRejectedException.class,
+                () -> breaker.protect(failing()).block());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatus());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testHalfOpenTrialClosesOnSuccess() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 20, new SimpleMeterRegistry());
+        assertThrows(RuntimeException.class, () -> breaker.protect(failing()).block());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        Thread.sleep(50);
+        assertEquals("ok", breaker.protect(Mono.just("ok")).block());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void testProbeOpensAndClosesCircuit() {
+        CircuitBreaker breaker = new CircuitBreaker(5, 60_000, new SimpleMeterRegistry());
+
+        breaker.onProbe(false);
+        assertThrows(LlmRejectedException.class, () -> breaker.protect(Mono.just("x")).block());
+
+        breaker.onProbe(true);
+        assertEquals("x", breaker.protect(Mono.just("x")).block());
+    }
+}
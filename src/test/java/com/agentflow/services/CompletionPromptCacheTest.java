@@ -0,0 +1,79 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompletionPromptCacheTest {
+
+    private static final String SYSTEM = "You are a helpful assistant.";
+
+    private final CompletionPromptCache cache = new CompletionPromptCache(ChatTemplate.LLAMA3, 10);
+
+    /** What the prompt must be, rendered without the cache. */
+    private static String fresh(ChatTemplate template, String systemBlock, List<Message> history) {
+        return new CompletionPromptCache(template, 1).render(null, systemBlock, history);
+    }
+
+    @Test
+    void testRendersLlama3AndChatml() {
+        List<Message> history = List.of(new Message("user", " Hi "), new Message("assistant", "Hello!"));
+
+        assertEquals("<|start_header_id|>system<|end_header_id|>\n\nBe brief.<|eot_id|>"
+                        + "<|start_header_id|>user<|end_header_id|>\n\nHi<|eot_id|>"
+                        + "<|start_header_id|>assistant<|end_header_id|>\n\nHello!<|eot_id|>"
+                        + "<|start_header_id|>assistant<|end_header_id|>\n\n",
+                fresh(ChatTemplate.LLAMA3, "Be brief.", history));
+        assertEquals("<|im_start|>user\nHi<|im_end|>\n"
+                        + "<|im_start|>assistant\nHello!<|im_end|>\n"
+                        + "<|im_start|>assistant\n",
+                fresh(ChatTemplate.CHATML, "", history));
+        assertEquals("<|eot_id|>", ChatTemplate.LLAMA3.stopToken());
+        assertEquals("<|im_end|>", ChatTemplate.CHATML.stopToken());
+    }
+
+    @Test
+    void testUnknownTemplateNameIsRejected() {
+        assertEquals(ChatTemplate.CHATML, ChatTemplate.fromName("ChatML"));
+        assertEquals(ChatTemplate.LLAMA3, ChatTemplate.fromName("llama3"));
+        assertThrows(IllegalArgumentException.class, () -> ChatTemplate.fromName("llama-3"));
+    }
+
+    @Test
+    void testGrowingHistoryReusesCachedTurns() {
+        List<Message> history = new ArrayList<>(List.of(new Message("user", "one"), new Message("assistant", "two")));
+        cache.render("c1", SYSTEM, history);
+        assertEquals(0, cache.reusedTurns());
+
+        history.add(new Message("user", "three"));
+        String prompt = cache.render("c1", SYSTEM, history);
+
+        assertEquals(2, cache.reusedTurns());
+        assertEquals(fresh(ChatTemplate.LLAMA3, SYSTEM, history), prompt);
+    }
+
+    @Test
+    void testSummarizedHistoryOrNewSystemBlockRendersFromScratch() {
+        List<Message> history = List.of(new Message("user", "one"), new Message("assistant", "two"),
+                new Message("user", "three"));
+        cache.render("c1", SYSTEM, history);
+
+        List<Message> summarized = List.of(new Message("system", "Summary: counting."), new Message("user", "three"),
+                new Message("assistant", "four"));
+        assertEquals(fresh(ChatTemplate.LLAMA3, SYSTEM, summarized), cache.render("c1", SYSTEM, summarized));
+        assertEquals(0, cache.reusedTurns());
+
+        String withPreferences = SYSTEM + "\nThe user prefers short answers.";
+        assertEquals(fresh(ChatTemplate.LLAMA3, withPreferences, summarized),
+                cache.render("c1", withPreferences, summarized));
+        assertEquals(0, cache.reusedTurns());
+
+        cache.invalidate("c1");
+        cache.render("c1", withPreferences, summarized);
+        assertEquals(0, cache.reusedTurns());
+    }
+}
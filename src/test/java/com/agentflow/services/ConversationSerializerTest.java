@@ -0,0 +1,118 @@
+package com.agentflow.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversationSerializerTest {
+
+    private final ConversationSerializer serializer = new ConversationSerializer(new SimpleMeterRegistry());
+
+    @Test
+    void testTurnsOfOneConversationNeverOverlap() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        AtomicInteger otherRunning = new AtomicInteger();
+        CountDownLatch otherStarted = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> turns = new CopyOnWriteArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                turns.add(pool.submit(() -> serializer.call("conv-1", () -> {
+                    if (running.incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    sleep(2);
+                    running.decrementAndGet();
+                    return null;
+                })));
+            }
+            // another conversation is not held up by the queue above
+            pool.submit(() -> serializer.call("conv-2", () -> {
+                otherRunning.incrementAndGet();
+                otherStarted.countDown();
+                return null;
+            }));
+            assertTrue(otherStarted.await(1, TimeUnit.SECONDS));
+            assertTrue(running.get() <= 1);
+            for (Future<?> turn : turns) {
+                turn.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(0, overlaps.get());
+        assertEquals(1, otherRunning.get());
+        assertEquals(0, serializer.activeConversations());
+    }
+
+    @Test
+    void testStreamTurnsRunInSubscriptionOrder() {
+        List<String> events = new CopyOnWriteArrayList<>();
+        Sinks.Many<String> first = Sinks.many().unicast().onBackpressureBuffer();
+
+        Flux<String> turn1 = serializer.flux("conv-1", () -> first.asFlux()
+                .doOnSubscribe(s -> events.add("start-1"))
+                .doOnComplete(() -> events.add("end-1")));
+        Flux<String> turn2 = serializer.flux("conv-1", () -> Flux.just("b")
+                .doOnSubscribe(s -> events.add("start-2")));
+
+        Disposable subscription1 = turn1.subscribe();
+        Mono<List<String>> result2 = turn2.collectList().cache();
+        result2.subscribe();
+        assertEquals(List.of("start-1"), events);
+
+        first.tryEmitNext("a");
+        first.tryEmitComplete();
+        assertEquals(List.of("b"), result2.block(Duration.ofSeconds(2)));
+        assertEquals(List.of("start-1", "end-1", "start-2"), events);
+        subscription1.dispose();
+    }
+
+    @Test
+    void testCancelledWaiterKeepsOrderAndCleansUp() {
+        Sinks.Empty<Void> first = Sinks.empty();
+        AtomicInteger started = new AtomicInteger();
+
+        Disposable turn1 = serializer.mono("conv-1", () -> first.asMono()).subscribe();
+        Disposable turn2 = serializer.mono("conv-1", () -> Mono.fromRunnable(started::incrementAndGet)).subscribe();
+        Mono<Integer> turn3 = serializer.mono("conv-1", () -> Mono.fromCallable(started::incrementAndGet)).cache();
+        turn3.subscribe();
+
+        turn2.dispose();
+        assertEquals(0, started.get(), "a cancelled waiter must not let later turns jump the queue");
+
+        first.tryEmitEmpty();
+        assertEquals(1, turn3.block(Duration.ofSeconds(2)));
+        turn1.dispose();
+        // the last turn releases right after emitting its value
+        for (int i = 0; i < 100 && serializer.activeConversations() > 0; i++) {
+            sleep(10);
+        }
+        assertEquals(0, serializer.activeConversations());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
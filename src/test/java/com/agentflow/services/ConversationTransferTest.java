@@ -0,0 +1,134 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.ImportResult;
+import com.agentflow.dto.Message;
+import com.agentflow.memory.Conversation;
+import com.agentflow.memory.ConversationMemory;
+import com.agentflow.memory.InMemoryConversationMemory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConversationTransferTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @TempDir
+    Path tempDir;
+
+    private ConversationTransfer transfer(ConversationMemory memory) {
+        return new ConversationTransfer(memory, objectMapper, 4, 2);
+    }
+
+    private static ConversationMemory corpus(int size) {
+        ConversationMemory memory = new InMemoryConversationMemory();
+        for (int i = 0; i < size; i++) {
+            Instant created = Instant.parse("2024-01-01T00:00:00Z").plusSeconds(i);
+            memory.importConversation(new Conversation("c" + i, "system " + i,
+                    List.of(new Message("user", "hello " + i), new Message("assistant", "hi " + i)),
+                    created, created.plusSeconds(60)));
+        }
+        return memory;
+    }
+
+    @Test
+    void testExportAndImportKeepConversationsInIdOrder() {
+        ConversationMemory source = corpus(12);
+        List<ConversationTransfer.Line> lines = transfer(source).export(null).collectList().block();
+        assertEquals(source.listConversations().stream().sorted().toList(),
+                lines.stream().map(ConversationTransfer.Line::id).toList());
+        assertEquals(List.of("c7", "c8", "c9"),
+                transfer(source).export("c6").map(ConversationTransfer.Line::id).collectList().block());
+
+        ConversationMemory target = new InMemoryConversationMemory();
+        List<ImportResult> results = transfer(target)
+                .importLines(Flux.fromIterable(lines).map(ConversationTransfer.Line::json), 0)
+                .collectList().block();
+
+        assertEquals(12, results.size());
+        assertEquals(12, results.get(11).line());
+        Conversation original = source.getConversation("c3").orElseThrow();
+        Conversation imported = target.getConversation("c3").orElseThrow();
+        assertEquals(original.getMessages(), imported.getMessages());
+        assertEquals(original.getSystemPrompt(), imported.getSystemPrompt());
+        assertEquals(original.getCreatedAt(), imported.getCreatedAt());
+        assertEquals(original.getUpdatedAt(), imported.getUpdatedAt());
+    }
+
+    @Test
+    void testBadLinesAreReportedAndSkipResumes() {
+        ConversationMemory target = new InMemoryConversationMemory();
+        Flux<String> lines = Flux.just(
+                "{\"id\":\"a\",\"messages\":[]}",
+                "not json",
+                "",
+                "{\"id\":\"../escape\",\"messages\":[]}",
+                "{\"id\":\"b\",\"messages\":[{\"role\":\"user\",\"content\":\"hi\"}]}");
+
+        List<ImportResult> results = transfer(target).importLines(lines, 1).collectList().block();
+
+        assertEquals(List.of(2L, 4L, 5L), results.stream().map(ImportResult::line).toList());
+        assertTrue(results.get(0).error().startsWith("Invalid JSON"));
+        assertTrue(results.get(1).error().startsWith("Invalid conversation id"));
+        assertEquals("b", results.get(2).id());
+        assertEquals(List.of("b"), target.listConversations());
+    }
+
+    @Test
+    void testStoreFailureIsReportedPerLine() {
+        ConversationMemory target = new InMemoryConversationMemory() {
+            @Override
+            public void importConversation(Conversation conversation) {
+                if (conversation.getId().equals("b")) {
+                    throw new UncheckedIOException(new IOException("disk full"));
+                }
+                super.importConversation(conversation);
+            }
+        };
+        Flux<String> lines = Flux.just(
+                "{\"id\":\"a\",\"messages\":[]}",
+                "{\"id\":\"b\",\"messages\":[]}",
+                "{\"id\":\"c\",\"messages\":[]}");
+
+        List<ImportResult> results = transfer(target).importLines(lines, 0).collectList().block();
+
+        assertEquals(3, results.size());
+        ImportResult failed = results.stream().filter(r -> r.error() != null).findFirst().orElseThrow();
+        assertEquals(2, failed.line());
+        assertEquals("b", failed.id());
+        assertTrue(failed.error().contains("disk full"));
+        assertEquals(List.of("a", "c"), target.listConversations().stream().sorted().toList());
+    }
+
+    @Test
+    void testFileExportResumesFromCheckpointAndImportsBack() throws Exception {
+        ConversationMemory source = corpus(5);
+        Path file = tempDir.resolve("conversations.ndjson");
+        String firstTwo = String.join("\n", transfer(source).export(null).take(2)
+                .map(ConversationTransfer.Line::json).collectList().block()) + "\n";
+        // an interrupted run: two lines checkpointed, then half a line
+        Files.writeString(file, firstTwo + "{\"id\":\"c2\",\"sys", StandardCharsets.UTF_8);
+        Files.writeString(tempDir.resolve("conversations.ndjson.checkpoint"),
+                "c1\n" + firstTwo.getBytes(StandardCharsets.UTF_8).length + "\n");
+
+        assertEquals(3, transfer(source).exportToFile(file));
+
+        assertEquals(5, Files.readAllLines(file).size());
+        assertFalse(Files.exists(tempDir.resolve("conversations.ndjson.checkpoint")));
+        ConversationMemory target = new InMemoryConversationMemory();
+        assertEquals(0, transfer(target).importFromFile(file));
+        assertEquals(List.of("c0", "c1", "c2", "c3", "c4"), target.listConversations().stream().sorted().toList());
+    }
+}
@@ -0,0 +1,132 @@
+package com.agentflow.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgingPolicyTest {
+
+    private static HedgingPolicy policy(double budgetPercent) {
+        return new HedgingPolicy(true, 0.95, budgetPercent, 10, 64, new SimpleMeterRegistry());
+    }
+
+    private static void warmUp(HedgingPolicy policy) {
+        for (int i = 0; i < 30; i++) {
+            policy.hedge(() -> true, call -> call, attempt -> Mono.just("fast")).block();
+            policy.hedgeStream(() -> true, call -> call, attempt -> Flux.just("fast")).blockLast();
+        }
+    }
+
+    @Test
+    void testSlowPrimaryIsHedgedAndCancelled() {
+        HedgingPolicy policy = policy(100);
+        warmUp(policy);
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+
+        String result = policy.hedge(() -> true, call -> call, attempt -> attempt == 0
+                ? Mono.delay(Duration.ofSeconds(5)).map(tick -> "primary")
+                        .doOnCancel(() -> primaryCancelled.set(true))
+                : Mono.just("backup")).block(Duration.ofSeconds(2));
+
+        assertEquals("backup", result);
+        assertTrue(primaryCancelled.get());
+    }
+
+    @Test
+    void testLostRacesKeepTheSlowTailInTheWindow() {
+        HedgingPolicy policy = policy(100);
+        warmUp(policy);
+        assertEquals(Duration.ofMillis(10), policy.unaryHedgeDelay());
+
+        for (int i = 0; i < 30; i++) {
+            policy.hedge(() -> true, call -> call, attempt -> attempt == 0
+                    ? Mono.delay(Duration.ofSeconds(5)).map(tick -> "primary")
+                    : Mono.delay(Duration.ofMillis(40)).map(tick -> "backup")).block(Duration.ofSeconds(2));
+        }
+
+        // the cancelled primaries and the backups are sampled, so the delay follows the slow calls
+        assertTrue(policy.unaryHedgeDelay().toMillis() >= 40, () -> "delay " + policy.unaryHedgeDelay());
+    }
+
+    @Test
+    void testStreamIsHedgedOnFirstDelta() {
+        HedgingPolicy policy = policy(100);
+        warmUp(policy);
+
+        String joined = policy.hedgeStream(() -> true, call -> call, attempt -> attempt == 0
+                ? Flux.just("slow").delaySubscription(Duration.ofSeconds(5))
+                : Flux.just("b", "ackup"))
+                .collectList()
+                .map(deltas -> String.join("", deltas))
+                .block(Duration.ofSeconds(2));
+
+        assertEquals("backup", joined);
+    }
+
+    @Test
+    void testBudgetLimitsHedges() {
+        HedgingPolicy policy = policy(0);
+        warmUp(policy);
+        AtomicInteger backups = new AtomicInteger();
+
+        String result = policy.hedge(() -> true, call -> call, attempt -> {
+            if (attempt == 0) {
+                return Mono.delay(Duration.ofMillis(200)).map(tick -> "primary");
+            }
+            backups.incrementAndGet();
+            return Mono.just("backup");
+        }).block(Duration.ofSeconds(2));
+
+        assertEquals("primary", result);
+        assertEquals(0, backups.get());
+    }
+
+    @Test
+    void testAdmissionWaitIsNotTimed() {
+        HedgingPolicy policy = policy(100);
+        warmUp(policy);
+        AtomicInteger backups = new AtomicInteger();
+
+        for (int i = 0; i < 20; i++) {
+            // queued locally for 50 ms, then answered at once
+            String result = policy.hedge(() -> true, call -> call.delaySubscription(Duration.ofMillis(50)), attempt -> {
+                if (attempt == 1) {
+                    backups.incrementAndGet();
+                }
+                return Mono.just("fast");
+            }).block(Duration.ofSeconds(2));
+            assertEquals("fast", result);
+        }
+
+        assertEquals(0, backups.get(), "no hedge for time spent waiting for a slot");
+        assertEquals(Duration.ofMillis(10), policy.unaryHedgeDelay());
+    }
+
+    @Test
+    void testNoHedgeWhileBackupUnavailable() {
+        HedgingPolicy policy = policy(100);
+        warmUp(policy);
+        AtomicBoolean available = new AtomicBoolean(true);
+        AtomicInteger backups = new AtomicInteger();
+
+        String result = policy.hedge(available::get, call -> call, attempt -> {
+            if (attempt == 0) {
+                // the limiter fills up while the primary runs
+                available.set(false);
+                return Mono.delay(Duration.ofMillis(100)).map(tick -> "primary");
+            }
+            backups.incrementAndGet();
+            return Mono.just("backup");
+        }).block(Duration.ofSeconds(2));
+
+        assertEquals("primary", result);
+        assertEquals(0, backups.get());
+    }
+}
@@ -0,0 +1,78 @@
+package com.agentflow.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmMetricsTest {
+
+    private static final String BACKEND = "http://localhost:8081";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LlmMetrics metrics = new LlmMetrics(registry, false);
+
+    private long requests(String endpoint, String type, String outcome) {
+        return registry.get("agentflow.llm.requests")
+                .tags("endpoint", endpoint, "backend", BACKEND, "type", type, "outcome", outcome)
+                .timer().count();
+    }
+
+    @Test
+    void testUnaryOutcomesAreTagged() {
+        metrics.unary("chat", BACKEND, Mono.just("reply")).block();
+        assertThrows(RuntimeException.class, () -> metrics.unary("chat", BACKEND,
+                Mono.<String>error(new TimeoutException())).block());
+        metrics.retried("chat", BACKEND);
+
+        assertEquals(1, requests("chat", "unary", "success"));
+        assertEquals(1, requests("chat", "unary", "timeout"));
+        assertEquals(1, registry.get("agentflow.llm.retries").tag("endpoint", "chat").counter().count());
+        assertEquals(0, registry.get("agentflow.llm.inflight").gauge().value());
+    }
+
+    @Test
+    void testStreamRecordsFirstTokenAndTokens() {
+        metrics.stream("chat-stream", BACKEND, Flux.just("a", "b", "c").delayElements(Duration.ofMillis(5)))
+                .blockLast();
+
+        assertEquals(1, requests("chat-stream", "stream", "success"));
+        assertEquals(1, registry.get("agentflow.llm.ttft").timer().count());
+        assertEquals(3, registry.get("agentflow.llm.tokens").counter().count());
+        assertEquals(1, registry.get("agentflow.llm.tokens.rate").summary().count());
+        assertTrue(registry.get("agentflow.llm.tokens.rate").summary().max() > 0);
+    }
+
+    @Test
+    void testCancelledStreamLeavesNothingInFlight() {
+        var subscription = metrics.stream("chat-stream", BACKEND, Flux.<String>never()).subscribe();
+        assertEquals(1, registry.get("agentflow.llm.inflight").gauge().value());
+
+        subscription.dispose();
+
+        assertEquals(0, registry.get("agentflow.llm.inflight").gauge().value());
+        assertEquals(1, requests("chat-stream", "stream", "cancelled"));
+    }
+
+    @Test
+    void testCancelledStreamCountsReclaimedGeneration() {
+        metrics.trackCancellation(Flux.just("a", "b"), 10).blockLast();
+        assertEquals(0, registry.get("agentflow.llm.stream.cancelled").counter().count());
+
+        metrics.trackCancellation(Flux.interval(Duration.ofMillis(5)).map(String::valueOf), 10)
+                .take(3)
+                .blockLast(Duration.ofSeconds(5));
+
+        assertEquals(1, registry.get("agentflow.llm.stream.cancelled").counter().count());
+        var reclaimed = registry.get("agentflow.llm.stream.reclaimed").timer();
+        assertEquals(1, reclaimed.count());
+        // 7 tokens of budget left at the observed rate of about 5 ms per token
+        assertTrue(reclaimed.totalTime(TimeUnit.MILLISECONDS) >= 20, reclaimed.totalTime(TimeUnit.MILLISECONDS) + " ms");
+    }
+}
@@ -0,0 +1,84 @@
+package com.agentflow.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreferenceMatcherTest {
+
+    /** The regexes the matcher replaced, with their post-processing. */
+    private static final Pattern[] REGEX_RULES = {
+            Pattern.compile("(?i)I like (.*)"),
+            Pattern.compile("(?i)I prefer (.*)"),
+            Pattern.compile("(?i)I love (.*)"),
+            Pattern.compile("(?i)My favorite (.*) is (.*)"),
+            Pattern.compile("(?i)Remind me that (.*)")
+    };
+
+    private static Set<String> regexExtract(String text) {
+        Set<String> found = new LinkedHashSet<>();
+        for (Pattern pattern : REGEX_RULES) {
+            Matcher matcher = pattern.matcher(text);
+            while (matcher.find()) {
+                String match = matcher.groupCount() == 2
+                        ? matcher.group(1) + " is " + matcher.group(2)
+                        : matcher.group(1);
+                match = match.replaceAll("[.!?]$", "").trim();
+                if (!match.isEmpty()) {
+                    found.add(match);
+                }
+            }
+        }
+        return found;
+    }
+
+    @Test
+    void testMatchesTheRegexRules() {
+        PreferenceMatcher matcher = PreferenceMatcher.defaults();
+        List<String> inputs = List.of(
+                "I like pizza and pasta.",
+                "i LIKE tea! I prefer dark mode?",
+                "My favorite color is blue, my favorite food IS pizza",
+                "My favorite thing has no verb\nRemind me that I have a meeting at 2pm.\r\nI love  jazz. ",
+                "Oh, I like I like repetition",
+                "nothing to see here",
+                "I like ",
+                "I like café crème I prefer naïve answers");
+        for (String input : inputs) {
+            assertEquals(regexExtract(input), new LinkedHashSet<>(matcher.extract(input)), input);
+        }
+    }
+
+    @Test
+    void testCustomRulesAndCaptureLimit() {
+        PreferenceMatcher matcher = new PreferenceMatcher(List.of("Call me {}", "My {} is {}"), 12);
+
+        assertEquals(List.of("Ada", "name is Ada"), matcher.extract("call me Ada.\nMy name is Ada"));
+        assertEquals(List.of(), matcher.extract("Call me " + "x".repeat(20)));
+        assertThrows(IllegalArgumentException.class, () -> new PreferenceMatcher(List.of("{} likes"), 0));
+        assertThrows(IllegalArgumentException.class, () -> new PreferenceMatcher(List.of("I like {} a lot"), 0));
+    }
+
+    @Test
+    void testLongInputIsScannedInLinearTime() {
+        PreferenceMatcher matcher = PreferenceMatcher.defaults();
+        // no separator after the trigger: the regex backtracks over the rest of the line for every occurrence
+        String adversarial = "my favorite thing ".repeat(20_000);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            lines.add("line " + i + ": I like item " + i);
+        }
+
+        long start = System.nanoTime();
+        assertTrue(matcher.extract(adversarial).isEmpty());
+        assertEquals(2_000, matcher.extract(String.join("\n", lines)).size());
+        assertTrue(System.nanoTime() - start < 2_000_000_000L);
+    }
+}
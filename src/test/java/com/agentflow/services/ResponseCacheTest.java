@@ -0,0 +1,81 @@
+package com.agentflow.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    private UserPreferenceService userPreferenceService;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        userPreferenceService = new UserPreferenceService(tempDir.toString(), 0, 50, 0, 10000, PreferenceMatcher.defaults());
+    }
+
+    @AfterEach
+    void tearDown() {
+        userPreferenceService.shutdown();
+    }
+
+    private ResponseCache cache(double temperature, int maxEntries, long maxBytes) {
+        return new ResponseCache(true, maxEntries, maxBytes, 600, temperature, 256,
+                userPreferenceService, new SimpleMeterRegistry());
+    }
+
+    private String generate(ResponseCache cache, String prompt, boolean optIn) {
+        return cache.getOrGenerate(prompt, optIn, () -> "reply " + calls.incrementAndGet());
+    }
+
+    @Test
+    void testHitsOnNormalizedPromptAndMissesOnPreferenceChange() {
+        ResponseCache cache = cache(0.0, 100, 1_000_000);
+
+        assertEquals("reply 1", generate(cache, "What is  2+2?", false));
+        assertEquals("reply 1", generate(cache, " What is 2+2?\n", false));
+
+        userPreferenceService.extractPreferences("I like short answers");
+        assertEquals("reply 2", generate(cache, "What is 2+2?", false));
+        assertEquals(1.0 / 3, cache.hitRatio(), 1e-9);
+    }
+
+    @Test
+    void testOnlyActiveForZeroTemperatureOrOptIn() {
+        ResponseCache cache = cache(0.7, 100, 1_000_000);
+
+        assertEquals("reply 1", generate(cache, "hello", false));
+        assertEquals("reply 2", generate(cache, "hello", false));
+        assertEquals(0, cache.size());
+
+        assertEquals("reply 3", generate(cache, "hello", true));
+        assertEquals("reply 3", generate(cache, "hello", true));
+    }
+
+    @Test
+    void testBoundedByEntriesAndBytes() {
+        ResponseCache byEntries = cache(0.0, 2, 1_000_000);
+        generate(byEntries, "a", false);
+        generate(byEntries, "b", false);
+        generate(byEntries, "c", false);
+        assertEquals(2, byEntries.size());
+        assertEquals("reply 4", generate(byEntries, "a", false)); // evicted as least recently used
+
+        ResponseCache byBytes = cache(0.0, 100, 500);
+        generate(byBytes, "x", false);
+        generate(byBytes, "y", false);
+        generate(byBytes, "z", false);
+        assertTrue(byBytes.retainedBytes() <= 500);
+        assertEquals(2, byBytes.size());
+    }
+}
@@ -0,0 +1,73 @@
+package com.agentflow.services;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private final AtomicInteger joined = new AtomicInteger();
+    private final SingleFlight<String> singleFlight = new SingleFlight<>(key -> joined.incrementAndGet());
+
+    @Test
+    void testConcurrentCallsShareOneUpstream() {
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.One<String> result = Sinks.one();
+
+        Mono<String> first = singleFlight.mono("k", () -> result.asMono().doOnSubscribe(s -> calls.incrementAndGet()));
+        Mono<String> second = singleFlight.mono("k", () -> Mono.just("other"));
+        Mono<String> zipped = Mono.zip(first, second, (a, b) -> a + "," + b);
+
+        String[] value = new String[1];
+        zipped.subscribe(v -> value[0] = v);
+        result.tryEmitValue("reply");
+
+        assertEquals("reply,reply", value[0]);
+        assertEquals(1, calls.get());
+        assertEquals(1, joined.get());
+        assertEquals(0, singleFlight.size());
+
+        // released after completion: the next caller starts a new call
+        assertEquals("fresh", singleFlight.mono("k", () -> Mono.just("fresh")).block());
+    }
+
+    @Test
+    void testLateStreamSubscriberReceivesAllElements() {
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        List<String> early = new ArrayList<>();
+        List<String> late = new ArrayList<>();
+
+        singleFlight.flux("s", upstream::asFlux).subscribe(early::add);
+        upstream.tryEmitNext("a");
+        upstream.tryEmitNext("b");
+        singleFlight.flux("s", () -> Flux.just("other")).subscribe(late::add);
+        upstream.tryEmitNext("c");
+        upstream.tryEmitComplete();
+
+        assertEquals(List.of("a", "b", "c"), early);
+        assertEquals(List.of("a", "b", "c"), late);
+        assertEquals(1, joined.get());
+    }
+
+    @Test
+    void testUpstreamCancelledOnlyWhenAllSubscribersCancel() {
+        AtomicInteger cancelled = new AtomicInteger();
+        Flux<String> never = Flux.<String>never().doOnCancel(cancelled::incrementAndGet);
+
+        var first = singleFlight.flux("s", () -> never).subscribe();
+        var second = singleFlight.flux("s", () -> never).subscribe();
+
+        first.dispose();
+        assertEquals(0, cancelled.get());
+        second.dispose();
+        assertEquals(1, cancelled.get());
+        assertEquals(0, singleFlight.size());
+    }
+}
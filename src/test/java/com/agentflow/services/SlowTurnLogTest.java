@@ -0,0 +1,111 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.Message;
+import com.agentflow.dto.SlowTurn;
+import com.agentflow.services.TurnTrace.Stage;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlowTurnLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void testOnlySlowTurnsAreKeptSlowestFirst() {
+        SlowTurnLog log = new SlowTurnLog(20, 2);
+
+        TurnTrace fast = log.start("fast", false);
+        fast.stage(Stage.GENERATION);
+        fast.finish("success");
+
+        for (long millis : new long[]{40, 25, 60}) {
+            TurnTrace slow = log.start("slow-" + millis, true);
+            slow.stage(Stage.PREFILL);
+            sleep(millis);
+            slow.finish("success");
+        }
+
+        List<SlowTurn> turns = log.slowTurns();
+        assertEquals(List.of("slow-60", "slow-25"), turns.stream().map(SlowTurn::conversationId).toList());
+        assertTrue(turns.get(0).totalMillis() >= 60);
+        assertEquals(TenantContext.DEFAULT_TENANT, turns.get(0).tenant());
+    }
+
+    @Test
+    void testStagesAddUpAndAreReported() {
+        SlowTurnLog log = new SlowTurnLog(0, 10);
+        TurnTrace trace = log.start("c1", false);
+
+        trace.stage(Stage.PERSIST);
+        sleep(5);
+        trace.stage(Stage.HISTORY);
+        trace.history(List.of(new Message("user", "hello"), new Message("assistant", "hi there")));
+        trace.stage(Stage.PERSIST);
+        sleep(5);
+        trace.reply(7);
+        trace.finish("success");
+        trace.finish("error");
+
+        assertTrue(trace.stageNanos(Stage.PERSIST) >= 10_000_000);
+        SlowTurn turn = log.slowTurns().get(0);
+        assertEquals("success", turn.outcome());
+        assertEquals(List.of("history", "persist"), List.copyOf(turn.stageMillis().keySet()));
+        assertEquals(2, turn.historySize());
+        assertEquals(13, turn.historyChars());
+        assertEquals(7, turn.replyChars());
+        assertEquals(1, log.slowTurns().size());
+    }
+
+    @Test
+    void testStagesAreRecordedAsFlightRecorderEvents() throws Exception {
+        SlowTurnLog log = new SlowTurnLog(60_000, 10);
+        Path file = tempDir.resolve("turn.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.agentflow.ChatStage");
+            recording.enable("com.agentflow.ChatTurn");
+            recording.start();
+
+            TurnTrace trace = log.start("c1", true);
+            trace.stage(Stage.MEMORY);
+            trace.history(List.of(new Message("user", "hello")));
+            trace.stage(Stage.PREFILL);
+            trace.stage(Stage.GENERATION);
+            trace.reply(3);
+            trace.finish("cancelled");
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        List<String> stages = events.stream()
+                .filter(e -> e.getEventType().getName().equals("com.agentflow.ChatStage"))
+                .map(e -> e.getString("stage"))
+                .toList();
+        assertEquals(List.of("memory", "prefill", "generation"), stages);
+        RecordedEvent turn = events.stream()
+                .filter(e -> e.getEventType().getName().equals("com.agentflow.ChatTurn"))
+                .findFirst().orElseThrow();
+        assertEquals("c1", turn.getString("conversationId"));
+        assertEquals("cancelled", turn.getString("outcome"));
+        assertEquals(3, turn.getLong("replyChars"));
+        assertTrue(log.slowTurns().isEmpty());
+    }
+}
@@ -0,0 +1,86 @@
+package com.agentflow.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SseContentParserTest {
+
+    private static final String STREAM =
+            "data: {\"choices\":[{\"finish_reason\":null,\"index\":0,\"delta\":{\"role\":\"assistant\",\"content\":null}}]}\n\n"
+            + "data: {\"choices\":[{\"finish_reason\":null,\"index\":0,\"delta\":{\"content\":\"Hello\"}}],\"object\":\"chat.completion.chunk\"}\n\n"
+            + "data: {\"choices\":[{\"finish_reason\":null,\"index\":0,\"delta\":{\"content\":\" \\\"w\\u00f6rld\\\"\\n\"}}]}\r\n\r\n"
+            + "data: {\"choices\":[{\"finish_reason\":null,\"index\":0,\"delta\":{\"content\": \"\u00e9\ud83d\ude00\"}}]}\n\n"
+            + "data: {\"choices\":[{\"finish_reason\":\"stop\",\"index\":0,\"delta\":{}}]}\n\n"
+            + "data: [DONE]\n\n"
+            + "data: {\"choices\":[{\"delta\":{\"content\":\"ignored\"}}]}\n\n";
+
+    private static final List<String> EXPECTED = List.of("Hello", " \"w\u00f6rld\"\n", "\u00e9\ud83d\ude00");
+
+    @Test
+    void testParsesWholeStream() {
+        assertEquals(EXPECTED, decode(split(STREAM.getBytes(StandardCharsets.UTF_8), Integer.MAX_VALUE), true));
+    }
+
+    @Test
+    void testHandlesEveryChunkBoundary() {
+        byte[] bytes = STREAM.getBytes(StandardCharsets.UTF_8);
+        for (int size = 1; size < 40; size++) {
+            assertEquals(EXPECTED, decode(split(bytes, size), true), "chunk size " + size);
+        }
+    }
+
+    @Test
+    void testStopsAtDone() {
+        SseContentParser parser = SseContentParser.forChatCompletions();
+        List<String> contents = parser.feed(buffer("data: [DONE]\n\ndata: {\"delta\":{\"content\":\"x\"}}\n"));
+
+        assertEquals(1, contents.size());
+        assertSame(SseContentParser.DONE, contents.get(0));
+        assertTrue(parser.feed(buffer("data: {\"delta\":{\"content\":\"y\"}}\n")).isEmpty());
+    }
+
+    @Test
+    void testNativeCompletionChunks() {
+        String stream = "data: {\"content\":\"Hi\",\"stop\":false}\n\n"
+                + "data: {\"content\":\" there\",\"stop\":false}\n\n"
+                + "data: {\"content\":\"\",\"stop\":true,\"tokens_cached\":12}\n\n";
+
+        assertEquals(List.of("Hi", " there"),
+                decode(split(stream.getBytes(StandardCharsets.UTF_8), 7), false));
+    }
+
+    @Test
+    void testErrorEventFailsStream() {
+        SseContentParser parser = SseContentParser.forChatCompletions();
+
+        assertThrows(IllegalStateException.class,
+                () -> parser.feed(buffer("error: {\"code\":500,\"message\":\"slot unavailable\"}\n")));
+    }
+
+    private static List<String> decode(List<DataBuffer> buffers, boolean chat) {
+        return SseContentParser.decode(Flux.fromIterable(buffers), chat).collectList().block();
+    }
+
+    private static List<DataBuffer> split(byte[] bytes, int size) {
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += size) {
+            int length = Math.min(size, bytes.length - i);
+            byte[] chunk = new byte[length];
+            System.arraycopy(bytes, i, chunk, 0, length);
+            buffers.add(DefaultDataBufferFactory.sharedInstance.wrap(chunk));
+        }
+        return buffers;
+    }
+
+    private static DataBuffer buffer(String text) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
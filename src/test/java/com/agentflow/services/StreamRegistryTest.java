@@ -0,0 +1,99 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.StreamEvent;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamRegistryTest {
+
+    @Test
+    void testResumeReplaysEventsAfterLastEventId() {
+        StreamRegistry registry = new StreamRegistry(16, 10_000, 60_000);
+
+        List<StreamEvent> first = registry.publish("conv-1", Flux.just("a", "b", "c", "d")).collectList().block();
+        assertEquals(List.of(1L, 2L, 3L, 4L), first.stream().map(StreamEvent::sequence).toList());
+
+        List<String> resumed = registry.resume("conv-1", first.get(1).id()).orElseThrow()
+                .map(StreamEvent::data).collectList().block();
+        assertEquals(List.of("c", "d"), resumed);
+
+        assertTrue(registry.resume("conv-2", first.get(1).id()).isEmpty());
+        assertTrue(registry.resume("conv-1", "unknown-3").isEmpty());
+    }
+
+    @Test
+    void testResumeBeyondReplayBufferIsRefused() {
+        StreamRegistry registry = new StreamRegistry(4, 10_000, 60_000);
+
+        // published synchronously, so by the time anyone attaches only 7 to 10 are buffered
+        StreamEvent oldest = registry.publish("conv-1", Flux.range(1, 10).map(String::valueOf)).blockFirst();
+        assertEquals(7, oldest.sequence());
+        String generation = oldest.id().substring(0, oldest.id().lastIndexOf('-') + 1);
+
+        assertTrue(registry.resume("conv-1", generation + 2).isEmpty());
+        assertTrue(registry.resume("conv-1", generation + 5).isEmpty());
+        assertEquals(List.of("7", "8", "9", "10"), registry.resume("conv-1", generation + 6).orElseThrow()
+                .map(StreamEvent::data).collectList().block());
+    }
+
+    @Test
+    void testSubscribersShareOneUpstream() {
+        StreamRegistry registry = new StreamRegistry(16, 10_000, 60_000);
+        AtomicInteger upstreamSubscriptions = new AtomicInteger();
+        Sinks.Many<String> upstream = Sinks.many().unicast().onBackpressureBuffer();
+
+        Flux<StreamEvent> first = registry.publish("conv-1",
+                upstream.asFlux().doOnSubscribe(s -> upstreamSubscriptions.incrementAndGet()));
+        upstream.tryEmitNext("a");
+        Flux<StreamEvent> second = registry.resume("conv-1", null).orElseThrow();
+        upstream.tryEmitNext("b");
+        upstream.tryEmitComplete();
+
+        assertEquals(List.of("a", "b"), first.map(StreamEvent::data).collectList().block());
+        assertEquals(List.of("a", "b"), second.map(StreamEvent::data).collectList().block());
+        assertEquals(1, upstreamSubscriptions.get());
+    }
+
+    @Test
+    void testAbandonedStreamCancelledAfterGracePeriod() throws InterruptedException {
+        StreamRegistry registry = new StreamRegistry(16, 50, 60_000);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Flux<String> endless = Flux.interval(Duration.ofMillis(5)).map(String::valueOf)
+                .doOnCancel(cancelled::countDown);
+
+        registry.publish("conv-1", endless).take(3).blockLast(Duration.ofSeconds(5));
+        assertEquals(1, cancelled.getCount());
+
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+        // the registry entry is removed right after the upstream is cancelled
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.resume("conv-1", null).isPresent() && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertTrue(registry.resume("conv-1", null).isEmpty());
+    }
+
+    @Test
+    void testWithoutGracePeriodDetachCancelsAtOnce() throws InterruptedException {
+        StreamRegistry registry = new StreamRegistry(16, 0, 60_000);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Flux<String> endless = Flux.interval(Duration.ofMillis(5)).map(String::valueOf)
+                .doOnCancel(cancelled::countDown);
+
+        Flux<StreamEvent> events = registry.publish("conv-1", endless);
+        // a first client that subscribes a little late still finds the generation running
+        Thread.sleep(50);
+        assertEquals(3, events.take(3).collectList().block(Duration.ofSeconds(5)).size());
+
+        assertTrue(cancelled.await(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,66 @@
+package com.agentflow.services;
+
+import com.agentflow.config.TenantProperties;
+import com.agentflow.dto.TenantUsage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TenantQuotasTest {
+
+    private final TenantProperties properties = new TenantProperties(true, Map.of("key", "keyed"),
+            new TenantProperties.Limits(1, 0, 0), Map.of("limited", new TenantProperties.Limits(1, 0, 1_000)));
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TenantQuotas quotas = new TenantQuotas(properties, registry, 300_000);
+
+    @Test
+    void testRejectsOnceTokenRateIsUsedUp() {
+        quotas.checkQuota("limited");
+        quotas.recordUsage("limited", 800, 400);
+
+        LlmRejectedException rejected = assertThrows(LlmRejectedException.class, () -> quotas.checkQuota("limited"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getStatus());
+        assertTrue(rejected.getRetryAfter().toSeconds() >= 12); // 200 tokens of debt at 1000/min
+
+        quotas.recordUsage("unlimited", 1_000_000, 1_000_000);
+        quotas.checkQuota("unlimited");
+    }
+
+    @Test
+    void testTracksUsagePerTenant() {
+        quotas.recordUsage("a", 10, 5);
+        quotas.recordUsage("a", 20, 7);
+        quotas.recordUsage("b", 1, 1);
+
+        TenantUsage usage = quotas.usage("a");
+        assertEquals(2, usage.requests());
+        assertEquals(30, usage.promptTokens());
+        assertEquals(12, usage.completionTokens());
+        assertEquals(-1, usage.tokensAvailable());
+    }
+
+    @Test
+    void testUnconfiguredTenantsShareMetricsAndAreForgottenWhenIdle() {
+        TenantQuotas evicting = new TenantQuotas(properties, registry, 0);
+        evicting.recordUsage("keyed", 10, 5);
+        evicting.recordUsage("limited", 10, 5);
+        for (int i = 0; i < 100; i++) {
+            evicting.recordUsage("client-" + i, 1, 1);
+        }
+
+        assertEquals(100, registry.get("agentflow.tenant.tokens").tag("tenant", TenantQuotas.OTHER_TENANT_TAG)
+                .tag("type", "prompt").counter().count());
+        assertEquals(10, registry.get("agentflow.tenant.tokens").tag("tenant", "keyed")
+                .tag("type", "prompt").counter().count());
+        assertEquals(6, registry.get("agentflow.tenant.tokens").counters().size()); // keyed, limited, other
+
+        // idle with a full bucket: forgotten; configured tenants are kept
+        assertEquals(0, evicting.usage("client-0").requests());
+        assertEquals(1, evicting.usage("keyed").requests());
+        assertEquals(1, evicting.usage("limited").requests());
+    }
+}
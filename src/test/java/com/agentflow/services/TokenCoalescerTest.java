@@ -0,0 +1,53 @@
+package com.agentflow.services;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenCoalescerTest {
+
+    @Test
+    void testFirstTokenAloneThenFlushBySize() {
+        TokenCoalescer coalescer = new TokenCoalescer(10_000, 4, false);
+
+        List<String> chunks = coalescer.coalesce(Flux.just("He", "l", "lo", " wo", "r", "ld", "!"))
+                .collectList().block();
+
+        assertEquals(List.of("He", "llo wo", "rld!"), chunks);
+    }
+
+    @Test
+    void testFlushByTime() {
+        TokenCoalescer coalescer = new TokenCoalescer(20, 1_000, false);
+        Flux<String> slowDeltas = Flux.just("a", "b", "c").delayElements(Duration.ofMillis(100));
+
+        List<String> chunks = coalescer.coalesce(slowDeltas).collectList().block(Duration.ofSeconds(5));
+
+        assertEquals(List.of("a", "b", "c"), chunks);
+    }
+
+    @Test
+    void testCancelPropagatesUpstream() {
+        TokenCoalescer coalescer = new TokenCoalescer(20, 64, false);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Flux<String> endless = Flux.interval(Duration.ofMillis(5)).map(String::valueOf)
+                .doOnCancel(() -> cancelled.set(true));
+
+        coalescer.coalesce(endless).take(2).blockLast(Duration.ofSeconds(5));
+
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    void testPerRequestChoiceOverridesDefault() {
+        TokenCoalescer coalescer = new TokenCoalescer(20, 64, false);
+
+        assertFalse(coalescer.isEnabled(null));
+        assertTrue(coalescer.isEnabled(true));
+    }
+}
@@ -1,11 +1,18 @@
 package com.agentflow.services;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -18,7 +25,13 @@ class UserPreferenceServiceTest {
 
     @BeforeEach
     void setUp() {
-        userPreferenceService = new UserPreferenceService(tempDir.toString());
+        userPreferenceService = new UserPreferenceService(tempDir.toString(), 0, 50, 0, 10000, PreferenceMatcher.defaults());
+    }
+
+    @AfterEach
+    void tearDown() {
+        // a background write still running would race the temp directory's deletion
+        userPreferenceService.shutdown();
     }
 
     @Test
@@ -57,4 +70,116 @@ class UserPreferenceServiceTest {
         userPreferenceService.clearPreferences();
         assertTrue(userPreferenceService.getPreferences().isEmpty());
     }
+
+    @Test
+    void testPromptIsReusedUntilPreferencesChange() {
+        userPreferenceService.extractPreferences("I like coffee.");
+        String prompt = userPreferenceService.getPreferencesPrompt();
+        assertSame(prompt, userPreferenceService.getPreferencesPrompt());
+
+        userPreferenceService.extractPreferences("I like coffee.");
+        assertSame(prompt, userPreferenceService.getPreferencesPrompt());
+
+        userPreferenceService.extractPreferences("I love tea.");
+        String updated = userPreferenceService.getPreferencesPrompt();
+        assertNotSame(prompt, updated);
+        assertTrue(updated.contains("- tea"));
+    }
+
+    @Test
+    void testSavesInBackgroundAndFlushesOnShutdown() throws Exception {
+        UserPreferenceService debounced = new UserPreferenceService(tempDir.toString(), 60_000, 50, 0, 10000, PreferenceMatcher.defaults());
+        debounced.extractPreferences("I like coffee.");
+        debounced.extractPreferences("I prefer dark mode.");
+
+        Path dir = tempDir.resolve("preferences");
+        assertTrue(debounced.hasUnsavedChanges());
+        assertFalse(Files.exists(dir));
+
+        debounced.shutdown();
+        assertFalse(debounced.hasUnsavedChanges());
+
+        // a request still running during shutdown writes through instead of failing
+        debounced.extractPreferences("I love tea.");
+        assertFalse(debounced.hasUnsavedChanges());
+
+        UserPreferenceService reloaded = new UserPreferenceService(tempDir.toString(), 0, 50, 0, 10000, PreferenceMatcher.defaults());
+        assertEquals(Set.of("coffee", "dark mode", "tea"), reloaded.getPreferences());
+        reloaded.shutdown();
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count(), "temporary files are renamed into place");
+        }
+    }
+
+    @Test
+    void testPreferencesAreKeptPerTenantAndCapped() throws Exception {
+        Files.writeString(tempDir.resolve("preferences.json"), "[\"tea\"]");
+        UserPreferenceService capped = new UserPreferenceService(tempDir.toString(), 60_000, 2, 0, 1, PreferenceMatcher.defaults());
+        try {
+            TenantContext.set("acme");
+            capped.extractPreferences("I like red.\nI like green.");
+            capped.extractPreferences("I like red.");
+            capped.extractPreferences("I like blue.");
+            assertEquals(Set.of("red", "blue"), capped.getPreferences(), "least recently stated is dropped");
+            assertFalse(capped.getPreferencesPrompt().contains("tea"));
+
+            TenantContext.set("other/../tenant");
+            assertTrue(capped.getPreferences().isEmpty());
+            assertEquals(1, capped.loadedTenants());
+
+            TenantContext.clear();
+            assertEquals(Set.of("tea"), capped.getPreferences(), "legacy file belongs to the default tenant");
+
+            TenantContext.set("acme");
+            assertEquals(Set.of("red", "blue"), capped.getPreferences(), "evicted tenant keeps its unsaved changes");
+        } finally {
+            TenantContext.clear();
+            capped.shutdown();
+        }
+        try (var files = Files.list(tempDir.resolve("preferences"))) {
+            assertEquals(List.of("acme.json"), files.map(f -> f.getFileName().toString()).toList());
+        }
+    }
+
+    @Test
+    void testChangesSurviveConcurrentEviction() throws Exception {
+        int tenants = 4;
+        int perTenant = 200;
+        UserPreferenceService evicting = new UserPreferenceService(tempDir.toString(), 0, 10_000, 0, 1, PreferenceMatcher.defaults());
+        ExecutorService pool = Executors.newFixedThreadPool(tenants * 2);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < tenants * 2; t++) {
+                String tenant = "tenant" + (t % tenants);
+                int half = t / tenants;
+                writers.add(pool.submit(() -> {
+                    TenantContext.set(tenant);
+                    try {
+                        for (int i = half; i < perTenant; i += 2) {
+                            evicting.extractPreferences("I like item" + i + ".");
+                        }
+                    } finally {
+                        TenantContext.clear();
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get();
+            }
+        } finally {
+            pool.shutdown();
+            evicting.shutdown();
+        }
+
+        UserPreferenceService reloaded = new UserPreferenceService(tempDir.toString(), 0, 10_000, 0, 10000, PreferenceMatcher.defaults());
+        try {
+            for (int t = 0; t < tenants; t++) {
+                TenantContext.set("tenant" + t);
+                assertEquals(perTenant, reloaded.getPreferences().size(), "no change lost for tenant" + t);
+            }
+        } finally {
+            TenantContext.clear();
+            reloaded.shutdown();
+        }
+    }
 }
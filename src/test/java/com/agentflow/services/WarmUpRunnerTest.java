@@ -0,0 +1,81 @@
+package com.agentflow.services;
+
+import com.agentflow.dto.Message;
+import com.agentflow.interfaces.LlmClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.DefaultApplicationArguments;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmUpRunnerTest {
+
+    private final AtomicInteger llmCalls = new AtomicInteger();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SlowTurnLog slowTurnLog = new SlowTurnLog(2000, 50);
+
+    /** The application's client; the warm-up must never call it. */
+    private final LlmClient llmClient = new LlmClient() {
+        @Override
+        public String generate(String prompt) {
+            llmCalls.incrementAndGet();
+            return prompt;
+        }
+
+        @Override
+        public String generate(String systemPrompt, List<Message> history) {
+            llmCalls.incrementAndGet();
+            return "reply";
+        }
+
+        @Override
+        public String generateRaw(String prompt) {
+            llmCalls.incrementAndGet();
+            return prompt;
+        }
+
+        @Override
+        public Flux<String> generateStream(String systemPrompt, List<Message> history) {
+            llmCalls.incrementAndGet();
+            return Flux.just("reply");
+        }
+    };
+
+    private WarmUpRunner runner(boolean enabled) {
+        return new WarmUpRunner(enabled, 2, 40, llmClient, new ObjectMapper(), PreferenceMatcher.defaults(),
+                new TokenCoalescer(20, 64, false), slowTurnLog, registry);
+    }
+
+    @Test
+    void testWarmUpRunsWithoutTouchingTheModelOrTheTurnLog() {
+        runner(true).run(new DefaultApplicationArguments());
+
+        assertEquals(0, llmCalls.get());
+        assertEquals(-1, slowTurnLog.firstTurnNanos());
+        assertTrue(Double.isNaN(registry.get("agentflow.startup.first-turn").tag("warmup", "true")
+                .timeGauge().value(TimeUnit.MILLISECONDS)));
+    }
+
+    @Test
+    void testFirstTurnIsReported() {
+        runner(false).run(new DefaultApplicationArguments());
+
+        TurnTrace first = slowTurnLog.start("c1", false);
+        first.stage(TurnTrace.Stage.GENERATION);
+        first.finish("success");
+        long firstNanos = slowTurnLog.firstTurnNanos();
+        TurnTrace second = slowTurnLog.start("c1", false);
+        second.finish("success");
+
+        assertTrue(firstNanos >= 0);
+        assertEquals(firstNanos, slowTurnLog.firstTurnNanos());
+        assertEquals(firstNanos, registry.get("agentflow.startup.first-turn").tag("warmup", "false")
+                .timeGauge().value(TimeUnit.NANOSECONDS), 1);
+    }
+}